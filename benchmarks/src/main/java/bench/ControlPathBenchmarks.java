@@ -0,0 +1,31 @@
+package bench;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the remote call benchmarks at 1, 2, 4, ... up to N client threads,
+ * followed by the lookup and serialization benchmarks.
+ * Usage: ControlPathBenchmarks [maxThreads]
+ */
+public class ControlPathBenchmarks {
+
+    public static void main(String[] args) throws Exception {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            Options options = new OptionsBuilder()
+                    .include(RemoteCallBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build();
+            new Runner(options).run();
+        }
+
+        Options options = new OptionsBuilder()
+                .include(LookupBenchmark.class.getSimpleName())
+                .include(SerializationBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
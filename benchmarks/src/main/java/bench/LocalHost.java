@@ -0,0 +1,36 @@
+package bench;
+
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+
+import services.primitives.VideoPlayerRemote;
+
+/**
+ * An RMI registry in the benchmark JVM with a headless player bound to it.
+ * The port can be changed with the {@code bench.port} system property.
+ */
+final class LocalHost {
+
+    static final int PORT = Integer.getInteger("bench.port", 1199);
+    static final String SERVICE_NAME = "bench";
+
+    private final Registry registry;
+    private final NoOpVideoPlayer player;
+
+    LocalHost() throws Exception {
+        registry = LocateRegistry.createRegistry(PORT);
+        player = new NoOpVideoPlayer();
+        registry.rebind(SERVICE_NAME, player);
+    }
+
+    VideoPlayerRemote lookup() throws Exception {
+        return (VideoPlayerRemote) LocateRegistry.getRegistry(PORT).lookup(SERVICE_NAME);
+    }
+
+    void close() throws Exception {
+        registry.unbind(SERVICE_NAME);
+        UnicastRemoteObject.unexportObject(player, true);
+        UnicastRemoteObject.unexportObject(registry, true);
+    }
+}
@@ -0,0 +1,48 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import services.primitives.VideoPlayerRemote;
+
+/**
+ * Cost of resolving the registry and looking a player stub up, as paid by
+ * ControlApp for every machine it connects to.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LookupBenchmark {
+
+    private LocalHost host;
+
+    @Setup(Level.Trial)
+    public void start() throws Exception {
+        host = new LocalHost();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws Exception {
+        host.close();
+    }
+
+    @Benchmark
+    public VideoPlayerRemote lookup() throws Exception {
+        return host.lookup();
+    }
+}
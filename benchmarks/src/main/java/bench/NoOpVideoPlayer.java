@@ -0,0 +1,115 @@
+package bench;
+
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.List;
+
+import services.primitives.BatchResult;
+import services.metrics.HostMetrics;
+import services.net.RmiTuning;
+import services.primitives.Command;
+import services.primitives.Cue;
+import services.primitives.MetricsSnapshot;
+import services.primitives.PlaybackListenerRemote;
+import services.primitives.PlaybackStatus;
+import services.primitives.PositionSample;
+import services.primitives.TimelineProgress;
+import services.primitives.VideoPlayerRemote;
+
+/**
+ * Headless {@link VideoPlayerRemote} that accepts every command and does nothing,
+ * so benchmarks measure only the RMI and serialization cost.
+ */
+public class NoOpVideoPlayer extends UnicastRemoteObject implements VideoPlayerRemote {
+
+    // Empty metrics, so getMetrics() returns a payload of realistic size
+    private final HostMetrics metrics = new HostMetrics();
+
+    public NoOpVideoPlayer() throws RemoteException {
+        super(0, RmiTuning.clientSocketFactory(), RmiTuning.serverSocketFactory());
+    }
+
+    @Override
+    public void playVideo() {
+    }
+
+    @Override
+    public void pauseVideo() {
+    }
+
+    @Override
+    public void restartVideo() {
+    }
+
+    @Override
+    public void selectVideo(String videoId) {
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public void playAt(long epochMillis) {
+    }
+
+    @Override
+    public void pauseAt(long epochMillis) {
+    }
+
+    @Override
+    public void restartAt(long epochMillis) {
+    }
+
+    @Override
+    public long uploadTimeline(long startEpochMillis, List<Cue> cues) {
+        return 1;
+    }
+
+    @Override
+    public long amendTimeline(long revision, int fromIndex, List<Cue> cues) {
+        return revision + 1;
+    }
+
+    @Override
+    public TimelineProgress getTimelineProgress() {
+        return new TimelineProgress(TimelineProgress.State.IDLE, 0, 0, 0, 0, -1, 0);
+    }
+
+    @Override
+    public void cancelTimeline() {
+    }
+
+    @Override
+    public BatchResult executeBatch(List<Command> commands) {
+        return new BatchResult(commands.size());
+    }
+
+    @Override
+    public void addPlaybackListener(PlaybackListenerRemote listener, String tag) {
+    }
+
+    @Override
+    public void removePlaybackListener(PlaybackListenerRemote listener) {
+    }
+
+    @Override
+    public MetricsSnapshot getMetrics() {
+        return metrics.snapshot();
+    }
+
+    @Override
+    public PositionSample samplePosition() {
+        return new PositionSample(null, PlaybackStatus.PLAYING, 0, System.currentTimeMillis(), -1, 1.0);
+    }
+
+    @Override
+    public long syncTo(String videoId, long positionMillis, long atEpochMillis) {
+        return 0;
+    }
+
+    @Override
+    public void resetRate() {
+    }
+}
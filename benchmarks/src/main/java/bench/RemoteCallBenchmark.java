@@ -0,0 +1,108 @@
+package bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import services.primitives.BatchResult;
+import services.primitives.Command;
+import services.primitives.MetricsSnapshot;
+import services.primitives.VideoPlayerRemote;
+
+/**
+ * Round trip of each {@link VideoPlayerRemote} method through a local registry.
+ * Sample mode reports p50/p99 latency; throughput mode reports calls per second.
+ * Run with {@code -t N} (or {@link ControlPathBenchmarks}) to add concurrent callers.
+ */
+@BenchmarkMode({ Mode.SampleTime, Mode.Throughput })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RemoteCallBenchmark {
+
+    private static final List<Command> CUE =
+            List.of(Command.selectVideo("video.mp4"), Command.seek(0), Command.play(), Command.pause());
+
+    @State(Scope.Benchmark)
+    public static class Host {
+        LocalHost host;
+
+        @Setup(Level.Trial)
+        public void start() throws Exception {
+            host = new LocalHost();
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() throws Exception {
+            host.close();
+        }
+    }
+
+    // Each client thread has its own stub, like separate controllers
+    @State(Scope.Thread)
+    public static class Client {
+        VideoPlayerRemote service;
+
+        @Setup(Level.Trial)
+        public void connect(Host host) throws Exception {
+            service = host.host.lookup();
+        }
+    }
+
+    @Benchmark
+    public void playVideo(Client client) throws Exception {
+        client.service.playVideo();
+    }
+
+    @Benchmark
+    public void pauseVideo(Client client) throws Exception {
+        client.service.pauseVideo();
+    }
+
+    @Benchmark
+    public void restartVideo(Client client) throws Exception {
+        client.service.restartVideo();
+    }
+
+    @Benchmark
+    public long currentTimeMillis(Client client) throws Exception {
+        return client.service.currentTimeMillis();
+    }
+
+    @Benchmark
+    public void playAt(Client client) throws Exception {
+        client.service.playAt(0);
+    }
+
+    @Benchmark
+    public BatchResult executeBatch(Client client) throws Exception {
+        return client.service.executeBatch(CUE);
+    }
+
+    @Benchmark
+    public MetricsSnapshot getMetrics(Client client) throws Exception {
+        return client.service.getMetrics();
+    }
+
+    // The same four steps as the batch cue, one round trip each
+    @Benchmark
+    public void singleCallCue(Client client) throws Exception {
+        client.service.executeBatch(List.of(CUE.get(0)));
+        client.service.executeBatch(List.of(CUE.get(1)));
+        client.service.playVideo();
+        client.service.pauseVideo();
+    }
+}
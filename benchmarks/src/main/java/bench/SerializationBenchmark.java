@@ -0,0 +1,78 @@
+package bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import services.primitives.BatchResult;
+import services.primitives.Command;
+import services.primitives.PlaybackEvent;
+import services.primitives.PlaybackStatus;
+
+/**
+ * Java serialization round trip of the objects sent on the control path,
+ * without the network.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    private ArrayList<Command> cue;
+    private BatchResult result;
+    private ArrayList<PlaybackEvent> events;
+
+    @Setup
+    public void prepare() {
+        cue = new ArrayList<>(List.of(Command.selectVideo("video.mp4"), Command.seek(0),
+                Command.play().withIdempotencyKey(Command.newIdempotencyKey()), Command.pause()));
+        result = new BatchResult(cue.size());
+        result.fail(0, "Video selection is not available on this host");
+        events = new ArrayList<>(List.of(
+                new PlaybackEvent(PlaybackEvent.STATUS, System.currentTimeMillis(), PlaybackStatus.PLAYING, null, 0),
+                new PlaybackEvent(PlaybackEvent.POSITION, System.currentTimeMillis(), null, null, 12_345)));
+    }
+
+    @Benchmark
+    public Object commandBatch() throws Exception {
+        return roundTrip(cue);
+    }
+
+    @Benchmark
+    public Object batchResult() throws Exception {
+        return roundTrip(result);
+    }
+
+    @Benchmark
+    public Object playbackEvents() throws Exception {
+        return roundTrip(events);
+    }
+
+    private static Object roundTrip(Object value) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return in.readObject();
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package bench.sim;
+
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import services.metrics.LatencyHistogram;
+import services.net.RmiTuning;
+import services.primitives.Command;
+import services.primitives.LatencySnapshot;
+import services.primitives.VideoPlayerRemote;
+
+/**
+ * Fires command storms at a fleet from many concurrent controllers and reports
+ * throughput, latency percentiles and error rates per operation.
+ * <p>
+ * Each controller thread looks up its own stubs and picks a random host and
+ * operation for every call. With {@code --rate} every controller paces itself and
+ * latency is measured from the intended send time, so a stalled host shows up in
+ * the tail instead of silently lowering the load.
+ * <p>
+ * Usage: LoadGenerator [--spawn=100 | --targets=localhost:21000-21099/sim,...]
+ * [--controllers=32] [--duration=30] [--warmup=5] [--rate=0] [--mix=play:30,pause:30,batch:15,select:10,time:10,metrics:5]
+ */
+public class LoadGenerator {
+
+    enum Operation { PLAY, PAUSE, BATCH, SELECT, TIME, SYNC, METRICS }
+
+    private static final long REPORT_INTERVAL_SECONDS = 5;
+
+    private final List<String> targets;
+    private final int controllers;
+    private final double ratePerController;
+    private final Operation[] mix;
+
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+    private final LongAdder[] successes = new LongAdder[Operation.values().length];
+    private final LongAdder[] errors = new LongAdder[Operation.values().length];
+    private volatile boolean measuring;
+    private volatile boolean running = true;
+
+    LoadGenerator(List<String> targets, int controllers, double ratePerController, Operation[] mix) {
+        this.targets = targets;
+        this.controllers = controllers;
+        this.ratePerController = ratePerController;
+        this.mix = mix;
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+            successes[i] = new LongAdder();
+            errors[i] = new LongAdder();
+        }
+    }
+
+    void run(long warmupSeconds, long durationSeconds) throws Exception {
+        CountDownLatch ready = new CountDownLatch(controllers);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < controllers; i++) {
+            Thread thread = new Thread(() -> control(ready), "controller-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+        ready.await();
+        System.out.printf("%d controllers connected to %d hosts, warming up for %d s...%n",
+                controllers, targets.size(), warmupSeconds);
+        TimeUnit.SECONDS.sleep(warmupSeconds);
+
+        measuring = true;
+        long begin = System.nanoTime();
+        long lastTotal = 0;
+        long end = begin + TimeUnit.SECONDS.toNanos(durationSeconds);
+        while (System.nanoTime() < end) {
+            TimeUnit.NANOSECONDS.sleep(Math.min(TimeUnit.SECONDS.toNanos(REPORT_INTERVAL_SECONDS), end - System.nanoTime()));
+            long total = 0;
+            long failed = 0;
+            for (int i = 0; i < successes.length; i++) {
+                total += successes[i].sum() + errors[i].sum();
+                failed += errors[i].sum();
+            }
+            System.out.printf("  %6.1f s  %10.0f ops/s  %d errors so far%n", (System.nanoTime() - begin) / 1e9,
+                    (total - lastTotal) / (double) REPORT_INTERVAL_SECONDS, failed);
+            lastTotal = total;
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        measuring = false;
+        running = false;
+        for (Thread thread : threads) thread.join(TimeUnit.SECONDS.toMillis(5));
+
+        report(seconds);
+    }
+
+    private void control(CountDownLatch ready) {
+        List<VideoPlayerRemote> stubs = new ArrayList<>();
+        try {
+            for (String target : targets) stubs.add(lookup(target));
+        } catch (Exception e) {
+            System.err.println(Thread.currentThread().getName() + " could not connect: " + e.getMessage());
+            return;
+        } finally {
+            ready.countDown();
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long intervalNanos = ratePerController > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / ratePerController) : 0;
+        long next = System.nanoTime();
+        while (running) {
+            if (intervalNanos > 0) {
+                next += intervalNanos;
+                long wait = next - System.nanoTime();
+                if (wait > 0) LockSupport.parkNanos(wait);
+            }
+            Operation operation = mix[random.nextInt(mix.length)];
+            VideoPlayerRemote stub = stubs.get(random.nextInt(stubs.size()));
+            // Paced runs measure from the intended start, so queueing behind a slow call counts
+            long start = intervalNanos > 0 ? next : System.nanoTime();
+            boolean ok;
+            try {
+                invoke(operation, stub, random);
+                ok = true;
+            } catch (Exception e) {
+                ok = false;
+            }
+            if (!measuring) continue;
+            int index = operation.ordinal();
+            latencies[index].record(System.nanoTime() - start);
+            (ok ? successes : errors)[index].increment();
+        }
+    }
+
+    private static void invoke(Operation operation, VideoPlayerRemote stub, ThreadLocalRandom random) throws Exception {
+        switch (operation) {
+            case PLAY:
+                stub.playVideo();
+                break;
+            case PAUSE:
+                stub.pauseVideo();
+                break;
+            case BATCH:
+                String video = SimulatedFleet.VIDEOS.get(random.nextInt(SimulatedFleet.VIDEOS.size()));
+                long key = Command.newIdempotencyKey();
+                stub.executeBatch(List.of(Command.selectVideo(video).withIdempotencyKey(key),
+                        Command.seek(0), Command.play()));
+                break;
+            case SELECT:
+                stub.selectVideo(SimulatedFleet.VIDEOS.get(random.nextInt(SimulatedFleet.VIDEOS.size())));
+                break;
+            case TIME:
+                stub.currentTimeMillis();
+                break;
+            case SYNC:
+                stub.playAt(System.currentTimeMillis() + 500);
+                break;
+            case METRICS:
+                stub.getMetrics();
+                break;
+        }
+    }
+
+    private void report(double seconds) {
+        System.out.printf("%nResults over %.1f s:%n", seconds);
+        System.out.printf("  %-8s %10s %10s %8s %9s %9s %9s %9s%n", "op", "ops/s", "calls", "err %",
+                "p50 us", "p99 us", "p99.9 us", "max us");
+        LatencySnapshot all = LatencySnapshot.empty();
+        long calls = 0;
+        long failed = 0;
+        for (Operation operation : Operation.values()) {
+            int index = operation.ordinal();
+            long ok = successes[index].sum();
+            long err = errors[index].sum();
+            if (ok + err == 0) continue;
+            LatencySnapshot latency = latencies[index].snapshot();
+            all = all.merge(latency);
+            calls += ok + err;
+            failed += err;
+            print(operation.name().toLowerCase(Locale.ROOT), ok + err, err, seconds, latency);
+        }
+        print("all", calls, failed, seconds, all);
+    }
+
+    private static void print(String name, long calls, long errors, double seconds, LatencySnapshot latency) {
+        System.out.printf("  %-8s %10.0f %10d %8.3f %9d %9d %9d %9d%n", name, calls / seconds, calls,
+                calls == 0 ? 0 : 100.0 * errors / calls, latency.getP50Micros(), latency.getP99Micros(),
+                latency.percentileMicros(0.999), latency.getMaxMicros());
+    }
+
+    private static VideoPlayerRemote lookup(String target) throws Exception {
+        int colon = target.lastIndexOf(':');
+        int slash = target.indexOf('/', colon);
+        Registry registry = LocateRegistry.getRegistry(target.substring(0, colon),
+                Integer.parseInt(target.substring(colon + 1, slash)), RmiTuning.clientSocketFactory());
+        return (VideoPlayerRemote) registry.lookup(target.substring(slash + 1));
+    }
+
+    // Expands "host:21000-21099/sim" into one address per port
+    static List<String> parseTargets(String spec) {
+        List<String> targets = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            part = part.trim();
+            int colon = part.lastIndexOf(':');
+            int slash = part.indexOf('/', colon);
+            String ports = part.substring(colon + 1, slash);
+            int dash = ports.indexOf('-');
+            int first = Integer.parseInt(dash < 0 ? ports : ports.substring(0, dash));
+            int last = dash < 0 ? first : Integer.parseInt(ports.substring(dash + 1));
+            for (int port = first; port <= last; port++) {
+                targets.add(part.substring(0, colon) + ":" + port + part.substring(slash));
+            }
+        }
+        return targets;
+    }
+
+    // "play:30,pause:30" becomes a lookup table drawn from uniformly
+    static Operation[] parseMix(String spec) {
+        List<Operation> table = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            String[] weight = part.trim().split(":");
+            Operation operation = Operation.valueOf(weight[0].trim().toUpperCase(Locale.ROOT));
+            int count = weight.length > 1 ? Integer.parseInt(weight[1].trim()) : 1;
+            for (int i = 0; i < count; i++) table.add(operation);
+        }
+        if (table.isEmpty()) throw new IllegalArgumentException("Empty operation mix");
+        return table.toArray(new Operation[0]);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int spawn = Integer.parseInt(SimulatedFleet.option(args, "spawn", "0"));
+        String targetSpec = SimulatedFleet.option(args, "targets", null);
+        int controllers = Integer.parseInt(SimulatedFleet.option(args, "controllers", "32"));
+        long duration = Long.parseLong(SimulatedFleet.option(args, "duration", "30"));
+        long warmup = Long.parseLong(SimulatedFleet.option(args, "warmup", "5"));
+        double rate = Double.parseDouble(SimulatedFleet.option(args, "rate", "0"));
+        Operation[] mix = parseMix(SimulatedFleet.option(args, "mix", "play:30,pause:30,batch:15,select:10,time:10,metrics:5"));
+
+        SimulatedFleet fleet = null;
+        List<String> targets;
+        if (spawn > 0) {
+            // Hosts in the same JVM share its CPU with the controllers; use a separate fleet process for clean numbers
+            fleet = new SimulatedFleet(spawn, Integer.parseInt(SimulatedFleet.option(args, "base-port", "21000")),
+                    50, Double.parseDouble(SimulatedFleet.option(args, "failure-rate", "0")));
+            targets = fleet.getAddresses();
+        } else if (targetSpec != null) {
+            targets = parseTargets(targetSpec);
+        } else {
+            System.err.println("Specify --spawn=<hosts> or --targets=<host:port[-port]/service,...>");
+            return;
+        }
+
+        try {
+            new LoadGenerator(targets, controllers, rate, mix).run(warmup, duration);
+        } finally {
+            if (fleet != null) fleet.close();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package bench.sim;
+
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import services.ScheduledCommandTimer;
+import services.net.RmiTuning;
+
+/**
+ * Many {@link SimulatedVideoPlayer}s in one JVM, each bound in its own registry
+ * on consecutive ports like separate machines would be.
+ * <p>
+ * Usage: SimulatedFleet [--hosts=100] [--base-port=21000] [--max-skew=50] [--failure-rate=0]
+ */
+public class SimulatedFleet implements AutoCloseable {
+
+    public static final String SERVICE_NAME = "sim";
+    public static final List<String> VIDEOS = List.of("loop-00.mp4", "loop-01.mp4", "loop-02.mp4", "loop-03.mp4",
+            "loop-04.mp4", "loop-05.mp4", "loop-06.mp4", "loop-07.mp4");
+
+    private static final long TICK_MILLIS = 250;
+
+    private final ScheduledExecutorService transitions;
+    private final ScheduledCommandTimer timer = new ScheduledCommandTimer();
+    private final List<Registry> registries = new ArrayList<>();
+    private final List<SimulatedVideoPlayer> players = new ArrayList<>();
+    private final List<String> addresses = new ArrayList<>();
+
+    /**
+     * @param maxSkewMillis Each host's clock is off by a random amount up to this, either way.
+     */
+    public SimulatedFleet(int hosts, int basePort, long maxSkewMillis, double failureRate) throws RemoteException {
+        AtomicInteger counter = new AtomicInteger();
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(
+                Math.max(2, Runtime.getRuntime().availableProcessors() / 2), runnable -> {
+                    Thread thread = new Thread(runnable, "sim-transition-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.setRemoveOnCancelPolicy(true);
+        transitions = executor;
+
+        for (int i = 0; i < hosts; i++) {
+            int port = basePort + i;
+            long skew = maxSkewMillis > 0 ? ThreadLocalRandom.current().nextLong(-maxSkewMillis, maxSkewMillis + 1) : 0;
+            Registry registry = LocateRegistry.createRegistry(port, RmiTuning.clientSocketFactory(), RmiTuning.serverSocketFactory());
+            SimulatedVideoPlayer player = new SimulatedVideoPlayer(transitions, timer, VIDEOS, skew, failureRate);
+            registry.rebind(SERVICE_NAME, player);
+            registries.add(registry);
+            players.add(player);
+            addresses.add("localhost:" + port + "/" + SERVICE_NAME);
+        }
+        transitions.scheduleAtFixedRate(() -> players.forEach(SimulatedVideoPlayer::tick),
+                TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return "hostname:port/service" of every simulated host.
+     */
+    public List<String> getAddresses() {
+        return addresses;
+    }
+
+    @Override
+    public void close() {
+        transitions.shutdownNow();
+        timer.shutdown();
+        for (SimulatedVideoPlayer player : players) {
+            player.shutdown();
+            unexport(player);
+        }
+        registries.forEach(SimulatedFleet::unexport);
+    }
+
+    private static void unexport(java.rmi.Remote object) {
+        try {
+            UnicastRemoteObject.unexportObject(object, true);
+        } catch (Exception e) {
+            // Already gone
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int hosts = Integer.parseInt(option(args, "hosts", "100"));
+        int basePort = Integer.parseInt(option(args, "base-port", "21000"));
+        long maxSkew = Long.parseLong(option(args, "max-skew", "50"));
+        double failureRate = Double.parseDouble(option(args, "failure-rate", "0"));
+
+        long begin = System.nanoTime();
+        SimulatedFleet fleet = new SimulatedFleet(hosts, basePort, maxSkew, failureRate);
+        System.out.printf("%d simulated hosts on ports %d-%d (service '%s') started in %d ms. Ctrl+C to stop.%n",
+                hosts, basePort, basePort + hosts - 1, SERVICE_NAME, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            fleet.close();
+            stopped.countDown();
+        }));
+        stopped.await();
+    }
+
+    // Reads --name=value, falling back to the default
+    static String option(String[] args, String name, String defaultValue) {
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) return arg.substring(prefix.length());
+        }
+        return defaultValue;
+    }
+}
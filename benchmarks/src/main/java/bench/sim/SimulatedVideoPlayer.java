@@ -0,0 +1,395 @@
+package bench.sim;
+
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import services.DriftCorrector;
+import services.PlaybackEventPublisher;
+import services.ScheduledCommandTimer;
+import services.TimelineEngine;
+import services.metrics.HostMetrics;
+import services.metrics.RemoteMethod;
+import services.net.RmiTuning;
+import services.primitives.BatchResult;
+import services.primitives.Command;
+import services.primitives.Cue;
+import services.primitives.MetricsSnapshot;
+import services.primitives.PlaybackListenerRemote;
+import services.primitives.PlaybackStatus;
+import services.primitives.PositionSample;
+import services.primitives.TimelineProgress;
+import services.primitives.VideoPlayerRemote;
+
+/**
+ * Headless {@link VideoPlayerRemote} that simulates a screen instead of driving a
+ * {@code MediaPlayer}. Commands change the playback state after a short random delay,
+ * modelled on what a real player takes to start, pause, seek or open a video, and
+ * the position advances with the clock while playing, a little off like a real
+ * decoder so sync groups have drift to correct. Status and position are pushed
+ * to listeners, and the metrics and timeline behave as on a real host.
+ * <p>
+ * Timers and transition threads are shared, so hundreds of simulated hosts fit in one JVM.
+ */
+public class SimulatedVideoPlayer extends UnicastRemoteObject implements VideoPlayerRemote {
+
+    // Ranges of the simulated player reaction times, in milliseconds
+    private static final int[] PLAY_DELAY = { 20, 60 };
+    private static final int[] PAUSE_DELAY = { 5, 25 };
+    private static final int[] SEEK_DELAY = { 10, 40 };
+    private static final int[] OPEN_DELAY = { 80, 300 };
+
+    private static final long VIDEO_DURATION_MILLIS = 60_000;
+    // Decoders run up to this far from nominal speed, in parts per million (200 ppm is 0.7 s an hour)
+    private static final int MAX_DECODER_ERROR_PPM = 200;
+
+    private final transient ScheduledExecutorService transitions;
+    private final transient ScheduledCommandTimer timer;
+    private final transient List<String> videos;
+    private final transient long clockSkewMillis;
+    private final transient double failureRate;
+    private final transient double decoderSpeed = 1 + ThreadLocalRandom.current()
+            .nextInt(-MAX_DECODER_ERROR_PPM, MAX_DECODER_ERROR_PPM + 1) / 1_000_000.0;
+    private final transient HostMetrics metrics = new HostMetrics();
+    private final transient PlaybackEventPublisher events = new PlaybackEventPublisher();
+    private final transient TimelineEngine timeline;
+
+    // Simulated state, guarded by this
+    private PlaybackStatus status = PlaybackStatus.READY;
+    private String videoId;
+    private long anchorPositionMillis;
+    private long anchorWallMillis;
+    private double rate = 1.0;
+    private long generation; // Bumped by every command; transitions of older commands are dropped
+
+    /**
+     * @param clockSkewMillis Offset added to the host clock, so clock synchronization has something to correct.
+     * @param failureRate Fraction of calls that fail with a {@link RemoteException}, 0 for none.
+     */
+    public SimulatedVideoPlayer(ScheduledExecutorService transitions, ScheduledCommandTimer timer, List<String> videos,
+                                long clockSkewMillis, double failureRate) throws RemoteException {
+        super(RmiTuning.EXPORT_PORT, RmiTuning.clientSocketFactory(), RmiTuning.serverSocketFactory());
+        this.transitions = transitions;
+        this.timer = timer;
+        this.videos = videos;
+        this.clockSkewMillis = clockSkewMillis;
+        this.failureRate = failureRate;
+        this.timeline = new TimelineEngine(timer, this::apply);
+        this.videoId = videos.get(0);
+        this.anchorWallMillis = System.currentTimeMillis();
+        events.updateVideo(videoId);
+        events.updateStatus(status);
+    }
+
+    /**
+     * Publishes the current position if playing; called periodically by the fleet.
+     */
+    public void tick() {
+        long position;
+        synchronized (this) {
+            if (status != PlaybackStatus.PLAYING) return;
+            position = positionAt(System.currentTimeMillis());
+        }
+        events.updatePosition(position);
+    }
+
+    public void shutdown() {
+        events.shutdown();
+        timeline.cancel();
+    }
+
+    @Override
+    public void playVideo() throws RemoteException {
+        long received = System.nanoTime();
+        maybeFail(RemoteMethod.PLAY_VIDEO);
+        apply(Command.play());
+        metrics.recordCall(RemoteMethod.PLAY_VIDEO, System.nanoTime() - received);
+    }
+
+    @Override
+    public void pauseVideo() throws RemoteException {
+        long received = System.nanoTime();
+        maybeFail(RemoteMethod.PAUSE_VIDEO);
+        apply(Command.pause());
+        metrics.recordCall(RemoteMethod.PAUSE_VIDEO, System.nanoTime() - received);
+    }
+
+    @Override
+    public void restartVideo() throws RemoteException {
+        long received = System.nanoTime();
+        maybeFail(RemoteMethod.RESTART_VIDEO);
+        apply(Command.restart());
+        metrics.recordCall(RemoteMethod.RESTART_VIDEO, System.nanoTime() - received);
+    }
+
+    @Override
+    public void selectVideo(String videoId) throws RemoteException {
+        long received = System.nanoTime();
+        maybeFail(RemoteMethod.SELECT_VIDEO);
+        if (!videos.contains(videoId)) {
+            metrics.recordError(RemoteMethod.SELECT_VIDEO);
+            throw new IllegalArgumentException("Unknown video: " + videoId);
+        }
+        apply(Command.selectVideo(videoId));
+        metrics.recordCall(RemoteMethod.SELECT_VIDEO, System.nanoTime() - received);
+    }
+
+    @Override
+    public long currentTimeMillis() throws RemoteException {
+        long received = System.nanoTime();
+        maybeFail(RemoteMethod.CURRENT_TIME_MILLIS);
+        long now = System.currentTimeMillis() + clockSkewMillis;
+        metrics.recordCall(RemoteMethod.CURRENT_TIME_MILLIS, System.nanoTime() - received);
+        return now;
+    }
+
+    @Override
+    public void playAt(long epochMillis) throws RemoteException {
+        long received = System.nanoTime();
+        maybeFail(RemoteMethod.PLAY_AT);
+        timer.schedule(epochMillis - clockSkewMillis, () -> apply(Command.play()));
+        metrics.recordCall(RemoteMethod.PLAY_AT, System.nanoTime() - received);
+    }
+
+    @Override
+    public void pauseAt(long epochMillis) throws RemoteException {
+        long received = System.nanoTime();
+        maybeFail(RemoteMethod.PAUSE_AT);
+        timer.schedule(epochMillis - clockSkewMillis, () -> apply(Command.pause()));
+        metrics.recordCall(RemoteMethod.PAUSE_AT, System.nanoTime() - received);
+    }
+
+    @Override
+    public void restartAt(long epochMillis) throws RemoteException {
+        long received = System.nanoTime();
+        maybeFail(RemoteMethod.RESTART_AT);
+        timer.schedule(epochMillis - clockSkewMillis, () -> apply(Command.restart()));
+        metrics.recordCall(RemoteMethod.RESTART_AT, System.nanoTime() - received);
+    }
+
+    @Override
+    public long uploadTimeline(long startEpochMillis, List<Cue> cues) throws RemoteException {
+        long received = System.nanoTime();
+        maybeFail(RemoteMethod.UPLOAD_TIMELINE);
+        long revision = timeline.upload(startEpochMillis - clockSkewMillis, cues);
+        metrics.recordCall(RemoteMethod.UPLOAD_TIMELINE, System.nanoTime() - received);
+        return revision;
+    }
+
+    @Override
+    public long amendTimeline(long revision, int fromIndex, List<Cue> cues) throws RemoteException {
+        long received = System.nanoTime();
+        maybeFail(RemoteMethod.AMEND_TIMELINE);
+        long amended = timeline.amend(revision, fromIndex, cues);
+        metrics.recordCall(RemoteMethod.AMEND_TIMELINE, System.nanoTime() - received);
+        return amended;
+    }
+
+    @Override
+    public TimelineProgress getTimelineProgress() throws RemoteException {
+        long received = System.nanoTime();
+        maybeFail(RemoteMethod.GET_TIMELINE_PROGRESS);
+        TimelineProgress progress = timeline.progress();
+        metrics.recordCall(RemoteMethod.GET_TIMELINE_PROGRESS, System.nanoTime() - received);
+        return progress;
+    }
+
+    @Override
+    public void cancelTimeline() throws RemoteException {
+        long received = System.nanoTime();
+        maybeFail(RemoteMethod.CANCEL_TIMELINE);
+        timeline.cancel();
+        metrics.recordCall(RemoteMethod.CANCEL_TIMELINE, System.nanoTime() - received);
+    }
+
+    @Override
+    public BatchResult executeBatch(List<Command> commands) throws RemoteException {
+        long received = System.nanoTime();
+        maybeFail(RemoteMethod.EXECUTE_BATCH);
+        BatchResult result = new BatchResult(commands.size());
+        for (int i = 0; i < commands.size(); i++) {
+            Command command = commands.get(i);
+            if (command == null) {
+                result.fail(i, "Null command");
+            } else if (command.getType() == Command.Type.SELECT_VIDEO && !videos.contains(command.getVideoId())) {
+                result.fail(i, "Unknown video: " + command.getVideoId());
+            } else {
+                apply(command);
+            }
+        }
+        if (result.getFailedCount() > 0) {
+            metrics.recordError(RemoteMethod.EXECUTE_BATCH);
+        }
+        metrics.recordCall(RemoteMethod.EXECUTE_BATCH, System.nanoTime() - received);
+        return result;
+    }
+
+    @Override
+    public void addPlaybackListener(PlaybackListenerRemote listener, String tag) throws RemoteException {
+        long received = System.nanoTime();
+        maybeFail(RemoteMethod.ADD_PLAYBACK_LISTENER);
+        events.addListener(listener, tag);
+        metrics.recordCall(RemoteMethod.ADD_PLAYBACK_LISTENER, System.nanoTime() - received);
+    }
+
+    @Override
+    public void removePlaybackListener(PlaybackListenerRemote listener) throws RemoteException {
+        long received = System.nanoTime();
+        events.removeListener(listener);
+        metrics.recordCall(RemoteMethod.REMOVE_PLAYBACK_LISTENER, System.nanoTime() - received);
+    }
+
+    @Override
+    public MetricsSnapshot getMetrics() throws RemoteException {
+        long received = System.nanoTime();
+        MetricsSnapshot snapshot = metrics.snapshot();
+        metrics.recordCall(RemoteMethod.GET_METRICS, System.nanoTime() - received);
+        return snapshot;
+    }
+
+    @Override
+    public PositionSample samplePosition() throws RemoteException {
+        long received = System.nanoTime();
+        maybeFail(RemoteMethod.SAMPLE_POSITION);
+        PositionSample sample;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            sample = new PositionSample(videoId, status, positionAt(now), now + clockSkewMillis,
+                    VIDEO_DURATION_MILLIS, rate);
+        }
+        metrics.recordCall(RemoteMethod.SAMPLE_POSITION, System.nanoTime() - received);
+        return sample;
+    }
+
+    // Same thresholds as a real host; seeks and rate changes take effect at once
+    @Override
+    public long syncTo(String videoId, long positionMillis, long atEpochMillis) throws RemoteException {
+        long received = System.nanoTime();
+        maybeFail(RemoteMethod.SYNC_TO);
+        long drift;
+        synchronized (this) {
+            if (status != PlaybackStatus.PLAYING || (videoId != null && !videoId.equals(this.videoId))) {
+                metrics.recordError(RemoteMethod.SYNC_TO);
+                throw new IllegalStateException("Not playing " + videoId);
+            }
+            long now = System.currentTimeMillis();
+            long expected = Math.floorMod(positionMillis + (now + clockSkewMillis - atEpochMillis), VIDEO_DURATION_MILLIS);
+            drift = DriftCorrector.drift(positionAt(now), expected, VIDEO_DURATION_MILLIS);
+            anchorPositionMillis = positionAt(now);
+            anchorWallMillis = now;
+            long magnitude = Math.abs(drift);
+            if (magnitude >= DriftCorrector.SEEK_THRESHOLD_MILLIS) {
+                anchorPositionMillis = expected;
+                rate = 1.0;
+            } else {
+                rate = magnitude >= DriftCorrector.NUDGE_THRESHOLD_MILLIS ? DriftCorrector.rateFor(drift) : 1.0;
+            }
+        }
+        metrics.recordCall(RemoteMethod.SYNC_TO, System.nanoTime() - received);
+        return drift;
+    }
+
+    @Override
+    public void resetRate() throws RemoteException {
+        long received = System.nanoTime();
+        maybeFail(RemoteMethod.RESET_RATE);
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            anchorPositionMillis = positionAt(now);
+            anchorWallMillis = now;
+            rate = 1.0;
+        }
+        metrics.recordCall(RemoteMethod.RESET_RATE, System.nanoTime() - received);
+    }
+
+    // Changes the simulated state the way the player would, after its reaction time
+    private void apply(Command command) {
+        long now = System.currentTimeMillis();
+        long commandGeneration;
+        PlaybackStatus before;
+        synchronized (this) {
+            commandGeneration = ++generation;
+            before = status;
+            // Freeze the position at the moment the command arrives
+            anchorPositionMillis = positionAt(now);
+            anchorWallMillis = now;
+            // Like the real host, anything but play drops a sync nudge
+            if (command.getType() != Command.Type.PLAY) rate = 1.0;
+        }
+        switch (command.getType()) {
+            case PLAY:
+                metrics.expectStatus(before, PlaybackStatus.PLAYING, Command.Type.PLAY);
+                later(PLAY_DELAY, commandGeneration, () -> setStatus(PlaybackStatus.PLAYING));
+                break;
+            case PAUSE:
+                metrics.expectStatus(before, PlaybackStatus.PAUSED, Command.Type.PAUSE);
+                later(PAUSE_DELAY, commandGeneration, () -> setStatus(PlaybackStatus.PAUSED));
+                break;
+            case RESTART:
+                metrics.expectStatus(before, PlaybackStatus.PLAYING, Command.Type.RESTART);
+                later(SEEK_DELAY, commandGeneration, () -> {
+                    seekTo(0);
+                    setStatus(PlaybackStatus.PLAYING);
+                });
+                break;
+            case SEEK:
+                later(SEEK_DELAY, commandGeneration, () -> seekTo(command.getPositionMillis()));
+                break;
+            case SELECT_VIDEO:
+                synchronized (this) {
+                    videoId = command.getVideoId();
+                    anchorPositionMillis = 0;
+                }
+                events.updateVideo(command.getVideoId());
+                setStatus(PlaybackStatus.UNKNOWN);
+                metrics.expectStatus(PlaybackStatus.UNKNOWN, PlaybackStatus.READY, Command.Type.SELECT_VIDEO);
+                later(OPEN_DELAY, commandGeneration, () -> setStatus(PlaybackStatus.READY));
+                break;
+        }
+    }
+
+    private void later(int[] delayRange, long commandGeneration, Runnable transition) {
+        long delay = ThreadLocalRandom.current().nextLong(delayRange[0], delayRange[1] + 1);
+        transitions.schedule(() -> {
+            synchronized (this) {
+                if (commandGeneration != generation) return;
+            }
+            transition.run();
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void setStatus(PlaybackStatus newStatus) {
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            anchorPositionMillis = positionAt(now);
+            anchorWallMillis = now;
+            status = newStatus;
+        }
+        metrics.onStatus(newStatus);
+        events.updateStatus(newStatus);
+    }
+
+    private void seekTo(long positionMillis) {
+        synchronized (this) {
+            anchorPositionMillis = positionMillis % VIDEO_DURATION_MILLIS;
+            anchorWallMillis = System.currentTimeMillis();
+        }
+        events.updatePosition(positionMillis);
+    }
+
+    // Caller holds the lock; videos loop like on the wall
+    private long positionAt(long now) {
+        if (status != PlaybackStatus.PLAYING) return anchorPositionMillis;
+        return (anchorPositionMillis + (long) ((now - anchorWallMillis) * rate * decoderSpeed)) % VIDEO_DURATION_MILLIS;
+    }
+
+    private void maybeFail(RemoteMethod method) throws RemoteException {
+        if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+            metrics.recordError(method);
+            throw new RemoteException("Simulated failure in " + method);
+        }
+    }
+}
@@ -1,13 +1,53 @@
 package com;
 
-import java.rmi.registry.LocateRegistry;
-import java.rmi.registry.Registry;
+import services.BroadcastService;
+import services.ClockSync;
+import services.ContentDistributor;
+import services.ControlScript;
+import services.DirectoryClient;
+import services.FastPathReceiver;
+import services.FastPathSender;
+import services.HostDiscovery;
+import services.PlaybackStatusListener;
+import services.StubManager;
+import services.SyncGroup;
+import services.TimelineParser;
 import services.primitives.VideoPlayerRemote; // Ensure this import path is correct
+import com.model.BroadcastResult;
+import com.model.Host;
+import com.model.HostStatus;
+import com.model.TransferResult;
+import services.primitives.Command;
+import services.primitives.CommandStats;
+import services.primitives.ContentDistributionRemote;
+import services.primitives.Cue;
+import services.primitives.LatencySnapshot;
+import services.primitives.MethodStats;
+import services.primitives.MetricsSnapshot;
+import services.primitives.RelayRemote;
+import services.primitives.RelayReport;
+import services.primitives.TimelineProgress;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.rmi.RemoteException;
 import java.rmi.NotBoundException;
+import java.rmi.server.UnicastRemoteObject;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * A command-line interface (CLI) application for controlling remote video players
@@ -18,21 +58,112 @@ public class ControlApp {
 
     // Stores active connections to remote video player services.
     // The key is a unique identifier (e.g., "hostname:port/serviceName")
-    // and the value is the remote service stub.
+    // and the value is a managed stub that survives reconnections.
     private static Map<String, VideoPlayerRemote> connectedMachines = new HashMap<>();
 
+    // Heartbeats, deadlines and automatic reconnection for every connected machine.
+    // Every (re)connection subscribes to the machine's playback state again.
+    private static StubManager stubManager = new StubManager(ControlApp::subscribeToStatus);
+
     // Scanner for reading user input from the console.
     private static Scanner scanner = new Scanner(System.in);
 
+    // Sends commands to many machines in parallel.
+    private static BroadcastService broadcastService = new BroadcastService();
+
+    // Estimates clock offsets so scheduled commands fire at the same instant on every host.
+    private static ClockSync clockSync = new ClockSync();
+
+    // How far in the future a synchronized command is scheduled, leaving room for the clock probes.
+    private static final long SYNC_LEAD_MILLIS = 1000;
+
+    // Receives playback state pushed by every connected machine.
+    private static PlaybackStatusListener statusListener;
+
+    // Live table of hosts announcing themselves on the LAN.
+    private static HostDiscovery discovery = new HostDiscovery();
+
+    // Hosts holding a lease in the directory, when one is set with directory.address.
+    private static DirectoryClient directory = DirectoryClient.fromProperties();
+
+    // Pushes video files to hosts, chunked, resumable and bandwidth-capped.
+    private static ContentDistributor contentDistributor = new ContentDistributor();
+
+    // Continuous drift correction across the selected machines, while running.
+    private static SyncGroup syncGroup;
+
+    // Sends play, pause and restart as datagrams to hosts that have the fast path; null if it is disabled.
+    private static FastPathSender fastPath;
+
+    /**
+     * Runs a control script, printing one result line per host and command.
+     * @return The process exit code: 0 if every command succeeded.
+     */
+    private static int runScript(String source) {
+        // No status subscriptions: a script only needs the command results
+        StubManager scriptStubs = new StubManager(null);
+        ControlScript script = new ControlScript(scriptStubs, clockSync, System.out,
+                BroadcastService.DEFAULT_PARALLELISM);
+        try (BufferedReader reader = source.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Path.of(source))) {
+            return script.run(reader) == 0 ? 0 : 1;
+        } catch (IOException e) {
+            System.err.println("Could not read script " + source + ": " + e.getMessage());
+            return 2;
+        } finally {
+            scriptStubs.shutdown();
+        }
+    }
+
     /**
      * Main method to start the RMI Video Player Control Application.
-     * Initializes the main menu loop.
-     * @param args Command line arguments (not used).
+     * Initializes the main menu loop, or runs a script non-interactively when
+     * started with {@code --script=<file>} ({@code --script=-} reads stdin).
+     * @param args Command line arguments.
      */
     public static void main(String[] args) {
+        StubManager.useCallTimeoutForResponses();
+        for (String arg : args) {
+            if (arg.startsWith("--script=")) {
+                System.exit(runScript(arg.substring("--script=".length())));
+            }
+        }
         System.out.println("Welcome to the RMI Video Player Control App!");
+        try {
+            statusListener = new PlaybackStatusListener();
+        } catch (RemoteException e) {
+            System.err.println("Could not export the status listener, live status is disabled: " + e.getMessage());
+        }
+        if (FastPathReceiver.ENABLED) {
+            try {
+                fastPath = new FastPathSender();
+            } catch (IOException e) {
+                System.err.println("Could not open the fast path, commands go over RMI only: " + e.getMessage());
+            }
+        }
+        if (directory != null) directory.watch(null);
+        try {
+            discovery.start();
+        } catch (Exception e) {
+            System.err.println("Could not join the discovery group, discovery is disabled: " + e.getMessage());
+        }
         mainMenu(); // Start the main interactive menu
         scanner.close(); // Close the scanner when the application exits
+        discovery.stop();
+        if (directory != null) directory.close();
+        if (syncGroup != null) syncGroup.stop();
+        if (fastPath != null) fastPath.close();
+        broadcastService.shutdown();
+        contentDistributor.shutdown();
+        stubManager.shutdown();
+        if (statusListener != null) {
+            try {
+                UnicastRemoteObject.unexportObject(statusListener, true);
+            } catch (Exception e) {
+                System.err.println("Error unexporting the status listener: " + e.getMessage());
+            }
+        }
         System.out.println("Application exited. Goodbye!");
     }
 
@@ -44,7 +175,13 @@ public class ControlApp {
             System.out.println("\n--- Main Menu ---");
             System.out.println("1. Connect to a new RMI machine");
             System.out.println("2. Select and control an existing machine");
-            System.out.println("3. Exit");
+            System.out.println("3. Broadcast a command to several machines");
+            System.out.println("4. Show machine status");
+            System.out.println("5. Discover machines on the network");
+            System.out.println("6. Show machine metrics");
+            System.out.println("7. Distribute a video file");
+            System.out.println("8. Sync group (keep machines aligned)");
+            System.out.println("9. Exit");
             System.out.print("Enter your choice: ");
 
             String choice = scanner.nextLine().trim(); // Read user input and trim whitespace
@@ -57,9 +194,27 @@ public class ControlApp {
                     selectAndControlMachine();
                     break;
                 case "3":
+                    broadcastToMachines();
+                    break;
+                case "4":
+                    showMachineStatus();
+                    break;
+                case "5":
+                    discoverMachines();
+                    break;
+                case "6":
+                    showMachineMetrics();
+                    break;
+                case "7":
+                    distributeVideo();
+                    break;
+                case "8":
+                    manageSyncGroup();
+                    break;
+                case "9":
                     return; // Exit the main menu loop and terminate the application
                 default:
-                    System.out.println("Invalid choice. Please enter 1, 2, or 3.");
+                    System.out.println("Invalid choice. Please enter a number from 1 to 9.");
             }
         }
     }
@@ -99,13 +254,12 @@ public class ControlApp {
 
         try {
             System.out.println("Attempting to connect to RMI registry at " + hostname + ":" + port + "...");
-            Registry registry = LocateRegistry.getRegistry(hostname, port);
-            System.out.println("Looking up service '" + serviceName + "'...");
-            VideoPlayerRemote remoteService = (VideoPlayerRemote) registry.lookup(serviceName);
-
-            // Add the successfully connected service to our map
-            connectedMachines.put(machineIdentifier, remoteService);
+            VideoPlayerRemote service = stubManager.connect(hostname, port, serviceName);
+            connectedMachines.put(machineIdentifier, service);
             System.out.println("Successfully connected to RMI machine: " + machineIdentifier);
+            if (service instanceof RelayRemote) {
+                System.out.println("This is a relay with " + ((RelayRemote) service).getChildren().size() + " direct children.");
+            }
         } catch (RemoteException e) {
             System.err.println("Connection error: Could not reach RMI registry or remote object.");
             System.err.println("Details: " + e.getMessage());
@@ -121,6 +275,69 @@ public class ControlApp {
         }
     }
 
+    /**
+     * Asks a machine to push its playback state to us. Called by the stub manager
+     * after the first connection and after every reconnection.
+     */
+    private static void subscribeToStatus(String identifier, VideoPlayerRemote service) {
+        if (statusListener == null) return;
+        try {
+            service.addPlaybackListener(statusListener, identifier);
+        } catch (RemoteException e) {
+            System.err.println("Could not subscribe to the status of " + identifier + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Lists the machines announcing themselves on the LAN or listed in the directory
+     * and connects to all of those not connected yet. Registry lookups run in parallel.
+     */
+    private static void discoverMachines() {
+        List<Host> hosts = liveHosts();
+        if (hosts.isEmpty()) {
+            System.out.println("No machines have announced themselves yet.");
+            return;
+        }
+
+        System.out.println("\n--- Discovered Machines ---");
+        List<Host> newHosts = new ArrayList<>();
+        for (Host host : hosts) {
+            String identifier = HostDiscovery.identifier(host);
+            boolean connected = connectedMachines.containsKey(identifier);
+            System.out.printf("  %-40s %-20s video #%d %s%n", identifier, host.getName(),
+                    host.getIndiceVideo(), connected ? "(connected)" : "");
+            if (!connected) newHosts.add(host);
+        }
+        if (newHosts.isEmpty()) {
+            System.out.println("All discovered machines are already connected.");
+            return;
+        }
+
+        System.out.print("Connect to " + newHosts.size() + " new machine(s)? (y/n): ");
+        if (!scanner.nextLine().trim().equalsIgnoreCase("y")) {
+            return;
+        }
+
+        List<Future<VideoPlayerRemote>> lookups = new ArrayList<>();
+        for (Host host : newHosts) {
+            lookups.add(broadcastService.submit(() -> stubManager.connect(host.getHost(), host.getPort(), host.getService())));
+        }
+
+        int connected = 0;
+        for (int i = 0; i < newHosts.size(); i++) {
+            String identifier = HostDiscovery.identifier(newHosts.get(i));
+            try {
+                connectedMachines.put(identifier, lookups.get(i).get());
+                connected++;
+            } catch (ExecutionException e) {
+                System.err.println("Could not connect to " + identifier + ": " + e.getCause().getMessage());
+            } catch (Exception e) {
+                System.err.println("Could not connect to " + identifier + ": " + e.getMessage());
+            }
+        }
+        System.out.println("Connected to " + connected + " of " + newHosts.size() + " machine(s).");
+    }
+
     /**
      * Displays a list of currently connected RMI machines and allows the user
      * to select one to control. If no machines are connected, it informs the user.
@@ -135,7 +352,7 @@ public class ControlApp {
         int i = 1;
         // Display each connected machine with a corresponding number
         for (String identifier : connectedMachines.keySet()) {
-            System.out.println(i++ + ". " + identifier);
+            System.out.println(i++ + ". " + identifier + connectionNote(identifier));
         }
         System.out.println("0. Go back to Main Menu");
         System.out.print("Enter the number of the machine to control: ");
@@ -169,7 +386,7 @@ public class ControlApp {
 
     /**
      * Provides a menu for controlling a specific remote video player service.
-     * Allows sending play, pause, and restart commands.
+     * Allows sending play, pause, restart and video selection commands, and managing the host's timeline.
      * @param identifier The unique string identifier of the selected machine.
      * @param service The remote `VideoPlayerRemote` service stub.
      */
@@ -179,6 +396,11 @@ public class ControlApp {
             System.out.println("1. Play Video");
             System.out.println("2. Pause Video");
             System.out.println("3. Restart Video");
+            System.out.println("4. Select Video");
+            System.out.println("5. Upload Timeline");
+            System.out.println("6. Show Timeline Progress");
+            System.out.println("7. Amend Timeline");
+            System.out.println("8. Cancel Timeline");
             System.out.println("0. Go back to Select Machine Menu");
             System.out.print("Enter your command choice: ");
 
@@ -187,27 +409,78 @@ public class ControlApp {
             try {
                 switch (choice) {
                     case "1":
+                        if (relayed(identifier, service, Command.play())) break;
+                        if (sentFast(identifier, Command.Type.PLAY)) {
+                            System.out.println("Command sent: Play video on " + identifier + " (fast path)");
+                            break;
+                        }
                         service.playVideo();
                         System.out.println("Command sent: Play video on " + identifier);
                         break;
                     case "2":
+                        if (relayed(identifier, service, Command.pause())) break;
+                        if (sentFast(identifier, Command.Type.PAUSE)) {
+                            System.out.println("Command sent: Pause video on " + identifier + " (fast path)");
+                            break;
+                        }
                         service.pauseVideo();
                         System.out.println("Command sent: Pause video on " + identifier);
                         break;
                     case "3":
+                        if (relayed(identifier, service, Command.restart())) break;
+                        if (sentFast(identifier, Command.Type.RESTART)) {
+                            System.out.println("Command sent: Restart video on " + identifier + " (fast path)");
+                            break;
+                        }
                         service.restartVideo();
                         System.out.println("Command sent: Restart video on " + identifier);
                         break;
+                    case "4":
+                        System.out.print("Enter the video id or file name: ");
+                        String videoId = scanner.nextLine().trim();
+                        if (relayed(identifier, service, Command.selectVideo(videoId))) break;
+                        service.selectVideo(videoId);
+                        System.out.println("Command sent: Select video " + videoId + " on " + identifier);
+                        break;
+                    case "5": {
+                        List<Cue> cues = readTimeline();
+                        if (cues == null) break;
+                        // The host runs the timeline from its own clock, starting at the same local instant
+                        long startAt = System.currentTimeMillis() + SYNC_LEAD_MILLIS;
+                        long revision = service.uploadTimeline(startAt + clockSync.estimateOffset(service), cues);
+                        System.out.println("Timeline of " + cues.size() + " cue(s) uploaded to " + identifier + ", revision " + revision);
+                        break;
+                    }
+                    case "6":
+                        System.out.println(identifier + ": " + service.getTimelineProgress());
+                        break;
+                    case "7": {
+                        TimelineProgress progress = service.getTimelineProgress();
+                        System.out.println(identifier + ": " + progress);
+                        System.out.print("Replace cues from index (" + progress.getFiredCues() + " or later): ");
+                        int fromIndex = Integer.parseInt(scanner.nextLine().trim());
+                        List<Cue> cues = readTimeline();
+                        if (cues == null) break;
+                        long revision = service.amendTimeline(progress.getRevision(), fromIndex, cues);
+                        System.out.println("Timeline amended on " + identifier + ", revision " + revision);
+                        break;
+                    }
+                    case "8":
+                        service.cancelTimeline();
+                        System.out.println("Command sent: Cancel timeline on " + identifier);
+                        break;
                     case "0":
                         return; // Exit the control menu for this machine, go back to select machine menu
                     default:
-                        System.out.println("Invalid command choice. Please enter 0, 1, 2, or 3.");
+                        System.out.println("Invalid command choice. Please enter a number from 0 to 8.");
                 }
             } catch (RemoteException e) {
                 System.err.println("Communication error with " + identifier + ": " + e.getMessage());
-                System.err.println("The connection to this machine might have been lost. Removing it from the list.");
-                connectedMachines.remove(identifier); // Remove the broken connection
-                return; // Go back to the select machine menu as this connection is no longer valid
+                System.err.println("The machine will be reconnected automatically in the background.");
+                return; // Go back to the select machine menu
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                // The host rejected the command, e.g. an unknown video or a stale timeline revision
+                System.err.println("Rejected by " + identifier + ": " + e.getMessage());
             } catch (Exception e) {
                 // Catch any other unexpected exceptions during command execution
                 System.err.println("An unexpected error occurred while controlling " + identifier + ": " + e.getMessage());
@@ -215,4 +488,414 @@ public class ControlApp {
             }
         }
     }
+
+    /**
+     * Sends the command through a relay and prints how many hosts below it acknowledged it.
+     * @return False if the machine is not a relay and the command was not sent.
+     */
+    private static boolean relayed(String identifier, VideoPlayerRemote service, Command command) throws RemoteException {
+        if (!(service instanceof RelayRemote)) return false;
+        RelayReport report = ((RelayRemote) service).forward(List.of(command));
+        System.out.println(command.getType() + " relayed by " + identifier + ": " + report);
+        report.getFailures().forEach((host, error) -> System.err.println("  " + host + ": " + error));
+        return true;
+    }
+
+    /**
+     * @return The hosts heard on the LAN and those of the last directory listing, ordered by identifier.
+     */
+    private static List<Host> liveHosts() {
+        Map<String, Host> hosts = new TreeMap<>();
+        for (Host host : discovery.liveHosts()) {
+            hosts.put(HostDiscovery.identifier(host), host);
+        }
+        if (directory != null) {
+            for (Host host : directory.liveHosts()) {
+                hosts.putIfAbsent(HostDiscovery.identifier(host), host);
+            }
+        }
+        return new ArrayList<>(hosts.values());
+    }
+
+    /**
+     * Sends a transport command over the datagram fast path.
+     * @return False if the machine has no fast path or did not ack, so the command must go over RMI.
+     */
+    private static boolean sentFast(String identifier, Command.Type type) {
+        if (fastPath == null) return false;
+        return fastPath.send(FastPathSender.addressOf(identifier), FastPathSender.serviceOf(identifier), type, 0, 0).join();
+    }
+
+    /**
+     * Sends play, pause or restart to all connected machines, or to a subset chosen
+     * by number, in parallel. Synchronized commands are scheduled on each host at the
+     * same instant, corrected by the host's estimated clock offset. Prints the latency of each call and any failures.
+     */
+    private static void broadcastToMachines() {
+        if (connectedMachines.isEmpty()) {
+            System.out.println("No machines are currently connected. Please connect to a machine first (Option 1).");
+            return;
+        }
+
+        System.out.println("\n--- Broadcast Command ---");
+        Map<String, VideoPlayerRemote> targets = selectMachines();
+        if (targets.isEmpty()) {
+            System.out.println("No machines selected.");
+            return;
+        }
+
+        System.out.println("1. Play Video");
+        System.out.println("2. Pause Video");
+        System.out.println("3. Restart Video");
+        System.out.println("4. Synchronized Play (scheduled start)");
+        System.out.println("5. Synchronized Restart (scheduled start)");
+        System.out.println("6. Synchronized Timeline (scheduled start)");
+        System.out.print("Enter your command choice: ");
+
+        BroadcastService.RemoteCall call;
+        Command.Type fastType = null; // Transport commands try the fast path first
+        String commandName;
+        switch (scanner.nextLine().trim()) {
+            case "1":
+                call = VideoPlayerRemote::playVideo;
+                fastType = Command.Type.PLAY;
+                commandName = "Play";
+                break;
+            case "2":
+                call = VideoPlayerRemote::pauseVideo;
+                fastType = Command.Type.PAUSE;
+                commandName = "Pause";
+                break;
+            case "3":
+                call = VideoPlayerRemote::restartVideo;
+                fastType = Command.Type.RESTART;
+                commandName = "Restart";
+                break;
+            case "4": {
+                // Target instant in local clock, taken once the choice is in and translated per host by its estimated offset
+                long startAt = System.currentTimeMillis() + SYNC_LEAD_MILLIS;
+                call = service -> service.playAt(startAt + clockSync.estimateOffset(service));
+                commandName = "Synchronized play";
+                break;
+            }
+            case "5": {
+                long startAt = System.currentTimeMillis() + SYNC_LEAD_MILLIS;
+                call = service -> service.restartAt(startAt + clockSync.estimateOffset(service));
+                commandName = "Synchronized restart";
+                break;
+            }
+            case "6": {
+                List<Cue> cues = readTimeline();
+                if (cues == null) return;
+                // Taken after reading the file, which took a while
+                long timelineStart = System.currentTimeMillis() + SYNC_LEAD_MILLIS;
+                call = service -> service.uploadTimeline(timelineStart + clockSync.estimateOffset(service), cues);
+                commandName = "Synchronized timeline";
+                break;
+            }
+            default:
+                System.out.println("Invalid command choice. Please enter a number from 1 to 6.");
+                return;
+        }
+
+        long begin = System.nanoTime();
+        Map<String, VideoPlayerRemote> viaRmi = targets;
+        if (fastType != null && fastPath != null) {
+            viaRmi = broadcastFast(targets, fastType, begin);
+        }
+        List<BroadcastResult> results = broadcastService.broadcast(viaRmi, call);
+        double totalMillis = (System.nanoTime() - begin) / 1_000_000.0;
+
+        int failures = 0;
+        for (BroadcastResult result : results) {
+            if (result.isSuccess()) {
+                System.out.printf("  OK    %-40s %8.2f ms%n", result.getIdentifier(), result.getLatencyMillis());
+            } else {
+                failures++;
+                System.err.printf("  FAIL  %-40s %8.2f ms  %s%n", result.getIdentifier(),
+                        result.getLatencyMillis(), result.getError().getMessage());
+            }
+        }
+        System.out.printf("%s sent to %d machine(s) in %.2f ms, %d failure(s).%n",
+                commandName, targets.size(), totalMillis, failures);
+    }
+
+    /**
+     * Sends a transport command over the fast path and prints the machines that acked it.
+     * When {@code fastpath.group} is set and every connected machine is selected, one
+     * multicast datagram reaches them all; otherwise each machine gets its own. Relays
+     * have no fast path of their own.
+     * @return The machines that did not ack and still need the command over RMI.
+     */
+    private static Map<String, VideoPlayerRemote> broadcastFast(Map<String, VideoPlayerRemote> targets,
+                                                                Command.Type type, long begin) {
+        Map<String, VideoPlayerRemote> viaRmi = new LinkedHashMap<>();
+        Map<String, InetSocketAddress> addresses = new LinkedHashMap<>();
+        for (Map.Entry<String, VideoPlayerRemote> target : targets.entrySet()) {
+            if (target.getValue() instanceof RelayRemote) {
+                viaRmi.put(target.getKey(), target.getValue());
+            } else {
+                addresses.put(target.getKey(), FastPathSender.addressOf(target.getKey()));
+            }
+        }
+
+        if (FastPathReceiver.GROUP != null && targets.size() == connectedMachines.size()) {
+            InetSocketAddress group = new InetSocketAddress(FastPathReceiver.GROUP, FastPathReceiver.GROUP_PORT);
+            Set<InetSocketAddress> missing = fastPath.sendToGroup(group, Set.copyOf(addresses.values()), type, 0, 0).join();
+            double millis = (System.nanoTime() - begin) / 1_000_000.0;
+            for (Map.Entry<String, InetSocketAddress> address : addresses.entrySet()) {
+                if (missing.contains(address.getValue())) {
+                    viaRmi.put(address.getKey(), targets.get(address.getKey()));
+                } else {
+                    System.out.printf("  OK    %-40s %8.2f ms  (fast path, group)%n", address.getKey(), millis);
+                }
+            }
+            return viaRmi;
+        }
+
+        // Completion time of each ack, or -1 if the machine needs RMI
+        Map<String, CompletableFuture<Long>> acked = new LinkedHashMap<>();
+        for (Map.Entry<String, InetSocketAddress> address : addresses.entrySet()) {
+            acked.put(address.getKey(), fastPath.send(address.getValue(), FastPathSender.serviceOf(address.getKey()), type, 0, 0)
+                    .thenApply(ok -> ok ? System.nanoTime() : -1L));
+        }
+        for (Map.Entry<String, CompletableFuture<Long>> result : acked.entrySet()) {
+            long ackedAt = result.getValue().join();
+            if (ackedAt < 0) {
+                viaRmi.put(result.getKey(), targets.get(result.getKey()));
+            } else {
+                System.out.printf("  OK    %-40s %8.2f ms  (fast path)%n", result.getKey(), (ackedAt - begin) / 1_000_000.0);
+            }
+        }
+        return viaRmi;
+    }
+
+    /**
+     * Lists the connected machines and reads a selection of them by number.
+     * @return The chosen machines, all of them if the input is empty.
+     */
+    private static Map<String, VideoPlayerRemote> selectMachines() {
+        String[] identifiers = connectedMachines.keySet().toArray(new String[0]);
+        for (int i = 0; i < identifiers.length; i++) {
+            System.out.println((i + 1) + ". " + identifiers[i]);
+        }
+        System.out.print("Enter machine numbers separated by commas (leave empty for all): ");
+        String selection = scanner.nextLine().trim();
+
+        Map<String, VideoPlayerRemote> targets = new LinkedHashMap<>();
+        if (selection.isEmpty()) {
+            targets.putAll(connectedMachines);
+        } else {
+            for (String part : selection.split(",")) {
+                try {
+                    int index = Integer.parseInt(part.trim());
+                    if (index < 1 || index > identifiers.length) {
+                        System.out.println("Ignoring invalid machine number: " + index);
+                        continue;
+                    }
+                    targets.put(identifiers[index - 1], connectedMachines.get(identifiers[index - 1]));
+                } catch (NumberFormatException e) {
+                    System.out.println("Ignoring invalid input: " + part.trim());
+                }
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * Starts keeping the selected machines in step with the first of them, or, while
+     * a group is running, shows the drift last measured on each member and offers to stop it.
+     */
+    private static void manageSyncGroup() {
+        if (syncGroup != null) {
+            System.out.println("\n--- Sync Group ---");
+            System.out.println("Leader: " + syncGroup.getLeader() + "  " + syncGroup.getReference());
+            Map<String, String> errors = syncGroup.getErrors();
+            for (Map.Entry<String, Long> drift : syncGroup.getDrifts().entrySet()) {
+                String error = errors.get(drift.getKey());
+                System.out.printf("  %-40s %+6d ms%s%n", drift.getKey(), drift.getValue(),
+                        error != null ? "  (last correction failed: " + error + ")" : "");
+            }
+            System.out.print("Stop the sync group? (y/N): ");
+            if (scanner.nextLine().trim().equalsIgnoreCase("y")) {
+                syncGroup.stop();
+                syncGroup = null;
+                System.out.println("Sync group stopped.");
+            }
+            return;
+        }
+        if (connectedMachines.size() < 2) {
+            System.out.println("A sync group needs at least two connected machines.");
+            return;
+        }
+
+        System.out.println("\n--- Sync Group ---");
+        System.out.println("The first machine selected is the leader; the others follow it.");
+        Map<String, VideoPlayerRemote> members = selectMachines();
+        try {
+            syncGroup = new SyncGroup(members, clockSync, broadcastService);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+        syncGroup.start();
+        System.out.println("Sync group started with " + members.size() + " machines, led by " + syncGroup.getLeader()
+                + ". Choose option 8 again to see the drift.");
+    }
+
+    /**
+     * Pushes a local video file to the selected machines, in parallel and under the
+     * distribution bandwidth cap. Machines that already hold the file are skipped.
+     */
+    private static void distributeVideo() {
+        if (connectedMachines.isEmpty()) {
+            System.out.println("No machines are currently connected. Please connect to a machine first (Option 1).");
+            return;
+        }
+
+        System.out.println("\n--- Distribute Video ---");
+        System.out.print("Enter the path of the video file: ");
+        Path file = Path.of(scanner.nextLine().trim());
+        if (!Files.isRegularFile(file)) {
+            System.out.println("File not found: " + file.toAbsolutePath());
+            return;
+        }
+
+        Map<String, ContentDistributionRemote> targets = new LinkedHashMap<>();
+        for (String identifier : selectMachines().keySet()) {
+            try {
+                targets.put(identifier, stubManager.lookupContent(identifier));
+            } catch (RemoteException | NotBoundException e) {
+                System.err.println("Cannot distribute to " + identifier + ": " + e.getMessage());
+            }
+        }
+        if (targets.isEmpty()) {
+            System.out.println("No machines selected.");
+            return;
+        }
+
+        System.out.println("Sending " + file.getFileName() + " to " + targets.size() + " machine(s)...");
+        try {
+            int failures = 0;
+            for (TransferResult result : contentDistributor.distribute(file, targets)) {
+                if (!result.isSuccess()) {
+                    failures++;
+                    System.err.printf("  FAIL  %-40s %10d bytes  %s%n", result.getIdentifier(),
+                            result.getBytesSent(), result.getError().getMessage());
+                } else if (result.isSkipped()) {
+                    System.out.printf("  SKIP  %-40s already has this video%n", result.getIdentifier());
+                } else {
+                    System.out.printf("  OK    %-40s %10d bytes %10.0f ms%n", result.getIdentifier(),
+                            result.getBytesSent(), result.getElapsedMillis());
+                }
+            }
+            System.out.println("Distribution finished, " + failures + " failure(s).");
+        } catch (IOException e) {
+            System.err.println("Could not read " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Asks for a timeline file and parses it.
+     * @return The cues, or {@code null} if the file could not be read.
+     */
+    private static List<Cue> readTimeline() {
+        System.out.print("Enter the path of the timeline file: ");
+        Path file = Path.of(scanner.nextLine().trim());
+        try {
+            return TimelineParser.read(file);
+        } catch (IOException e) {
+            System.err.println("Could not read " + file + ": " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid timeline: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Prints the last playback state pushed by each connected machine.
+     * No remote calls are made: the state arrives through the status listener.
+     */
+    private static void showMachineStatus() {
+        if (connectedMachines.isEmpty()) {
+            System.out.println("No machines are currently connected. Please connect to a machine first (Option 1).");
+            return;
+        }
+        if (statusListener == null) {
+            System.out.println("Live status is not available.");
+            return;
+        }
+
+        System.out.println("\n--- Machine Status ---");
+        long now = System.currentTimeMillis();
+        for (String identifier : connectedMachines.keySet()) {
+            HostStatus status = statusListener.getStatus(identifier);
+            if (status == null) {
+                System.out.printf("  %-40s (no status received yet)%s%n", identifier, connectionNote(identifier));
+            } else {
+                System.out.printf("  %-40s %-8s %-30s %8.1f s  (updated %d ms ago)%s%n", identifier,
+                        status.getStatus(), status.getVideoId(), status.getPositionMillis() / 1000.0,
+                        now - status.getUpdatedAtMillis(), connectionNote(identifier));
+            }
+        }
+    }
+
+    // Suffix shown next to machines whose connection is being restored
+    private static String connectionNote(String identifier) {
+        StubManager.ManagedHost host = stubManager.getHost(identifier);
+        if (host == null || host.getState() == StubManager.State.CONNECTED) return "";
+        return " [" + host.getState() + ", " + host.getFailures() + " failed attempt(s)]";
+    }
+
+    /**
+     * Fetches the metrics of every connected machine in parallel and prints a
+     * line per machine, followed by latency percentiles aggregated over the fleet.
+     */
+    private static void showMachineMetrics() {
+        if (connectedMachines.isEmpty()) {
+            System.out.println("No machines are currently connected. Please connect to a machine first (Option 1).");
+            return;
+        }
+
+        List<String> identifiers = new ArrayList<>(connectedMachines.keySet());
+        List<Future<MetricsSnapshot>> requests = new ArrayList<>();
+        for (String identifier : identifiers) {
+            VideoPlayerRemote service = connectedMachines.get(identifier);
+            requests.add(broadcastService.submit(service::getMetrics));
+        }
+
+        System.out.println("\n--- Machine Metrics ---");
+        System.out.printf("  %-40s %8s %7s %14s %14s%n", "machine", "calls", "errors", "dispatch p99", "playing p99");
+        LatencySnapshot fleetDispatch = LatencySnapshot.empty();
+        LatencySnapshot fleetStateChange = LatencySnapshot.empty();
+        for (int i = 0; i < identifiers.size(); i++) {
+            try {
+                MetricsSnapshot metrics = requests.get(i).get();
+                long calls = 0;
+                long errors = 0;
+                for (MethodStats method : metrics.getMethods()) {
+                    calls += method.getCalls();
+                    errors += method.getErrors();
+                }
+                LatencySnapshot dispatch = LatencySnapshot.empty();
+                LatencySnapshot stateChange = LatencySnapshot.empty();
+                for (CommandStats command : metrics.getCommands()) {
+                    dispatch = dispatch.merge(command.getDispatch());
+                    stateChange = stateChange.merge(command.getStateChange());
+                }
+                fleetDispatch = fleetDispatch.merge(dispatch);
+                fleetStateChange = fleetStateChange.merge(stateChange);
+                System.out.printf("  %-40s %8d %7d %11d us %11d us%n", identifiers.get(i), calls, errors,
+                        dispatch.getP99Micros(), stateChange.getP99Micros());
+            } catch (ExecutionException e) {
+                System.err.printf("  %-40s unavailable: %s%n", identifiers.get(i), e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        System.out.printf("Fleet: receipt-to-dispatch p50 %d us, p99 %d us; dispatch-to-state p50 %d us, p99 %d us%n",
+                fleetDispatch.getP50Micros(), fleetDispatch.getP99Micros(),
+                fleetStateChange.getP50Micros(), fleetStateChange.getP99Micros());
+    }
 }
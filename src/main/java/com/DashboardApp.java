@@ -0,0 +1,56 @@
+package com;
+
+import com.controller.ControlController;
+import com.model.Host;
+
+import javafx.application.Application;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Scene;
+import javafx.stage.Stage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import services.StubManager;
+
+/**
+ * Graphical counterpart of {@link ControlApp}: a live dashboard of every host
+ * announcing itself on the LAN, plus those given with
+ * {@code --hosts=hostname:port/service,...}.
+ */
+public class DashboardApp extends Application {
+
+    @Override
+    public void start(Stage stage) throws IOException {
+        FXMLLoader loader = new FXMLLoader(DashboardApp.class.getResource("view/controller.fxml"));
+        stage.setScene(new Scene(loader.load(), 1280, 800));
+        stage.setTitle("Science Control");
+        stage.show();
+        loader.<ControlController>getController().start(stage, hosts(getParameters().getRaw()));
+    }
+
+    private static List<Host> hosts(List<String> args) {
+        List<Host> hosts = new ArrayList<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--hosts=")) continue;
+            for (String address : arg.substring("--hosts=".length()).split(",")) {
+                int colon = address.lastIndexOf(':');
+                int slash = address.indexOf('/', colon);
+                if (colon <= 0 || slash < 0) {
+                    System.err.println("Ignoring host, expected hostname:port/service: " + address);
+                    continue;
+                }
+                String service = address.substring(slash + 1);
+                hosts.add(new Host(service, address.substring(0, colon), service,
+                        Integer.parseInt(address.substring(colon + 1, slash)), 0));
+            }
+        }
+        return hosts;
+    }
+
+    public static void main(String[] args) {
+        StubManager.useCallTimeoutForResponses();
+        launch(args);
+    }
+}
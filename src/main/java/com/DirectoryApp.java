@@ -0,0 +1,42 @@
+package com;
+
+import com.model.HostOptions;
+
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.Properties;
+
+import services.DirectoryService;
+import services.HostBootstrap;
+import services.primitives.DirectoryRemote;
+
+/**
+ * Headless directory of live hosts (see {@link DirectoryService}). Hosts, relays
+ * and controllers started with {@code -Ddirectory.address=<hostname>:<port>}
+ * register with it or follow it.
+ * <p>
+ * Usage: DirectoryApp [--port=1099] [--config=file]
+ */
+public class DirectoryApp {
+
+    public static void main(String[] args) throws Exception {
+        Properties values = HostOptions.readValues(args);
+        int port = Integer.parseInt(values.getProperty("port", "1099").trim());
+
+        Registry registry = HostBootstrap.locateRegistry(port);
+        DirectoryService directory = new DirectoryService();
+        registry.rebind(DirectoryRemote.SERVICE_NAME, directory);
+        System.out.println("Directory listening at: [ rmi://localhost:" + port + "/" + DirectoryRemote.SERVICE_NAME + " ]");
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                registry.unbind(DirectoryRemote.SERVICE_NAME);
+                UnicastRemoteObject.unexportObject(directory, true);
+            } catch (Exception e) {
+                System.err.println("Error unbinding the directory: " + e.getMessage());
+            }
+            directory.shutdown();
+        }));
+        // The exported directory keeps the JVM running until it is stopped
+    }
+}
@@ -1,39 +1,95 @@
 package com;
 
+import com.controller.HostController;
+import com.model.Host;
+import com.model.HostOptions;
+
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.geometry.Rectangle2D;
 import javafx.scene.*;
 import javafx.stage.*;
+import services.HostBootstrap;
 
 import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+/**
+ * Video wall host. Without arguments it shows the setup form; with
+ * {@code --service=...} (see {@link HostOptions}) it starts straight into the
+ * video, binding the RMI service on a background thread while the UI is built.
+ * With {@code --players=...} one process drives several outputs, one window each.
+ */
 public class HostApp extends Application {
 
     private static Scene scene;
 
+    private HostOptions options;
+    private CompletableFuture<HostBootstrap> binding;
+
+    @Override
+    public void init() throws Exception {
+        options = HostOptions.parse(getParameters().getRaw().toArray(new String[0]));
+        if (options == null) return;
+
+        // Runs while start() builds the UI; the toolkit is up, so the service may already touch JavaFX classes
+        binding = CompletableFuture.supplyAsync(() -> {
+            try {
+                HostBootstrap bound = HostBootstrap.bind(options.getPlayers());
+                System.out.println("Startup: service bound after " + ManagementFactory.getRuntimeMXBean().getUptime() + " ms.");
+                return bound;
+            } catch (Exception e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+        });
+    }
+
     @Override
     public void start(Stage stage) throws IOException {
-        Rectangle2D screenBounds = Screen.getPrimary().getVisualBounds();
-        double width = screenBounds.getWidth();
-        double height = screenBounds.getHeight();
+        if (options == null) {
+            FXMLLoader loader = loader("host");
+            scene = show(stage, loader, Screen.getPrimary());
+            return;
+        }
+
+        // One window per player, each on its own screen where there are enough of them
+        List<Host> players = options.getPlayers();
+        List<Screen> screens = Screen.getScreens();
+        for (int i = 0; i < players.size(); i++) {
+            Host player = players.get(i);
+            int index = options.getScreen(player);
+            Stage window = i == 0 ? stage : new Stage();
+            if (players.size() > 1) window.setTitle(player.getName());
+
+            FXMLLoader loader = loader("host");
+            Scene playerScene = show(window, loader, index >= 0 && index < screens.size() ? screens.get(index) : Screen.getPrimary());
+            if (i == 0) scene = playerScene;
+            loader.<HostController>getController().startWith(window, options, player, binding);
+        }
+    }
 
-        scene = new Scene(loadFXML("src/main/java/com/view/host.fxml"), width, height);
-        stage.setScene(scene);
+    private static Scene show(Stage stage, FXMLLoader loader, Screen screen) throws IOException {
+        Rectangle2D screenBounds = screen.getVisualBounds();
+        Scene shown = new Scene(loader.load(), screenBounds.getWidth(), screenBounds.getHeight());
+        stage.setScene(shown);
+        stage.setX(screenBounds.getMinX());
+        stage.setY(screenBounds.getMinY());
         stage.show();
+        return shown;
     }
 
     static void setRoot(String fxml) throws IOException {
-        scene.setRoot(loadFXML(fxml));
+        scene.setRoot(loader(fxml).load());
     }
 
-    private static Parent loadFXML(String fxml) throws IOException {
-        File fxmlFile = new File(fxml);
-        FXMLLoader fxmlLoader = new FXMLLoader(fxmlFile.toURI().toURL());
-        return fxmlLoader.load();
+    // Views are packaged with the classes, so they load the same from the IDE, a jar or a jlink image
+    private static FXMLLoader loader(String fxml) {
+        return new FXMLLoader(HostApp.class.getResource("view/" + fxml + ".fxml"));
     }
 
     public static void main(String[] args) {
        launch(args);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,75 @@
+package com;
+
+import com.model.Host;
+import com.model.HostOptions;
+
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import services.DirectoryClient;
+import services.HostAnnouncer;
+import services.HostBootstrap;
+import services.RelayService;
+import services.StubManager;
+
+/**
+ * Headless relay for large fleets: binds a {@link RelayService} that forwards
+ * every command to its children, so a controller commands a whole floor with
+ * one call. Relays can be children of other relays.
+ * <p>
+ * Usage: RelayApp --service=floor1 [--port=1099] [--host=localhost] [--name=...]
+ * --children=host1:1099/wall1,host2:1099/wall2,... [--config=file]
+ * <p>
+ * The keys can also come from a properties file given with {@code --config}, as for the host.
+ */
+public class RelayApp {
+
+    public static void main(String[] args) throws Exception {
+        StubManager.useCallTimeoutForResponses();
+        Properties values = HostOptions.readValues(args);
+        String service = values.getProperty("service", "").trim();
+        String children = values.getProperty("children", "").trim();
+        if (service.isEmpty() || children.isEmpty()) {
+            System.err.println("Usage: RelayApp --service=<name> --children=<host:port/service,...> [--port=1099] [--config=<file>]");
+            System.exit(2);
+        }
+        int port = Integer.parseInt(values.getProperty("port", "1099").trim());
+        Host host = new Host(values.getProperty("name", service).trim(), values.getProperty("host", "localhost").trim(),
+                service, port, 0);
+
+        List<String> childList = Arrays.stream(children.split(",")).map(String::trim)
+                .filter(child -> !child.isEmpty()).toList();
+        Registry registry = HostBootstrap.locateRegistry(port);
+        RelayService relay = new RelayService(childList);
+        registry.rebind(service, relay);
+        relay.getMetricsRegistry().registerMBean(service);
+        System.out.println("Relay listening at: [ rmi://" + host.getHost() + ":" + port + "/" + service + " ] for "
+                + childList.size() + " children.");
+
+        HostAnnouncer announcer = new HostAnnouncer(host);
+        try {
+            announcer.start();
+        } catch (Exception e) {
+            // Discovery is a convenience; the relay stays reachable by address
+            System.err.println("Could not start discovery announcements: " + e.getMessage());
+        }
+        DirectoryClient directory = DirectoryClient.fromProperties();
+        if (directory != null) directory.register(host);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            announcer.stop();
+            if (directory != null) directory.close();
+            try {
+                registry.unbind(service);
+                UnicastRemoteObject.unexportObject(relay, true);
+            } catch (Exception e) {
+                System.err.println("Error unbinding relay " + service + ": " + e.getMessage());
+            }
+            relay.shutdown();
+        }));
+        // The exported relay keeps the JVM running until it is stopped
+    }
+}
@@ -0,0 +1,469 @@
+package com.controller;
+
+import com.model.Host;
+import com.model.HostStatus;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.fxml.FXML;
+import javafx.fxml.Initializable;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.control.*;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.layout.*;
+import javafx.stage.Stage;
+import services.BroadcastService;
+import services.DirectoryClient;
+import services.HostDiscovery;
+import services.PlaybackStatusListener;
+import services.PreviewReceiver;
+import services.StubManager;
+import services.media.PreviewCodec;
+import services.primitives.PlaybackStatus;
+import services.primitives.PreviewFrame;
+import services.primitives.PreviewRemote;
+import services.primitives.VideoPlayerRemote;
+
+import java.net.URL;
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Live dashboard of the fleet: one card per host with its connection state,
+ * playback status and heartbeat latency, plus actions for the selected host.
+ * <p>
+ * Cards are cells of a virtualized list, so only the visible ones exist and
+ * they are recycled while scrolling. RMI threads never touch the scene: they
+ * only mark the dashboard dirty, and a pulse timer re-renders the visible
+ * cards at most once per frame. Connecting and sending commands run on the
+ * broadcast pool, never on the FX thread.
+ * <p>
+ * The selected host streams a live preview. Frames are decoded on the RMI
+ * thread into a reused pixel array and copied into a reused image on the next pulse.
+ */
+public class ControlController implements Initializable {
+    @FXML private ListView<Row> cardsGrid;
+    @FXML private Label fleetSummary;
+    @FXML private Label controlHeader;
+    @FXML private Label controlSubtitle;
+    @FXML private VBox actionsContainer;
+
+    // Latency and connection state are polled by StubManager, so they are re-rendered on this period
+    private static final long REFRESH_NANOS = 500_000_000L;
+    private static final long DISCOVERY_MILLIS = 1000;
+    private static final double CARD_HEIGHT = 64;
+    private static final int PREVIEW_FPS = 2;
+    private static final double PREVIEW_WIDTH = 360;
+
+    private final StubManager stubManager = new StubManager(this::subscribe);
+    private final BroadcastService broadcastService = new BroadcastService();
+    private final HostDiscovery discovery = new HostDiscovery();
+    private final DirectoryClient directory = DirectoryClient.fromProperties(); // Null without a directory
+    private PlaybackStatusListener statusListener;
+    private ScheduledExecutorService discoveryPoller;
+    private PreviewReceiver previewReceiver;
+
+    // Preview of the selected host: decoded on RMI threads, drawn on the FX thread
+    private final Object previewLock = new Object();
+    private final PreviewCodec previewCodec = new PreviewCodec(); // Guarded by previewLock
+    private int[] previewPixels = new int[0]; // Guarded by previewLock
+    private int previewWidth; // Guarded by previewLock
+    private int previewHeight; // Guarded by previewLock
+    private final AtomicBoolean previewDirty = new AtomicBoolean();
+    private volatile String previewTag;
+    private volatile PreviewRemote previewing;
+
+    // Written by RMI and background threads, drained on the FX thread
+    private final Map<String, Row> known = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Row> added = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+
+    // FX thread only
+    private final ObservableList<Row> rows = FXCollections.observableArrayList();
+    private final Set<HostCell> cells = Collections.newSetFromMap(new WeakHashMap<>());
+    private AnimationTimer pulse;
+    private final ImageView previewView = new ImageView();
+    private WritableImage previewImage;
+
+    /**
+     * A host shown on the dashboard; its state is read from the status listener and the stub manager.
+     */
+    static final class Row {
+        final String identifier;
+        final String name;
+        volatile VideoPlayerRemote stub;
+        volatile String error;
+        final AtomicBoolean connecting = new AtomicBoolean();
+
+        Row(String identifier, String name) {
+            this.identifier = identifier;
+            this.name = name;
+        }
+    }
+
+    @Override
+    public void initialize(URL location, ResourceBundle resources) {
+        cardsGrid.setItems(rows);
+        cardsGrid.setFixedCellSize(CARD_HEIGHT); // Lets the list lay out hundreds of rows without measuring them
+        cardsGrid.setCellFactory(list -> {
+            HostCell cell = new HostCell();
+            cells.add(cell);
+            return cell;
+        });
+        cardsGrid.getSelectionModel().selectedItemProperty().addListener((obs, oldRow, row) -> showActions(row));
+        previewView.setFitWidth(PREVIEW_WIDTH);
+        previewView.setPreserveRatio(true);
+
+        pulse = new AnimationTimer() {
+            private long lastRefresh;
+
+            @Override
+            public void handle(long now) {
+                Row row;
+                List<Row> batch = new ArrayList<>();
+                while ((row = added.poll()) != null) {
+                    batch.add(row);
+                }
+                if (!batch.isEmpty()) {
+                    rows.addAll(batch); // One list change however many hosts were found
+                    dirty.set(true);
+                }
+                if (previewDirty.getAndSet(false)) drawPreview();
+                if (now - lastRefresh >= REFRESH_NANOS) dirty.set(true);
+                if (!dirty.getAndSet(false)) return;
+                lastRefresh = now;
+                render();
+            }
+        };
+        pulse.start();
+    }
+
+    /**
+     * Starts discovering hosts and connects to the given ones right away.
+     * @param hosts Hosts to show besides those found on the LAN.
+     */
+    public void start(Stage stage, List<Host> hosts) {
+        stage.setOnCloseRequest(event -> shutdown());
+        try {
+            statusListener = new PlaybackStatusListener();
+            statusListener.setOnChange(tag -> dirty.set(true));
+        } catch (RemoteException e) {
+            System.err.println("Could not export the status listener, live status is disabled: " + e.getMessage());
+        }
+        try {
+            previewReceiver = new PreviewReceiver();
+            previewReceiver.setOnFrame(this::decodePreview);
+        } catch (RemoteException e) {
+            System.err.println("Could not export the preview receiver, previews are disabled: " + e.getMessage());
+        }
+        for (Host host : hosts) {
+            connect(host);
+        }
+        if (directory != null) {
+            // Pushed on every change, so new hosts show up without polling
+            directory.watch(() -> directory.liveHosts().forEach(this::connect));
+        }
+        try {
+            discovery.start();
+            discoveryPoller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "dashboard-discovery");
+                thread.setDaemon(true);
+                return thread;
+            });
+            discoveryPoller.scheduleWithFixedDelay(() -> discovery.liveHosts().forEach(this::connect),
+                    0, DISCOVERY_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            System.err.println("Could not join the discovery group, discovery is disabled: " + e.getMessage());
+        }
+    }
+
+    private void shutdown() {
+        pulse.stop();
+        if (discoveryPoller != null) discoveryPoller.shutdownNow();
+        discovery.stop();
+        if (directory != null) directory.close();
+        stopPreview();
+        broadcastService.shutdown();
+        stubManager.shutdown();
+        if (statusListener != null) {
+            try {
+                UnicastRemoteObject.unexportObject(statusListener, true);
+            } catch (Exception e) {
+                System.err.println("Error unexporting the status listener: " + e.getMessage());
+            }
+        }
+        if (previewReceiver != null) {
+            try {
+                UnicastRemoteObject.unexportObject(previewReceiver, true);
+            } catch (Exception e) {
+                System.err.println("Error unexporting the preview receiver: " + e.getMessage());
+            }
+        }
+        Platform.exit();
+    }
+
+    // Adds the card at once and connects in the background; the card shows the outcome.
+    // Hosts that could not be reached are tried again when they are announced again.
+    private void connect(Host host) {
+        String identifier = HostDiscovery.identifier(host);
+        Row row = known.computeIfAbsent(identifier, key -> {
+            Row created = new Row(key, host.getName());
+            added.add(created);
+            return created;
+        });
+        if (row.stub != null || !row.connecting.compareAndSet(false, true)) return;
+        broadcastService.submit(() -> {
+            try {
+                row.stub = stubManager.connect(host.getHost(), host.getPort(), host.getService());
+                row.error = null;
+            } catch (Exception e) {
+                row.error = e.getMessage();
+            } finally {
+                row.connecting.set(false);
+            }
+            dirty.set(true);
+            return null;
+        });
+    }
+
+    private void subscribe(String identifier, VideoPlayerRemote service) {
+        if (statusListener == null) return;
+        try {
+            service.addPlaybackListener(statusListener, identifier);
+        } catch (RemoteException e) {
+            System.err.println("Could not subscribe to the status of " + identifier + ": " + e.getMessage());
+        }
+    }
+
+    // Runs once per pulse at most, touching only the cells on screen
+    private void render() {
+        for (HostCell cell : cells) {
+            cell.render();
+        }
+        int online = 0;
+        for (Row row : rows) {
+            StubManager.ManagedHost managed = stubManager.getHost(row.identifier);
+            if (managed != null && managed.getState() == StubManager.State.CONNECTED) online++;
+        }
+        update(fleetSummary, rows.size() + " estações · " + online + " online");
+        Row selected = cardsGrid.getSelectionModel().getSelectedItem();
+        if (selected != null) update(controlSubtitle, describe(selected));
+    }
+
+    private void showActions(Row row) {
+        actionsContainer.getChildren().clear();
+        stopPreview();
+        if (row == null) {
+            controlHeader.setText("SELECIONE UMA ESTAÇÃO");
+            controlSubtitle.setText("Escolha uma estação para ver as ações disponíveis");
+            return;
+        }
+        controlHeader.setText(row.name != null ? row.name : row.identifier);
+        controlSubtitle.setText(describe(row));
+        startPreview(row);
+        actionsContainer.getChildren().addAll(previewView,
+                action("▶ Reproduzir", "play-button", row, VideoPlayerRemote::playVideo),
+                action("⏸ Pausar", "pause-button", row, VideoPlayerRemote::pauseVideo),
+                action("⟲ Reiniciar", "restart-button", row, VideoPlayerRemote::restartVideo));
+    }
+
+    private void startPreview(Row row) {
+        if (previewReceiver == null) return;
+        previewView.setImage(null);
+        previewTag = row.identifier;
+        broadcastService.submit(() -> {
+            try {
+                PreviewRemote preview = stubManager.lookupPreview(row.identifier);
+                preview.subscribe(previewReceiver, row.identifier, PREVIEW_FPS);
+                if (!row.identifier.equals(previewTag)) {
+                    preview.unsubscribe(previewReceiver); // Another host was selected meanwhile
+                } else {
+                    previewing = preview;
+                }
+            } catch (Exception e) {
+                // Hosts from before previews existed still show their status
+                System.err.println("No preview from " + row.identifier + ": " + e.getMessage());
+            }
+            return null;
+        });
+    }
+
+    private void stopPreview() {
+        PreviewRemote preview = previewing;
+        String tag = previewTag;
+        previewing = null;
+        previewTag = null;
+        if (tag != null && previewReceiver != null) previewReceiver.forget(tag);
+        if (preview == null) return;
+        broadcastService.submit(() -> {
+            try {
+                preview.unsubscribe(previewReceiver);
+            } catch (RemoteException e) {
+                // The host drops listeners it cannot reach
+            }
+            return null;
+        });
+    }
+
+    // RMI thread: only the selected host's frames are decoded
+    private void decodePreview(String tag) {
+        if (!tag.equals(previewTag)) return;
+        PreviewFrame frame = previewReceiver.getFrame(tag);
+        if (frame == null) return;
+        synchronized (previewLock) {
+            int size = frame.getWidth() * frame.getHeight();
+            if (previewPixels.length < size) previewPixels = new int[size];
+            try {
+                previewCodec.decode(frame, previewPixels);
+            } catch (IllegalArgumentException e) {
+                System.err.println("Dropping preview frame from " + tag + ": " + e.getMessage());
+                return;
+            }
+            previewWidth = frame.getWidth();
+            previewHeight = frame.getHeight();
+        }
+        previewDirty.set(true);
+    }
+
+    // FX thread, once per pulse at most
+    private void drawPreview() {
+        synchronized (previewLock) {
+            if (previewTag == null || previewWidth == 0) return;
+            if (previewImage == null || (int) previewImage.getWidth() != previewWidth
+                    || (int) previewImage.getHeight() != previewHeight) {
+                previewImage = new WritableImage(previewWidth, previewHeight);
+            }
+            previewImage.getPixelWriter().setPixels(0, 0, previewWidth, previewHeight,
+                    PixelFormat.getIntArgbInstance(), previewPixels, 0, previewWidth);
+        }
+        if (previewView.getImage() != previewImage) previewView.setImage(previewImage);
+    }
+
+    private Button action(String text, String style, Row row, BroadcastService.RemoteCall call) {
+        Button button = new Button(text);
+        button.getStyleClass().addAll("action-button", "control-button", style);
+        button.setOnAction(event -> {
+            VideoPlayerRemote stub = row.stub;
+            if (stub == null) {
+                controlSubtitle.setText("Estação não conectada");
+                return;
+            }
+            broadcastService.submit(() -> {
+                try {
+                    call.invoke(stub);
+                } catch (Exception e) {
+                    System.err.println("Command to " + row.identifier + " failed: " + e.getMessage());
+                    row.error = e.getMessage();
+                }
+                dirty.set(true);
+                return null;
+            });
+        });
+        return button;
+    }
+
+    private String describe(Row row) {
+        HostStatus status = statusListener != null ? statusListener.getStatus(row.identifier) : null;
+        String video = status != null && status.getVideoId() != null ? status.getVideoId() : "sem vídeo";
+        return row.identifier + " · " + video;
+    }
+
+    // Skips the layout pass when a label would get the same text again
+    private static void update(Labeled label, String text) {
+        if (!text.equals(label.getText())) label.setText(text);
+    }
+
+    private static String formatPosition(long millis) {
+        long seconds = millis / 1000;
+        return String.format("%d:%02d", seconds / 60, seconds % 60);
+    }
+
+    /**
+     * Card of one host. Instances are recycled by the list for whichever rows are visible.
+     */
+    private final class HostCell extends ListCell<Row> {
+        private final HBox card = new HBox(14);
+        private final Region dot = new Region();
+        private final Label name = new Label();
+        private final Label detail = new Label();
+        private final Label status = new Label();
+        private final Label latency = new Label();
+        private String dotState;
+        private String statusState;
+
+        HostCell() {
+            card.getStyleClass().add("host-card");
+            dot.getStyleClass().add("connection-dot");
+            name.getStyleClass().add("host-card-title");
+            detail.getStyleClass().add("host-card-detail");
+            status.getStyleClass().add("station-status");
+            latency.getStyleClass().add("connection-text");
+            VBox text = new VBox(2, name, detail);
+            HBox.setHgrow(text, Priority.ALWAYS);
+            card.setAlignment(Pos.CENTER_LEFT);
+            card.getChildren().addAll(dot, text, status, latency);
+            setContentDisplay(ContentDisplay.GRAPHIC_ONLY);
+        }
+
+        @Override
+        protected void updateItem(Row row, boolean empty) {
+            super.updateItem(row, empty);
+            setGraphic(empty || row == null ? null : card);
+            if (!empty && row != null) render();
+        }
+
+        void render() {
+            Row row = getItem();
+            if (row == null || isEmpty()) return;
+            StubManager.ManagedHost managed = stubManager.getHost(row.identifier);
+            HostStatus playback = statusListener != null ? statusListener.getStatus(row.identifier) : null;
+            boolean connected = managed != null && managed.getState() == StubManager.State.CONNECTED;
+
+            update(name, row.name != null ? row.name : row.identifier);
+            String video = playback != null && playback.getVideoId() != null ? playback.getVideoId() : "—";
+            String position = playback != null ? formatPosition(playback.getPositionMillis()) : "";
+            update(detail, row.error != null && !connected ? row.error : row.identifier + "  " + video + "  " + position);
+
+            String state;
+            if (connected) {
+                PlaybackStatus current = playback != null ? playback.getStatus() : PlaybackStatus.UNKNOWN;
+                state = current == PlaybackStatus.UNKNOWN ? "ONLINE" : current.name();
+            } else {
+                state = managed == null && row.error == null ? "CONECTANDO" : "OFFLINE";
+            }
+            update(status, state);
+            swapStyle(status, statusState, connected ? "online" : "offline");
+            statusState = connected ? "online" : "offline";
+            swapStyle(dot, dotState, connected ? "connected" : "disconnected");
+            dotState = connected ? "connected" : "disconnected";
+
+            long micros = managed != null ? managed.getLatencyMicros() : -1;
+            update(latency, micros < 0 ? "— ms" : String.format("%.1f ms", micros / 1000.0));
+        }
+
+        // Changes a state style class only when it differs, so unchanged cards do not restyle
+        private void swapStyle(Node node, String from, String to) {
+            if (to.equals(from)) return;
+            if (from != null) node.getStyleClass().remove(from);
+            node.getStyleClass().add(to);
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package com.controller;
 
 import com.model.Host;
+import com.model.HostOptions;
 
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert.AlertType;
@@ -10,17 +14,33 @@ import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.scene.media.*;
 import javafx.stage.Stage;
+import javafx.util.Duration;
+import services.DirectoryClient;
+import services.HostBootstrap;
+import services.HostDiscovery;
+import services.HostCommandPipeline;
 import services.VideoRemoteHostService;
+import services.journal.CommandJournal;
+import services.journal.JournalState;
+import services.media.MediaCatalog;
+import services.media.PlayerCache;
+import services.media.PreviewService;
+import services.primitives.Command;
+import services.primitives.DirectoryEntry;
+import services.primitives.MediaEntry;
 import javafx.scene.Node;
 import javafx.fxml.Initializable;
 
-import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URL;
-import java.rmi.Naming;
+import java.nio.file.Path;
 import java.rmi.RemoteException;
-import java.rmi.registry.LocateRegistry;
+import java.lang.management.ManagementFactory;
+import java.util.List;
 import java.util.ResourceBundle;
-import java.rmi.registry.Registry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class HostController implements Initializable {
     @FXML private TextField nameField;
@@ -29,11 +49,23 @@ public class HostController implements Initializable {
     @FXML private TextField portField;
     @FXML private VBox vboxContainer;
     @FXML private MediaView mediaView;
-    @FXML private ComboBox<String> videoComboBox;
+    @FXML private ComboBox<MediaEntry> videoComboBox;
 
     private int indiceVideo = 0;
+    private MediaEntry selectedVideo; // Identified by content, so catalog changes never shift it
+    private MediaCatalog catalog;
+    private PlayerCache playerCache; // Pre-rolled players, created with the first video view
     private MediaPlayer mediaPlayer; // Still need this locally to manage the player
     private VideoRemoteHostService videoRemoteService; // Reference to the actual service implementation
+    private HostBootstrap bootstrap; // Registry bindings, announcements and content receiver
+
+    // Fast start: set when the host was launched with options instead of the form
+    private HostOptions startOptions;
+    private Host startPlayer; // Which of the configured players this window shows
+    private boolean firstFrameReported;
+
+    // One catalog per process, shared by every player window
+    private static CompletableFuture<MediaCatalog> sharedCatalog;
 
     @Override
     public void initialize(URL location, ResourceBundle resources) {
@@ -53,10 +85,12 @@ public class HostController implements Initializable {
 
             Host host = new Host(name, hostname, serviceName, port, indiceVideo);
 
-            if(checkFields(host)) {
-                initHost(host);
-            } else {
+            if(!checkFields(host)) {
                 loadErroFields();
+            } else if(!checkID(host)) {
+                loadErroID(host.getService());
+            } else {
+                initHost(host);
             }
 
         } catch (NumberFormatException e) {
@@ -73,55 +107,134 @@ public class HostController implements Initializable {
     }
 
     public void init(Stage stage) {
-        stage.setOnCloseRequest(event-> {
-            Platform.exit();
-            if (mediaPlayer != null) {
-                mediaPlayer.stop();
-                mediaPlayer.dispose(); // Dispose on close
+        stage.setOnCloseRequest(event -> shutdown());
+    }
+
+    private void shutdown() {
+        Platform.exit();
+        if (catalog != null) {
+            catalog.close();
+        }
+        if (playerCache != null) {
+            playerCache.dispose(); // Disposes the current player too
+        }
+        try {
+            // Unbinding and unexporting is synchronous, so there is nothing left to wait for
+            if (bootstrap != null) {
+                System.out.println("Attempting to unbind RMI service...");
+                bootstrap.close();
             }
-            try{
-                // Unbind the service if it's still bound
-                if (videoRemoteService != null) { // You might need a way to check if it's bound
-                    // You'd need a method to unbind, or rely on JVM shutdown to clean up
-                    // For RMI, exiting the JVM usually unbinds the remote objects
-                    System.out.println("Attempting to unbind RMI service...");
-                    try {
-                        Registry registry = LocateRegistry.getRegistry(Integer.parseInt(portField.getText().trim()));
-                        registry.unbind(serviceField.getText().trim());
-                        System.out.println("Service unbound successfully.");
-                    } catch (Exception unbindEx) {
-                        System.err.println("Error unbinding service: " + unbindEx.getMessage());
-                    }
-                }
-                Thread.sleep(1000);
-                System.exit(0);
-            }catch(Exception e){
-                System.out.println("Erro ao encerrar: " + e.getMessage());
+            System.exit(0);
+        } catch (Exception e) {
+            System.out.println("Erro ao encerrar: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Fast start: shows the video as soon as both the service, bound in parallel
+     * by {@code HostApp}, and the media catalog are ready. The form is never shown.
+     * @param player The configured player shown in this window.
+     */
+    public void startWith(Stage stage, HostOptions options, Host player, CompletableFuture<HostBootstrap> binding) {
+        init(stage);
+        startOptions = options;
+        startPlayer = player;
+        Host host = player;
+        nameField.setText(host.getName());
+        hostField.setText(host.getHost());
+        serviceField.setText(host.getService());
+        portField.setText(String.valueOf(host.getPort()));
+
+        binding.whenComplete((bound, error) -> Platform.runLater(() -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                System.err.println("Erro ao inicializar host RMI: " + cause.getMessage());
+                Alert alert = loadErro();
+                alert.setTitle("Erro RMI");
+                alert.setHeaderText("Problema ao iniciar o serviço RMI.");
+                alert.setContentText("Pode ser que o Registry já esteja rodando na porta " + host.getPort() + " ou outro erro ocorreu. Detalhes: " + cause.getMessage());
+                alert.showAndWait();
+                return;
             }
-        });
+            attach(bound);
+            startVideoWhenReady();
+        }));
     }
 
-    private void initHost(Host host){
-        try {
-            // Create the service instance
-            videoRemoteService = new VideoRemoteHostService();
+    // Runs once both the binding and the catalog are done, whichever finishes last
+    private void startVideoWhenReady() {
+        if (bootstrap == null || catalog == null || mediaPlayer != null) return;
+        attachCatalog();
+        JournalState recovered = recoveredState();
+        String requested = recovered != null ? recovered.getVideoId() : startOptions.getVideo(startPlayer);
+        if (requested != null) {
+            MediaEntry video = catalog.find(requested);
+            if (video != null) {
+                videoComboBox.getSelectionModel().select(video);
+                selectedVideo = video;
+            } else {
+                System.err.println("Video not found: " + requested + ", starting with " + selectedVideo);
+            }
+        }
+        initViewVideo();
+        if (recovered != null) {
+            restore(recovered);
+        }
+    }
 
-            Registry registry;
-            try {
-                registry = LocateRegistry.getRegistry(host.getPort());
-                registry.list(); // Check if registry is active
-            } catch (java.rmi.ConnectException e) {
-                System.out.println("RMI Registry not found on port " + host.getPort() + ". Creating a new one...");
-                registry = LocateRegistry.createRegistry(host.getPort());
+    // What the journal says this player showed before the host went down; it wins over the configured video
+    private JournalState recoveredState() {
+        CommandJournal journal = videoRemoteService.getJournal();
+        if (journal == null) return null;
+        JournalState state = journal.getRecovered();
+        if (state.isEmpty() || catalog.find(state.getVideoId()) == null) return null;
+        return state;
+    }
+
+    // Seeks to where the journal left off and resumes playback if the video was playing
+    private void restore(JournalState state) {
+        MediaPlayer player = mediaPlayer;
+        whenReady(player, () -> {
+            long position = state.positionAt(System.currentTimeMillis());
+            boolean playing = state.isPlaying();
+            Duration total = player.getTotalDuration();
+            if (total != null && !total.isUnknown() && !total.isIndefinite() && position >= total.toMillis()) {
+                // The video ended while the host was down
+                position = (long) total.toMillis();
+                playing = false;
             }
+            HostCommandPipeline.Lane commands = videoRemoteService.getPipeline();
+            commands.submit(Command.seek(position));
+            if (playing) commands.submit(Command.play());
+            System.out.println("Restored from journal: " + state.getVideoId() + " at " + position + " ms, " + (playing ? "playing." : "paused."));
+        });
+    }
+
+    private void attach(HostBootstrap bound) {
+        bootstrap = bound;
+        videoRemoteService = bound.getService(serviceName());
+        videoRemoteService.setVideoSelector(this::selectVideo);
+        videoRemoteService.setVideoPreloader(videoId -> Platform.runLater(() -> preloadVideo(videoId)));
+    }
 
-            // Bind the service to the registry
-            registry.rebind(host.getService(), videoRemoteService);
-            System.out.println("VideoRemoteHostService bound to RMI Registry.");
+    // The player this window shows: the configured one on fast start, else the only one bound
+    private String serviceName() {
+        return startPlayer != null ? startPlayer.getService() : bootstrap.getHost().getService();
+    }
 
-            String rmi = "rmi://" + host.getHost() + ":" + host.getPort() + "/" + host.getService();
-            System.out.println("Hosting server listening at: [ " + rmi + " ]");
+    private void attachCatalog() {
+        try {
+            bootstrap.attachCatalog(catalog);
+        } catch (RemoteException e) {
+            // Playback does not depend on it; only pushing new videos is unavailable
+            System.err.println("Could not bind the content receiver: " + e.getMessage());
+        }
+    }
 
+    private void initHost(Host host){
+        try {
+            attach(HostBootstrap.bind(host));
+            attachCatalog();
         } catch (Exception e) {
             System.err.println("Erro ao inicializar host RMI: " + e.getMessage());
             Alert alert = loadErro();
@@ -140,88 +253,183 @@ public class HostController implements Initializable {
             System.err.println("vboxContainer is null. Cannot initialize video view.");
             return;
         }
-        vboxContainer.getChildren().clear();
 
-        File[] files = videoFolder();
-        if (files == null || files.length == 0 || indiceVideo < 0 || indiceVideo >= files.length) {
-            System.err.println("No video files found or invalid video index.");
+        MediaEntry video = selectedVideo;
+        if (catalog == null || video == null) {
+            System.err.println("No video files found or no video selected.");
             return;
         }
 
-        File videoFile = files[indiceVideo];
-        String videoUri = videoFile.toURI().toString();
-
-        Media media = new Media(videoUri);
-        if (mediaPlayer != null) {
-            mediaPlayer.stop();
-            mediaPlayer.dispose();
+        if (playerCache == null) {
+            // Windows of the same process split the memory budget for pre-rolled players
+            int players = startOptions != null ? startOptions.getPlayers().size() : 1;
+            playerCache = new PlayerCache(catalog, PlayerCache.DEFAULT_BUDGET_BYTES / players, PlayerCache.DEFAULT_PREROLL_AHEAD);
         }
-        mediaPlayer = new MediaPlayer(media);
-
-        if (mediaPlayer == null) {
-            System.err.println("MediaPlayer is null. Cannot initialize MediaView.");
-            return;
+        // Cached players are already open and pre-rolled, so switching is immediate
+        mediaPlayer = playerCache.acquire(video);
+
+        if (mediaView == null || !vboxContainer.getChildren().contains(mediaView)) {
+            vboxContainer.getChildren().clear();
+            mediaView = new MediaView();
+            mediaView.setFitWidth(700);
+            mediaView.setFitHeight(400);
+            mediaView.setPreserveRatio(true);
+            vboxContainer.getChildren().add(mediaView);
+            PreviewService preview = bootstrap != null ? bootstrap.getPreview(serviceName()) : null;
+            if (preview != null) preview.setSource(mediaView);
         }
-
-        mediaView = new MediaView(mediaPlayer); // Re-assigning mediaView is important
-
-        mediaView.setFitWidth(700);
-        mediaView.setFitHeight(400);
-        mediaView.setPreserveRatio(true);
-
-        vboxContainer.getChildren().add(mediaView);
-
-        mediaPlayer.setAutoPlay(false);
+        mediaView.setMediaPlayer(mediaPlayer);
 
         // --- Crucial step: Pass the MediaPlayer to the remote service ---
         if (videoRemoteService != null) {
             try {
-                videoRemoteService.setMediaPlayer(mediaPlayer);
+                videoRemoteService.setMediaPlayer(mediaPlayer, video.getId());
             } catch (RemoteException e) {
                 System.err.println("Failed to set MediaPlayer on remote service: " + e.getMessage());
             }
         }
+
+        playerCache.preloadAfter(video);
+
+        if (startOptions != null && !firstFrameReported) {
+            reportFirstFrame(mediaPlayer);
+        }
+    }
+
+    // Fast start: logs when the first frame of the video reaches the screen, measured from JVM start
+    private void reportFirstFrame(MediaPlayer player) {
+        firstFrameReported = true;
+        AnimationTimer nextPulse = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                stop();
+                System.out.println("Startup: first frame after " + ManagementFactory.getRuntimeMXBean().getUptime() + " ms.");
+                if (startOptions.isExitAfterFirstFrame()) {
+                    shutdown();
+                }
+            }
+        };
+        // A ready player shows its first frame on the next pulse
+        whenReady(player, nextPulse::start);
     }
 
-    private File[] videoFolder(){
-        File folder = new File("src/main/resources/video");
-        if (!folder.exists() || !folder.isDirectory()) {
-            System.err.println("Video folder not found or is not a directory: " + folder.getAbsolutePath());
-            return new File[0];
+    // Runs the action on the JavaFX Application Thread once the player has opened its media
+    private static void whenReady(MediaPlayer player, Runnable action) {
+        if (player.getStatus() != MediaPlayer.Status.UNKNOWN) {
+            action.run();
+            return;
         }
-        return folder.listFiles();
+        player.statusProperty().addListener(new ChangeListener<MediaPlayer.Status>() {
+            @Override
+            public void changed(ObservableValue<? extends MediaPlayer.Status> obs, MediaPlayer.Status oldStatus, MediaPlayer.Status newStatus) {
+                if (newStatus == MediaPlayer.Status.UNKNOWN) return;
+                player.statusProperty().removeListener(this);
+                action.run();
+            }
+        });
     }
 
-    private void loadComboBox(){
-        File[] files = videoFolder();
-        if (files == null || files.length == 0) {
-            System.err.println("No video files found in the specified directory.");
-            videoComboBox.setDisable(true);
+    // Called on the JavaFX Application Thread by SELECT_VIDEO remote commands
+    private void selectVideo(String videoId) {
+        MediaEntry video = catalog != null ? catalog.find(videoId) : null;
+        if (video == null) {
+            System.err.println("Video not found: " + videoId);
             return;
         }
+        // Goes through the combo box listener, which loads the video
+        videoComboBox.getSelectionModel().select(video);
+        if (!video.equals(selectedVideo)) {
+            selectVideo(video);
+        }
+    }
 
-        for (File file : files) {
-            videoComboBox.getItems().add(file.getName());
+    // Pre-rolls the next video of a running timeline so its switch is immediate
+    private void preloadVideo(String videoId) {
+        MediaEntry video = catalog != null ? catalog.find(videoId) : null;
+        if (video != null && playerCache != null) {
+            playerCache.preload(video);
         }
+    }
 
-        if (!videoComboBox.getItems().isEmpty()) {
-            videoComboBox.getSelectionModel().selectFirst();
-            indiceVideo = videoComboBox.getSelectionModel().getSelectedIndex();
-        } else {
-            indiceVideo = -1;
+    private void selectVideo(MediaEntry video) {
+        selectedVideo = video;
+        indiceVideo = videoComboBox.getItems().indexOf(video);
+        if (mediaPlayer != null) {
+            initViewVideo();
         }
+    }
 
+    private void loadComboBox(){
+        videoComboBox.setDisable(true);
         videoComboBox.valueProperty().addListener((obs, oldVal, newVal) -> {
-            if (newVal != null) {
-                indiceVideo = videoComboBox.getSelectionModel().getSelectedIndex();
+            if (newVal != null && !newVal.equals(selectedVideo)) {
                 // When a new video is selected, stop the current one and load the new one.
                 // This will also pass the new MediaPlayer to the remote service.
-                if (mediaPlayer != null) {
-                    mediaPlayer.stop();
-                }
-                // initViewVideo();
+                selectVideo(newVal);
             }
         });
+
+        loadCatalog().whenComplete((opened, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                System.err.println("Video folder not found or unreadable: " + Path.of(MediaCatalog.DEFAULT_FOLDER).toAbsolutePath() + " (" + cause.getMessage() + ")");
+                return;
+            }
+            opened.addListener(() -> Platform.runLater(this::refreshComboBox));
+            Platform.runLater(() -> {
+                catalog = opened;
+                refreshComboBox();
+                if (startOptions != null) startVideoWhenReady();
+            });
+        });
+    }
+
+    // The first scan hashes every file, so keep it off the JavaFX Application Thread
+    private static synchronized CompletableFuture<MediaCatalog> loadCatalog() {
+        if (sharedCatalog == null) {
+            Path folder = Path.of(MediaCatalog.DEFAULT_FOLDER);
+            sharedCatalog = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return MediaCatalog.open(folder);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, runnable -> {
+                Thread loader = new Thread(runnable, "media-catalog-loader");
+                loader.setDaemon(true);
+                loader.start();
+            });
+        }
+        return sharedCatalog;
+    }
+
+    // Reloads the video list, keeping the current selection by id
+    private void refreshComboBox() {
+        List<MediaEntry> entries = catalog.entries();
+        MediaEntry current = selectedVideo != null ? catalog.find(selectedVideo.getId()) : null;
+        if (current != null) {
+            selectedVideo = current;
+        }
+        videoComboBox.getItems().setAll(entries);
+        if (playerCache != null) {
+            playerCache.retain(entries);
+        }
+
+        if (entries.isEmpty()) {
+            System.err.println("No video files found in the specified directory.");
+            videoComboBox.setDisable(true);
+            selectedVideo = null;
+            indiceVideo = -1;
+            return;
+        }
+        videoComboBox.setDisable(false);
+        if (current != null) {
+            videoComboBox.getSelectionModel().select(current);
+        } else {
+            videoComboBox.getSelectionModel().selectFirst();
+        }
+        selectedVideo = videoComboBox.getSelectionModel().getSelectedItem();
+        indiceVideo = videoComboBox.getSelectionModel().getSelectedIndex();
     }
 
     private boolean checkFields(Host host) {
@@ -229,26 +437,25 @@ public class HostController implements Initializable {
         if (host.getName() == null || host.getName().trim().isEmpty()) return false;
         if (host.getService() == null || host.getService().trim().isEmpty()) return false;
         if (host.getPort() <= 0) return false;
-        if (indiceVideo == -1) return false;
+        if (selectedVideo == null) return false;
         return true;
     }
 
+    // Asks the directory, in one call, whether a live host already uses this address and service.
+    // Only live leases count, so the name of a host that crashed is free again once its lease expires.
     private boolean checkID(Host host){
-        String hostPort= "rmi://" + host.getHost() + ":" + host.getPort() + "/";
-        try{
-            String[] objetos = Naming.list(hostPort);
-            for(String obj : objetos){
-                String id = obj.substring(obj.lastIndexOf('/') + 1);
-                if(host.getService().equals(id)) return false;
+        DirectoryClient directory = DirectoryClient.fromProperties();
+        if (directory == null) return true; // Without a directory, binding replaces whatever was there
+        try {
+            String identifier = HostDiscovery.identifier(host);
+            for (DirectoryEntry entry : directory.fetch().getEntries()) {
+                if (entry.getIdentifier().equals(identifier)) return false;
             }
-        }catch (Exception e) {
-            System.err.println("Host Error while checking ID: "+e.getMessage());
-            Alert alert = loadErro();
-            alert.setTitle("Erro de Conexão RMI");
-            alert.setHeaderText("Não foi possível verificar o serviço RMI.");
-            alert.setContentText("Verifique o host e a porta, ou se o Registry está ativo. Erro: " + e.getMessage());
-            alert.showAndWait();
-            return false;
+        } catch (Exception e) {
+            // The directory is optional; the host still binds and registers once it is back
+            System.err.println("Host Error while checking ID: " + e.getMessage());
+        } finally {
+            directory.close();
         }
         return true;
     }
@@ -0,0 +1,38 @@
+package com.model;
+
+/**
+ * Outcome of a single remote call issued as part of a broadcast.
+ * Holds the identifier of the target machine, how long the call took
+ * and the exception it failed with, if any.
+ */
+public class BroadcastResult {
+    private final String identifier;
+    private final long latencyNanos;
+    private final Exception error;
+
+    public BroadcastResult(String identifier, long latencyNanos, Exception error) {
+        this.identifier = identifier;
+        this.latencyNanos = latencyNanos;
+        this.error = error;
+    }
+
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    public long getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    public double getLatencyMillis() {
+        return latencyNanos / 1_000_000.0;
+    }
+
+    public Exception getError() {
+        return error;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
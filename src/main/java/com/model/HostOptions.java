@@ -0,0 +1,141 @@
+package com.model;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Startup settings for a host launched without the setup form, read from the
+ * command line ({@code --service=wall1 --port=1099 ...}) and optionally from a
+ * properties file given with {@code --config=<file>} using the same keys.
+ * Command line values win over the file.
+ * <p>
+ * Keys: {@code name}, {@code host}, {@code service}, {@code port}, {@code video}
+ * (catalog id or file name of the first video) and {@code exit-after-first-frame},
+ * which makes a training run for the AppCDS archive.
+ * <p>
+ * A machine with several outputs lists one service name per player in
+ * {@code players} ({@code --players=left,right}) instead of {@code service}.
+ * Every player gets its own window on the screen of the same position, which
+ * {@code screen.<player>} overrides, and may start with its own
+ * {@code video.<player>} and display {@code name.<player>}.
+ */
+public class HostOptions {
+
+    private final List<Host> players;
+    private final Properties values;
+    private final boolean exitAfterFirstFrame;
+
+    public HostOptions(Host host, String video, boolean exitAfterFirstFrame) {
+        this(List.of(host), new Properties(), exitAfterFirstFrame);
+        if (video != null) values.setProperty("video", video);
+    }
+
+    private HostOptions(List<Host> players, Properties values, boolean exitAfterFirstFrame) {
+        this.players = players;
+        this.values = values;
+        this.exitAfterFirstFrame = exitAfterFirstFrame;
+    }
+
+    /**
+     * @return The options, or {@code null} if no service is configured and the form should be shown.
+     */
+    public static HostOptions parse(String[] args) throws IOException {
+        Properties values = readValues(args);
+
+        List<String> services = new ArrayList<>();
+        for (String service : values.getProperty("players", values.getProperty("service", "")).split(",")) {
+            service = service.trim();
+            if (service.isEmpty()) continue;
+            if (services.contains(service)) throw new IllegalArgumentException("Duplicate player: " + service);
+            services.add(service);
+        }
+        if (services.isEmpty()) return null;
+        int port;
+        try {
+            port = Integer.parseInt(values.getProperty("port", "1099").trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid port: " + values.getProperty("port"));
+        }
+
+        // All players share the registry, so they differ only in service and display name
+        String hostname = values.getProperty("host", "localhost").trim();
+        List<Host> players = new ArrayList<>(services.size());
+        for (String service : services) {
+            String name = values.getProperty("name." + service,
+                    services.size() == 1 ? values.getProperty("name", service) : service);
+            players.add(new Host(name.trim(), hostname, service, port, 0));
+            String screen = values.getProperty("screen." + service);
+            if (screen != null && !screen.trim().matches("\\d+")) {
+                throw new IllegalArgumentException("Invalid screen for " + service + ": " + screen);
+            }
+        }
+        return new HostOptions(Collections.unmodifiableList(players), values,
+                Boolean.parseBoolean(values.getProperty("exit-after-first-frame", "false")));
+    }
+
+    /**
+     * Reads {@code --key=value} arguments, and a bare {@code --key} as {@code true},
+     * on top of the properties file given with {@code --config=<file>}.
+     */
+    public static Properties readValues(String[] args) throws IOException {
+        Properties values = new Properties();
+        Properties overrides = new Properties();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) continue;
+            int equals = arg.indexOf('=');
+            String key = equals < 0 ? arg.substring(2) : arg.substring(2, equals);
+            String value = equals < 0 ? "true" : arg.substring(equals + 1);
+            if (key.equals("config")) {
+                try (Reader reader = Files.newBufferedReader(Path.of(value))) {
+                    values.load(reader);
+                }
+            } else {
+                overrides.setProperty(key, value);
+            }
+        }
+        values.putAll(overrides);
+        return values;
+    }
+
+    /**
+     * @return The first player, the only one unless several are configured.
+     */
+    public Host getHost() {
+        return players.get(0);
+    }
+
+    public List<Host> getPlayers() {
+        return players;
+    }
+
+    // Null to start with the first video of the catalog
+    public String getVideo() {
+        return values.getProperty("video");
+    }
+
+    /**
+     * @return The first video of the given player, or {@code null} to start with the first video of the catalog.
+     */
+    public String getVideo(Host player) {
+        return values.getProperty("video." + player.getService(), getVideo());
+    }
+
+    /**
+     * @return Index of the screen the player's window goes to, or -1 for the primary screen.
+     */
+    public int getScreen(Host player) {
+        String screen = values.getProperty("screen." + player.getService());
+        if (screen != null) return Integer.parseInt(screen.trim());
+        return players.size() > 1 ? players.indexOf(player) : -1;
+    }
+
+    public boolean isExitAfterFirstFrame() {
+        return exitAfterFirstFrame;
+    }
+}
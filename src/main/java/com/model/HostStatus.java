@@ -0,0 +1,40 @@
+package com.model;
+
+import services.primitives.PlaybackEvent;
+import services.primitives.PlaybackStatus;
+
+/**
+ * Last known playback state of a host, as pushed by its playback events.
+ */
+public class HostStatus {
+    private PlaybackStatus status = PlaybackStatus.UNKNOWN;
+    private String videoId;
+    private long positionMillis;
+    private long updatedAtMillis;
+
+    /**
+     * Applies the fields present in the event on top of the current state.
+     */
+    public synchronized void apply(PlaybackEvent event) {
+        if (event.has(PlaybackEvent.STATUS)) status = event.getStatus();
+        if (event.has(PlaybackEvent.VIDEO)) videoId = event.getVideoId();
+        if (event.has(PlaybackEvent.POSITION)) positionMillis = event.getPositionMillis();
+        updatedAtMillis = event.getTimestampMillis();
+    }
+
+    public synchronized PlaybackStatus getStatus() {
+        return status;
+    }
+
+    public synchronized String getVideoId() {
+        return videoId;
+    }
+
+    public synchronized long getPositionMillis() {
+        return positionMillis;
+    }
+
+    public synchronized long getUpdatedAtMillis() {
+        return updatedAtMillis;
+    }
+}
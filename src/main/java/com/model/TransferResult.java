@@ -0,0 +1,50 @@
+package com.model;
+
+/**
+ * Outcome of pushing a video file to one host: how many bytes were sent,
+ * whether the host already had the content, how long it took and the
+ * exception it failed with, if any.
+ */
+public class TransferResult {
+    private final String identifier;
+    private final long bytesSent;
+    private final boolean skipped;
+    private final long elapsedNanos;
+    private final Exception error;
+
+    public TransferResult(String identifier, long bytesSent, boolean skipped, long elapsedNanos, Exception error) {
+        this.identifier = identifier;
+        this.bytesSent = bytesSent;
+        this.skipped = skipped;
+        this.elapsedNanos = elapsedNanos;
+        this.error = error;
+    }
+
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    public boolean isSkipped() {
+        return skipped;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getElapsedMillis() {
+        return elapsedNanos / 1_000_000.0;
+    }
+
+    public Exception getError() {
+        return error;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
@@ -3,6 +3,7 @@ module com {
     requires javafx.fxml;
     requires javafx.media;
     requires java.rmi;
+    requires java.management;
     requires static lombok;
 
     opens com to javafx.fxml;
@@ -10,5 +11,7 @@ module com {
 
     exports com;
     exports com.controller to javafx.fxml;
-    exports services.primitives to java.rmi;
+    exports services.primitives to java.rmi, java.management;
+    exports services.metrics to java.management;
+    exports services.net to java.rmi;
 }
\ No newline at end of file
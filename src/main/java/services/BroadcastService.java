@@ -0,0 +1,107 @@
+package services;
+
+import com.model.BroadcastResult;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import services.primitives.VideoPlayerRemote;
+
+/**
+ * Sends the same command to many remote video players at once.
+ * Calls run on a bounded pool of daemon threads and are released together,
+ * so the first and last screen receive the command as close in time as possible.
+ */
+public class BroadcastService {
+
+    public static final int DEFAULT_PARALLELISM = 64;
+
+    /**
+     * A single blocking call against a remote video player stub.
+     */
+    @FunctionalInterface
+    public interface RemoteCall {
+        void invoke(VideoPlayerRemote service) throws RemoteException;
+    }
+
+    private final ExecutorService executor;
+
+    public BroadcastService() {
+        this(DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * @param parallelism Maximum number of remote calls in flight at the same time.
+     */
+    public BroadcastService(int parallelism) {
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "broadcast-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Invokes {@code call} on every target in parallel and waits for all of them to finish.
+     * @param targets Remote stubs keyed by their machine identifier.
+     * @param call The command to send.
+     * @return One result per target, in the iteration order of {@code targets}.
+     */
+    public List<BroadcastResult> broadcast(Map<String, VideoPlayerRemote> targets, RemoteCall call) {
+        // Every task waits on this latch so that all calls leave at the same moment
+        CountDownLatch start = new CountDownLatch(1);
+        List<String> identifiers = new ArrayList<>(targets.keySet());
+        List<Future<BroadcastResult>> futures = new ArrayList<>(identifiers.size());
+
+        for (String identifier : identifiers) {
+            VideoPlayerRemote service = targets.get(identifier);
+            futures.add(executor.submit(() -> {
+                start.await();
+                long begin = System.nanoTime();
+                try {
+                    call.invoke(service);
+                    return new BroadcastResult(identifier, System.nanoTime() - begin, null);
+                } catch (Exception e) {
+                    return new BroadcastResult(identifier, System.nanoTime() - begin, e);
+                }
+            }));
+        }
+        start.countDown();
+
+        List<BroadcastResult> results = new ArrayList<>(futures.size());
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                results.add(futures.get(i).get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                results.add(new BroadcastResult(identifiers.get(i), 0, e));
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                results.add(new BroadcastResult(identifiers.get(i), 0,
+                        cause instanceof Exception ? (Exception) cause : e));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Runs an arbitrary blocking task on the broadcast pool, e.g. a registry lookup.
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        return executor.submit(task);
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
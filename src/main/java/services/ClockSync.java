@@ -0,0 +1,50 @@
+package services;
+
+import java.rmi.RemoteException;
+
+import services.primitives.VideoPlayerRemote;
+
+/**
+ * Estimates the clock offset between this machine and a remote host using
+ * repeated round-trip probes. The sample with the smallest round trip is kept,
+ * since it bounds the error of the estimate to half of that round trip.
+ */
+public class ClockSync {
+
+    public static final int DEFAULT_PROBES = 8;
+
+    private final int probes;
+
+    public ClockSync() {
+        this(DEFAULT_PROBES);
+    }
+
+    public ClockSync(int probes) {
+        this.probes = probes;
+    }
+
+    /**
+     * Probes the host and returns how far its clock is ahead of the local one.
+     * A local instant {@code t} corresponds to {@code t + offset} on the host.
+     * @param service The remote host to probe.
+     * @return The estimated offset in milliseconds.
+     */
+    public long estimateOffset(VideoPlayerRemote service) throws RemoteException {
+        long bestRoundTrip = Long.MAX_VALUE;
+        long bestOffset = 0;
+
+        for (int i = 0; i < probes; i++) {
+            long sentNanos = System.nanoTime();
+            long sent = System.currentTimeMillis();
+            long remote = service.currentTimeMillis();
+            long roundTripNanos = System.nanoTime() - sentNanos;
+
+            if (roundTripNanos < bestRoundTrip) {
+                bestRoundTrip = roundTripNanos;
+                // Assume the host read its clock halfway through the round trip
+                bestOffset = remote - (sent + roundTripNanos / 2_000_000);
+            }
+        }
+        return bestOffset;
+    }
+}
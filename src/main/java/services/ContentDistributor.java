@@ -0,0 +1,153 @@
+package services;
+
+import com.model.TransferResult;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import services.media.MediaCatalog;
+import services.net.TokenBucket;
+import services.primitives.ContentDistributionRemote;
+
+/**
+ * Pushes a video file to many hosts in parallel.
+ * <p>
+ * The file is read through memory-mapped windows and sent in fixed-size chunks.
+ * Hosts that already hold the content are skipped, and a transfer that fails
+ * midway resumes from the last chunk the host received. All transfers share one
+ * token bucket, so a roll-out never uses more than the configured bandwidth.
+ */
+public class ContentDistributor {
+
+    public static final int DEFAULT_PARALLELISM = Integer.getInteger("distribution.parallelism", 8);
+    public static final int CHUNK_BYTES = Integer.getInteger("distribution.chunkKb", 1024) * 1024;
+    public static final long DEFAULT_MAX_BYTES_PER_SECOND = Long.getLong("distribution.maxMbps", 200) * 1_000_000 / 8;
+
+    // Attempts per host; each one resumes where the previous one stopped
+    private static final int MAX_ATTEMPTS = 3;
+
+    // Files are mapped in windows of this many chunks; keeps mappings small and supports files over 2 GB
+    private static final int CHUNKS_PER_WINDOW = 64;
+
+    private final ExecutorService executor;
+    private final TokenBucket bandwidth;
+
+    public ContentDistributor() {
+        this(DEFAULT_PARALLELISM, DEFAULT_MAX_BYTES_PER_SECOND);
+    }
+
+    /**
+     * @param parallelism Maximum number of hosts receiving at the same time.
+     * @param maxBytesPerSecond Total throughput across all hosts; 0 or less for no cap.
+     */
+    public ContentDistributor(int parallelism, long maxBytesPerSecond) {
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "distribution-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.bandwidth = new TokenBucket(maxBytesPerSecond);
+    }
+
+    /**
+     * Sends {@code file} to every target and waits for all transfers to finish.
+     * @param targets Content receivers keyed by their machine identifier.
+     * @return One result per target, in the iteration order of {@code targets}.
+     */
+    public List<TransferResult> distribute(Path file, Map<String, ContentDistributionRemote> targets) throws IOException {
+        String fileName = file.getFileName().toString();
+        String contentHash = MediaCatalog.hash(file);
+        long size = Files.size(file);
+
+        List<String> identifiers = new ArrayList<>(targets.keySet());
+        List<Future<TransferResult>> futures = new ArrayList<>(identifiers.size());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (String identifier : identifiers) {
+                ContentDistributionRemote receiver = targets.get(identifier);
+                futures.add(executor.submit(() -> send(identifier, receiver, channel, fileName, contentHash, size)));
+            }
+
+            List<TransferResult> results = new ArrayList<>(futures.size());
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    results.add(new TransferResult(identifiers.get(i), 0, false, 0, e));
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    results.add(new TransferResult(identifiers.get(i), 0, false, 0,
+                            cause instanceof Exception ? (Exception) cause : e));
+                }
+            }
+            return results;
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private TransferResult send(String identifier, ContentDistributionRemote receiver, FileChannel channel,
+                                String fileName, String contentHash, long size) {
+        long begin = System.nanoTime();
+        long sent = 0;
+        Exception lastError = null;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                if (receiver.hasContent(contentHash)) {
+                    return new TransferResult(identifier, sent, sent == 0, System.nanoTime() - begin, null);
+                }
+                long offset = receiver.beginTransfer(fileName, contentHash, size);
+                sent += sendChunks(receiver, channel, contentHash, offset, size);
+                receiver.completeTransfer(contentHash);
+                return new TransferResult(identifier, sent, false, System.nanoTime() - begin, null);
+            } catch (RemoteException e) {
+                // Connection trouble: the next attempt resumes from what the host already has
+                lastError = e;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new TransferResult(identifier, sent, false, System.nanoTime() - begin, e);
+            } catch (Exception e) {
+                // Rejected by the host (bad name, hash mismatch...): retrying will not help
+                return new TransferResult(identifier, sent, false, System.nanoTime() - begin, e);
+            }
+        }
+        return new TransferResult(identifier, sent, false, System.nanoTime() - begin, lastError);
+    }
+
+    // Returns the number of bytes sent
+    private long sendChunks(ContentDistributionRemote receiver, FileChannel channel, String contentHash,
+                            long offset, long size) throws IOException, InterruptedException {
+        long windowBytes = (long) CHUNK_BYTES * CHUNKS_PER_WINDOW;
+        byte[] chunk = new byte[CHUNK_BYTES];
+        long position = offset;
+        while (position < size) {
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(windowBytes, size - position));
+            while (window.hasRemaining()) {
+                int length = Math.min(chunk.length, window.remaining());
+                // The last chunk of a file is usually shorter
+                byte[] data = length == chunk.length ? chunk : new byte[length];
+                window.get(data, 0, length);
+                bandwidth.acquire(length);
+                receiver.writeChunk(contentHash, position, data);
+                position += length;
+            }
+        }
+        return position - offset;
+    }
+}
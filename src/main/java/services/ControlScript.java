@@ -0,0 +1,331 @@
+package services;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import services.primitives.BatchResult;
+import services.primitives.Command;
+import services.primitives.Cue;
+import services.primitives.VideoPlayerRemote;
+
+/**
+ * Runs control commands from a script or stdin, one per line, for automation
+ * and show-control systems:
+ * <pre>
+ * connect wall1 10.0.0.11:1099/wall1
+ * connect wall2 10.0.0.12:1099/wall1
+ * group left wall1 wall2
+ * select all intro.mp4
+ * playat all 1s            # synchronized start one second from now
+ * wait 5s
+ * pause left
+ * sync                     # wait until everything sent so far is acknowledged
+ * </pre>
+ * Commands: {@code connect <alias> <host:port/service>}, {@code group <name> <target>...},
+ * {@code play|pause|restart <target>}, {@code select <target> <video>},
+ * {@code seek <target> <position>}, {@code playat|pauseat|restartat <target> [lead]},
+ * {@code timeline <target> <file> [lead]}, {@code wait <duration>} and {@code sync}.
+ * A target is an alias, a group or {@code all}; durations take {@code ms}, {@code s}
+ * or {@code m} and default to milliseconds. {@code #} starts a comment.
+ * <p>
+ * Commands are pipelined: every host has its own queue, so the script moves on
+ * without waiting and a slow host only delays itself, while commands to the same
+ * host keep their order. {@code wait} only paces the script; {@code sync} is the
+ * barrier. Every outcome is printed as one tab-separated line:
+ * {@code seq, line, elapsed_ms, command, target, ok|error, call_us, message}.
+ */
+public class ControlScript {
+
+    public static final String ALL = "all";
+
+    // Commands queued for one host before the script waits for it
+    private static final int MAX_IN_FLIGHT = 256;
+    private static final long DEFAULT_LEAD_MILLIS = 1000;
+
+    /**
+     * One call against a connected host.
+     */
+    @FunctionalInterface
+    private interface HostCall {
+        String invoke(Target target) throws Exception;
+    }
+
+    // A connected host and its command queue
+    private static final class Target {
+        final String alias;
+        volatile VideoPlayerRemote stub;
+        volatile long offsetMillis;
+        final Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+        CompletableFuture<Void> tail = CompletableFuture.completedFuture(null); // Script thread only
+
+        Target(String alias) {
+            this.alias = alias;
+        }
+    }
+
+    private final StubManager stubManager;
+    private final ClockSync clockSync;
+    private final PrintStream out;
+    private final ExecutorService callers;
+
+    private final Map<String, Target> targets = new LinkedHashMap<>();
+    private final Map<String, List<Target>> groups = new HashMap<>();
+    private final AtomicInteger failures = new AtomicInteger();
+    private long startNanos;
+    private int sequence;
+
+    /**
+     * @param out Where results go, one line each; written by many threads.
+     */
+    public ControlScript(StubManager stubManager, ClockSync clockSync, PrintStream out, int parallelism) {
+        this.stubManager = stubManager;
+        this.clockSync = clockSync;
+        this.out = out;
+        AtomicInteger counter = new AtomicInteger();
+        this.callers = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "script-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Runs the script to its end and waits for every command it sent.
+     * @return The number of failed results.
+     */
+    public int run(BufferedReader reader) throws IOException {
+        startNanos = System.nanoTime();
+        out.println("# seq\tline\telapsed_ms\tcommand\ttarget\tstatus\tcall_us\tmessage");
+        String line;
+        int number = 0;
+        while ((line = reader.readLine()) != null) {
+            number++;
+            int comment = line.indexOf('#');
+            String text = (comment >= 0 ? line.substring(0, comment) : line).trim();
+            if (text.isEmpty()) continue;
+            String[] parts = text.split("\\s+");
+            String verb = parts[0].toLowerCase(Locale.ROOT);
+            int seq = ++sequence;
+            try {
+                execute(seq, number, verb, parts);
+            } catch (IllegalArgumentException e) {
+                report(seq, number, verb, "-", false, 0, e.getMessage());
+            }
+        }
+        sync();
+        callers.shutdownNow();
+        return failures.get();
+    }
+
+    private void execute(int seq, int line, String verb, String[] parts) {
+        switch (verb) {
+            case "connect":
+                connect(seq, line, argument(parts, 1, "an alias"), argument(parts, 2, "host:port/service"));
+                break;
+            case "group": {
+                String name = argument(parts, 1, "a group name");
+                if (name.equals(ALL) || targets.containsKey(name)) {
+                    throw new IllegalArgumentException("Group name already used: " + name);
+                }
+                Set<Target> members = new LinkedHashSet<>();
+                for (int i = 2; i < parts.length; i++) {
+                    members.addAll(resolve(parts[i]));
+                }
+                groups.put(name, new ArrayList<>(members));
+                report(seq, line, verb, name, true, 0, members.size() + " host(s)");
+                break;
+            }
+            case "play":
+            case "pause":
+            case "restart":
+                send(seq, line, verb, parts[parts.length > 1 ? 1 : 0], parts.length > 1,
+                        TimelineParser.command(verb.toUpperCase(Locale.ROOT), null));
+                break;
+            case "select":
+                send(seq, line, verb, argument(parts, 1, "a target"), true,
+                        Command.selectVideo(argument(parts, 2, "a video id or file name")));
+                break;
+            case "seek":
+                send(seq, line, verb, argument(parts, 1, "a target"), true,
+                        Command.seek(duration(argument(parts, 2, "a position"))));
+                break;
+            case "playat":
+            case "pauseat":
+            case "restartat":
+                schedule(seq, line, verb, argument(parts, 1, "a target"),
+                        parts.length > 2 ? duration(parts[2]) : DEFAULT_LEAD_MILLIS);
+                break;
+            case "timeline":
+                timeline(seq, line, argument(parts, 1, "a target"), Path.of(argument(parts, 2, "a timeline file")),
+                        parts.length > 3 ? duration(parts[3]) : DEFAULT_LEAD_MILLIS);
+                break;
+            case "wait":
+                try {
+                    Thread.sleep(duration(argument(parts, 1, "a duration")));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                break;
+            case "sync":
+                sync();
+                report(seq, line, verb, ALL, true, 0, "");
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown command: " + verb);
+        }
+    }
+
+    // Connecting is the first entry of the host's queue, so the script does not wait for it
+    private void connect(int seq, int line, String alias, String address) {
+        if (alias.equals(ALL) || targets.containsKey(alias) || groups.containsKey(alias)) {
+            throw new IllegalArgumentException("Alias already used: " + alias);
+        }
+        int colon = address.lastIndexOf(':');
+        int slash = address.indexOf('/', colon);
+        if (colon <= 0 || slash < 0) {
+            throw new IllegalArgumentException("Expected host:port/service: " + address);
+        }
+        String hostname = address.substring(0, colon);
+        int port = Integer.parseInt(address.substring(colon + 1, slash));
+        String service = address.substring(slash + 1);
+
+        Target target = new Target(alias);
+        targets.put(alias, target);
+        enqueue(target, seq, line, "connect", false, t -> {
+            t.stub = stubManager.connect(hostname, port, service);
+            // Scheduled commands are corrected by the host's clock offset
+            t.offsetMillis = clockSync.estimateOffset(t.stub);
+            return StubManager.identifier(hostname, port, service) + " offset " + t.offsetMillis + " ms";
+        });
+    }
+
+    // Transport commands run as a one-command batch, so rejections come back as results
+    private void send(int seq, int line, String verb, String name, boolean hasTarget, Command command) {
+        if (!hasTarget) throw new IllegalArgumentException(verb + " needs a target");
+        for (Target target : resolve(name)) {
+            enqueue(target, seq, line, verb, true, t -> {
+                BatchResult result = t.stub.executeBatch(List.of(command));
+                if (!result.isSuccess(0)) throw new IllegalStateException(result.getError(0));
+                return "";
+            });
+        }
+    }
+
+    // Every host gets the same local instant, translated into its own clock
+    private void schedule(int seq, int line, String verb, String name, long leadMillis) {
+        long at = System.currentTimeMillis() + leadMillis;
+        for (Target target : resolve(name)) {
+            enqueue(target, seq, line, verb, true, t -> {
+                long hostAt = at + t.offsetMillis;
+                switch (verb) {
+                    case "playat":
+                        t.stub.playAt(hostAt);
+                        break;
+                    case "pauseat":
+                        t.stub.pauseAt(hostAt);
+                        break;
+                    default:
+                        t.stub.restartAt(hostAt);
+                        break;
+                }
+                return "at " + hostAt;
+            });
+        }
+    }
+
+    private void timeline(int seq, int line, String name, Path file, long leadMillis) {
+        List<Cue> cues;
+        try {
+            cues = TimelineParser.read(file);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not read " + file + ": " + e.getMessage());
+        }
+        long start = System.currentTimeMillis() + leadMillis;
+        for (Target target : resolve(name)) {
+            enqueue(target, seq, line, "timeline", true,
+                    t -> "revision " + t.stub.uploadTimeline(start + t.offsetMillis, cues));
+        }
+    }
+
+    private void enqueue(Target target, int seq, int line, String verb, boolean needsStub, HostCall call) {
+        // Bounds the queue of a slow host instead of buffering the whole script
+        target.inFlight.acquireUninterruptibly();
+        target.tail = target.tail.thenRunAsync(() -> {
+            long begin = System.nanoTime();
+            try {
+                if (needsStub && target.stub == null) {
+                    report(seq, line, verb, target.alias, false, 0, "Not connected");
+                    return;
+                }
+                String message = call.invoke(target);
+                report(seq, line, verb, target.alias, true, (System.nanoTime() - begin) / 1000, message);
+            } catch (Exception e) {
+                report(seq, line, verb, target.alias, false, (System.nanoTime() - begin) / 1000,
+                        e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+            } finally {
+                target.inFlight.release();
+            }
+        }, callers);
+    }
+
+    // Waits until every queued command has completed
+    private void sync() {
+        List<CompletableFuture<Void>> tails = new ArrayList<>();
+        for (Target target : targets.values()) {
+            tails.add(target.tail);
+        }
+        CompletableFuture.allOf(tails.toArray(new CompletableFuture<?>[0])).join();
+    }
+
+    private List<Target> resolve(String name) {
+        if (name.equals(ALL)) return new ArrayList<>(targets.values());
+        List<Target> group = groups.get(name);
+        if (group != null) return group;
+        Target target = targets.get(name);
+        if (target == null) throw new IllegalArgumentException("Unknown target: " + name);
+        return List.of(target);
+    }
+
+    private void report(int seq, int line, String verb, String target, boolean ok, long callMicros, String message) {
+        if (!ok) failures.incrementAndGet();
+        String text = message == null ? "" : message.replace('\t', ' ').replace('\n', ' ');
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        // One println per result keeps lines from different threads whole
+        out.println(seq + "\t" + line + "\t" + elapsedMillis + "\t" + verb + "\t" + target + "\t"
+                + (ok ? "ok" : "error") + "\t" + callMicros + "\t" + text);
+    }
+
+    private static String argument(String[] parts, int index, String what) {
+        if (parts.length <= index) throw new IllegalArgumentException(parts[0] + " needs " + what);
+        return parts[index];
+    }
+
+    // "250ms", "5s", "1.5s", "2m" or plain milliseconds
+    static long duration(String text) {
+        String value = text.toLowerCase(Locale.ROOT);
+        try {
+            if (value.endsWith("ms")) return Math.round(Double.parseDouble(value.substring(0, value.length() - 2)));
+            if (value.endsWith("s")) return Math.round(Double.parseDouble(value.substring(0, value.length() - 1)) * 1000);
+            if (value.endsWith("m")) return Math.round(Double.parseDouble(value.substring(0, value.length() - 1)) * 60_000);
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid duration: " + text);
+        }
+    }
+}
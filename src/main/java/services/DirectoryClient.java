@@ -0,0 +1,226 @@
+package services;
+
+import com.model.Host;
+
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import services.net.RmiTuning;
+import services.primitives.DirectoryEntry;
+import services.primitives.DirectoryListenerRemote;
+import services.primitives.DirectoryListing;
+import services.primitives.DirectoryRemote;
+
+/**
+ * Talks to the directory for a host or a controller.
+ * <p>
+ * A host registers its players and the client renews their leases in the
+ * background, three times per lease, registering them again whenever a lease
+ * is found gone (the directory restarted or the host was unreachable for too
+ * long). A controller watches the directory: the listing is pushed on every
+ * change and checked once per round. Every round also subscribes again, which
+ * the directory ignores while the subscription holds and which restores one
+ * that a restarted directory lost or that was dropped after failed pushes.
+ * Nothing here blocks the caller; while the directory is unreachable, rounds
+ * keep retrying.
+ * <p>
+ * Configured with the {@code directory.address} ({@code hostname:port} of the
+ * registry the directory is bound in) and {@code directory.leaseMillis}
+ * (default 10000) system properties.
+ */
+public class DirectoryClient {
+
+    public static final String ADDRESS = System.getProperty("directory.address");
+    public static final long LEASE_MILLIS = Long.getLong("directory.leaseMillis", 10_000);
+
+    private final String hostname;
+    private final int port;
+    private final ScheduledExecutorService rounds;
+    private final Map<String, DirectoryEntry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Long> leases = new ConcurrentHashMap<>(); // Round thread only writes
+    private volatile DirectoryRemote directory;
+    private volatile DirectoryListing listing;
+    private volatile boolean watching;
+    private volatile Runnable onChange;
+
+    // Controllers only
+    private Listener listener;
+    private boolean unreachable; // Round thread only
+
+    /**
+     * @param address {@code hostname:port} of the registry the directory is bound in.
+     */
+    public DirectoryClient(String address) {
+        int colon = address.lastIndexOf(':');
+        this.hostname = address.substring(0, colon);
+        this.port = Integer.parseInt(address.substring(colon + 1));
+        this.rounds = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "directory-client");
+            thread.setDaemon(true);
+            return thread;
+        });
+        rounds.scheduleWithFixedDelay(this::round, LEASE_MILLIS / 3, LEASE_MILLIS / 3, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return A client of the directory set with {@code directory.address}, or {@code null} if there is none.
+     */
+    public static DirectoryClient fromProperties() {
+        return ADDRESS == null || ADDRESS.isBlank() ? null : new DirectoryClient(ADDRESS.trim());
+    }
+
+    public static DirectoryEntry entryOf(Host host) {
+        return new DirectoryEntry(host.getName(), host.getHost(), host.getPort(), host.getService(), host.getIndiceVideo());
+    }
+
+    public static Host hostOf(DirectoryEntry entry) {
+        return new Host(entry.getName(), entry.getHostname(), entry.getServiceName(), entry.getPort(), entry.getVideoIndex());
+    }
+
+    /**
+     * Lists the host in the directory for as long as this client runs. Returns right away.
+     */
+    public void register(Host host) {
+        DirectoryEntry entry = entryOf(host);
+        entries.put(entry.getIdentifier(), entry);
+        rounds.execute(this::round);
+    }
+
+    /**
+     * Follows the directory, calling {@code onChange}, if any, after every new listing,
+     * from the client thread or the RMI thread that received the listing.
+     */
+    public void watch(Runnable onChange) {
+        this.onChange = onChange;
+        this.watching = true;
+        rounds.execute(() -> {
+            try {
+                if (listener == null) listener = new Listener();
+            } catch (RemoteException e) {
+                // Still follows the directory, one round at a time
+                System.err.println("Could not export the directory listener: " + e.getMessage());
+            }
+            round();
+        });
+    }
+
+    /**
+     * @return The hosts of the last listing received, empty before the first one.
+     */
+    public List<Host> liveHosts() {
+        DirectoryListing current = listing;
+        List<Host> hosts = new ArrayList<>();
+        if (current == null) return hosts;
+        for (DirectoryEntry entry : current.getEntries()) {
+            hosts.add(hostOf(entry));
+        }
+        return hosts;
+    }
+
+    /**
+     * @return The listing asked for right now, in one call.
+     */
+    public DirectoryListing fetch() throws Exception {
+        return directory().list();
+    }
+
+    /**
+     * Cancels the leases, so the hosts leave the listing now rather than when they expire, and stops.
+     */
+    public void close() {
+        rounds.shutdownNow();
+        try {
+            rounds.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        DirectoryRemote current = directory;
+        if (current == null) return;
+        for (Long lease : leases.values()) {
+            try {
+                current.cancel(lease);
+            } catch (RemoteException e) {
+                // Expires on its own
+            }
+        }
+        if (listener != null) {
+            try {
+                current.unsubscribe(listener);
+            } catch (RemoteException e) {
+                // Dropped by the directory after a few failed pushes
+            }
+            try {
+                UnicastRemoteObject.unexportObject(listener, true);
+            } catch (Exception e) {
+                System.err.println("Error unexporting the directory listener: " + e.getMessage());
+            }
+        }
+    }
+
+    private DirectoryRemote directory() throws Exception {
+        DirectoryRemote current = directory;
+        if (current == null) {
+            current = (DirectoryRemote) LocateRegistry.getRegistry(hostname, port, RmiTuning.clientSocketFactory())
+                    .lookup(DirectoryRemote.SERVICE_NAME);
+            directory = current;
+        }
+        return current;
+    }
+
+    private void round() {
+        try {
+            DirectoryRemote current = directory();
+            for (DirectoryEntry entry : entries.values()) {
+                Long lease = leases.get(entry.getIdentifier());
+                if (lease == null || !current.renew(lease)) {
+                    leases.put(entry.getIdentifier(), current.register(entry, LEASE_MILLIS));
+                    if (lease != null) System.out.println("Lease of " + entry + " was lost, registered again.");
+                }
+            }
+            if (watching) {
+                if (listener != null) current.subscribe(listener);
+                accept(current.list());
+            }
+            if (unreachable) System.out.println("Directory at " + hostname + ":" + port + " is back.");
+            unreachable = false;
+        } catch (Exception e) {
+            if (!unreachable) {
+                System.err.println("Directory unreachable at " + hostname + ":" + port + ": " + e.getMessage());
+            }
+            unreachable = true;
+            // Looked up again next round, in case the directory was restarted
+            directory = null;
+        }
+    }
+
+    private void accept(DirectoryListing next) {
+        synchronized (this) {
+            DirectoryListing current = listing;
+            if (current != null && current.getIncarnation() == next.getIncarnation()
+                    && current.getRevision() >= next.getRevision()) return;
+            listing = next;
+        }
+        Runnable callback = onChange;
+        if (callback != null) callback.run();
+    }
+
+    private class Listener extends UnicastRemoteObject implements DirectoryListenerRemote {
+
+        Listener() throws RemoteException {
+            super(RmiTuning.EXPORT_PORT, RmiTuning.clientSocketFactory(), RmiTuning.serverSocketFactory());
+        }
+
+        @Override
+        public void onListing(DirectoryListing next) throws RemoteException {
+            accept(next);
+        }
+    }
+}
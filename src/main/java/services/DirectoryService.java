@@ -0,0 +1,243 @@
+package services;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.rmi.RemoteException;
+import java.rmi.server.RemoteServer;
+import java.rmi.server.ServerNotActiveException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import services.net.RmiTuning;
+import services.primitives.DirectoryEntry;
+import services.primitives.DirectoryListenerRemote;
+import services.primitives.DirectoryListing;
+import services.primitives.DirectoryRemote;
+
+/**
+ * The directory: a table of leased entries, swept for expired leases every
+ * {@link #SWEEP_INTERVAL_MILLIS}. The listing is rebuilt only when an entry is
+ * added or removed, never on renewals, so listing and renewing stay cheap with
+ * hundreds of hosts. Subscribers get each new listing from their own
+ * {@link PushSender}, only the latest one if they fall behind.
+ * <p>
+ * Leases are capped with the {@code directory.maxLeaseMillis} system property.
+ */
+public class DirectoryService extends UnicastRemoteObject implements DirectoryRemote {
+
+    public static final long MAX_LEASE_MILLIS = Long.getLong("directory.maxLeaseMillis", 60_000);
+    public static final long MIN_LEASE_MILLIS = 1000;
+    public static final long SWEEP_INTERVAL_MILLIS = 500;
+
+    // Random, so a restarted directory is told apart from the previous one
+    private final transient long incarnation = ThreadLocalRandom.current().nextLong();
+
+    // Guarded by this
+    private final transient Map<Long, Lease> leases = new HashMap<>();
+    private final transient Map<String, Long> leaseByIdentifier = new HashMap<>();
+    // Starts anywhere, so a lease of a previous incarnation is not taken for one of this
+    private transient long nextLeaseId = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE / 2);
+    private transient long revision;
+    private transient DirectoryListing listing = new DirectoryListing(incarnation, 0, List.of());
+
+    private final transient List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final transient ScheduledExecutorService sweeper;
+    private final transient ExecutorService senders;
+
+    private static final class Lease {
+        final DirectoryEntry entry;
+        final long durationNanos;
+        long expiresAtNanos;
+
+        Lease(DirectoryEntry entry, long durationNanos) {
+            this.entry = entry;
+            this.durationNanos = durationNanos;
+            this.expiresAtNanos = System.nanoTime() + durationNanos;
+        }
+    }
+
+    public DirectoryService() throws RemoteException {
+        super(RmiTuning.EXPORT_PORT, RmiTuning.clientSocketFactory(), RmiTuning.serverSocketFactory());
+        AtomicInteger counter = new AtomicInteger();
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "directory-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        senders = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "directory-sender-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep, SWEEP_INTERVAL_MILLIS, SWEEP_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public void shutdown() {
+        sweeper.shutdownNow();
+        senders.shutdownNow();
+        subscribers.clear();
+    }
+
+    @Override
+    public long register(DirectoryEntry entry, long leaseMillis) throws RemoteException {
+        if (entry == null || entry.getHostname() == null || entry.getServiceName() == null || entry.getPort() <= 0) {
+            throw new IllegalArgumentException("An entry needs a hostname, a port and a service name");
+        }
+        entry = reachable(entry);
+        long duration = Math.max(MIN_LEASE_MILLIS, Math.min(MAX_LEASE_MILLIS, leaseMillis));
+        long leaseId;
+        DirectoryListing changed;
+        synchronized (this) {
+            leaseId = nextLeaseId++;
+            Long previous = leaseByIdentifier.put(entry.getIdentifier(), leaseId);
+            if (previous != null) leases.remove(previous);
+            leases.put(leaseId, new Lease(entry, TimeUnit.MILLISECONDS.toNanos(duration)));
+            changed = rebuild();
+        }
+        System.out.println("Directory: " + entry + " registered for " + duration + " ms.");
+        publish(changed);
+        return leaseId;
+    }
+
+    @Override
+    public synchronized boolean renew(long leaseId) throws RemoteException {
+        Lease lease = leases.get(leaseId);
+        if (lease == null) return false;
+        lease.expiresAtNanos = System.nanoTime() + lease.durationNanos;
+        return true;
+    }
+
+    @Override
+    public void cancel(long leaseId) throws RemoteException {
+        DirectoryListing changed;
+        DirectoryEntry entry;
+        synchronized (this) {
+            Lease lease = leases.remove(leaseId);
+            if (lease == null) return;
+            entry = lease.entry;
+            leaseByIdentifier.remove(entry.getIdentifier(), leaseId);
+            changed = rebuild();
+        }
+        System.out.println("Directory: " + entry + " left.");
+        publish(changed);
+    }
+
+    @Override
+    public synchronized DirectoryListing list() throws RemoteException {
+        return listing;
+    }
+
+    @Override
+    public void subscribe(DirectoryListenerRemote listener) throws RemoteException {
+        Subscriber subscriber;
+        synchronized (subscribers) {
+            // Controllers subscribe every round, which also brings back one that was dropped
+            subscriber = find(listener);
+            if (subscriber != null) {
+                subscriber.sender.resume();
+                return;
+            }
+            subscriber = new Subscriber(listener);
+            subscribers.add(subscriber);
+        }
+        subscriber.offer(list());
+    }
+
+    @Override
+    public void unsubscribe(DirectoryListenerRemote listener) throws RemoteException {
+        remove(listener);
+    }
+
+    // A host registering a loopback name is reachable at the address it called from, as for discovery
+    private static DirectoryEntry reachable(DirectoryEntry entry) {
+        String hostname = entry.getHostname();
+        if (!hostname.equals("localhost") && !hostname.startsWith("127.")) return entry;
+        try {
+            String caller = RemoteServer.getClientHost();
+            if (InetAddress.getByName(caller).isLoopbackAddress()) return entry;
+            return new DirectoryEntry(entry.getName(), caller, entry.getPort(), entry.getServiceName(), entry.getVideoIndex());
+        } catch (ServerNotActiveException | UnknownHostException e) {
+            return entry; // A local call
+        }
+    }
+
+    private void sweep() {
+        List<DirectoryEntry> expired = new ArrayList<>();
+        DirectoryListing changed = null;
+        synchronized (this) {
+            long now = System.nanoTime();
+            for (Iterator<Map.Entry<Long, Lease>> it = leases.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<Long, Lease> lease = it.next();
+                if (lease.getValue().expiresAtNanos - now > 0) continue;
+                it.remove();
+                leaseByIdentifier.remove(lease.getValue().entry.getIdentifier(), lease.getKey());
+                expired.add(lease.getValue().entry);
+            }
+            if (!expired.isEmpty()) changed = rebuild();
+        }
+        expired.forEach(entry -> System.out.println("Directory: lease of " + entry + " expired."));
+        if (changed != null) publish(changed);
+    }
+
+    // Called with the lock held
+    private DirectoryListing rebuild() {
+        List<DirectoryEntry> entries = new ArrayList<>(leases.size());
+        for (Lease lease : leases.values()) {
+            entries.add(lease.entry);
+        }
+        entries.sort(Comparator.comparing(DirectoryEntry::getIdentifier));
+        listing = new DirectoryListing(incarnation, ++revision, entries);
+        return listing;
+    }
+
+    private void publish(DirectoryListing changed) {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(changed);
+        }
+    }
+
+    private Subscriber find(DirectoryListenerRemote listener) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.listener.equals(listener)) return subscriber;
+        }
+        return null;
+    }
+
+    private void remove(DirectoryListenerRemote listener) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.listener.equals(listener) && subscribers.remove(subscriber)) subscriber.sender.cancel();
+        }
+    }
+
+    private class Subscriber {
+        final DirectoryListenerRemote listener;
+        final PushSender<DirectoryListing> sender;
+        long offeredRevision = -1; // Guarded by this
+
+        Subscriber(DirectoryListenerRemote listener) {
+            this.listener = listener;
+            // A failed listing is sent again, unless a newer one came meanwhile
+            this.sender = PushSender.latest("directory subscriber", senders, listener::onListing,
+                    lost -> lost, 0, () -> subscribers.remove(this));
+        }
+
+        synchronized void offer(DirectoryListing next) {
+            // Listings published concurrently may arrive out of order; only newer ones go out
+            if (next.getRevision() <= offeredRevision) return;
+            offeredRevision = next.getRevision();
+            sender.offer(next);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package services;
+
+import javafx.scene.media.MediaPlayer;
+import javafx.util.Duration;
+
+/**
+ * Keeps a sync group member aligned with the group's reference position.
+ * <p>
+ * Small drift is worked off by nudging the playback rate, which is invisible on
+ * screen; drift beyond {@link #SEEK_THRESHOLD_MILLIS} (a missed loop, a stall)
+ * is fixed with a seek, after which corrections pause until the player has
+ * settled. Looping videos are compared modulo their duration, so a member that
+ * has just wrapped around is not seen as a whole loop behind.
+ * <p>
+ * Thresholds can be tuned with the {@code sync.nudgeThresholdMillis},
+ * {@code sync.seekThresholdMillis} and {@code sync.maxRateDelta} system properties.
+ */
+public class DriftCorrector {
+
+    // About half a frame at 60 fps: below this, members count as aligned
+    public static final long NUDGE_THRESHOLD_MILLIS = Long.getLong("sync.nudgeThresholdMillis", 8);
+    public static final long SEEK_THRESHOLD_MILLIS = Long.getLong("sync.seekThresholdMillis", 250);
+    public static final double MAX_RATE_DELTA = Double.parseDouble(System.getProperty("sync.maxRateDelta", "0.05"));
+
+    // Drift is worked off over this long; shorter converges faster but makes the rate change visible
+    private static final long CORRECTION_MILLIS = 2000;
+    // Positions read right after a seek are not reliable yet
+    private static final long SETTLE_NANOS = 1_000_000_000L;
+
+    private long lastSeekNanos = System.nanoTime() - SETTLE_NANOS;
+
+    /**
+     * Compares the player with the reference and corrects it.
+     * @param expectedMillis Where the player should be right now.
+     * @return How far ahead of the reference the player was, in milliseconds.
+     */
+    public synchronized long correct(MediaPlayer player, long expectedMillis) {
+        long durationMillis = durationOf(player);
+        if (durationMillis > 0) expectedMillis = Math.floorMod(expectedMillis, durationMillis);
+        Duration current = player.getCurrentTime();
+        if (current == null || current.isUnknown()) return 0;
+        long drift = drift((long) current.toMillis(), expectedMillis, durationMillis);
+
+        if (System.nanoTime() - lastSeekNanos < SETTLE_NANOS) return drift;
+        long magnitude = Math.abs(drift);
+        if (magnitude >= SEEK_THRESHOLD_MILLIS) {
+            player.setRate(1.0);
+            player.seek(Duration.millis(expectedMillis));
+            lastSeekNanos = System.nanoTime();
+        } else if (magnitude >= NUDGE_THRESHOLD_MILLIS) {
+            player.setRate(rateFor(drift));
+        } else if (player.getRate() != 1.0) {
+            player.setRate(1.0);
+        }
+        return drift;
+    }
+
+    /**
+     * Puts the player back to normal rate, for when corrections stop or a command
+     * moves it anyway; a nudge left in place would keep it drifting the other way.
+     */
+    public synchronized void reset(MediaPlayer player) {
+        if (player.getRate() != 1.0) player.setRate(1.0);
+    }
+
+    /**
+     * Rate that works off {@code driftMillis} over {@link #CORRECTION_MILLIS}:
+     * slower when ahead, faster when behind, within {@link #MAX_RATE_DELTA}.
+     */
+    public static double rateFor(long driftMillis) {
+        double delta = (double) driftMillis / CORRECTION_MILLIS;
+        return 1.0 - Math.max(-MAX_RATE_DELTA, Math.min(MAX_RATE_DELTA, delta));
+    }
+
+    /**
+     * Signed distance from the expected position; for looping media, the shorter way around.
+     */
+    public static long drift(long positionMillis, long expectedMillis, long durationMillis) {
+        long drift = positionMillis - expectedMillis;
+        if (durationMillis > 0) {
+            drift = Math.floorMod(drift, durationMillis);
+            if (drift > durationMillis / 2) drift -= durationMillis;
+        }
+        return drift;
+    }
+
+    static long durationOf(MediaPlayer player) {
+        Duration total = player.getCycleDuration();
+        return total == null || total.isUnknown() || total.isIndefinite() ? -1 : (long) total.toMillis();
+    }
+}
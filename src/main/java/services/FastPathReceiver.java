@@ -0,0 +1,280 @@
+package services;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Arrays;
+
+import services.net.CommandDatagram;
+import services.primitives.Command;
+
+/**
+ * Host end of the datagram fast path: play, pause, restart and seek arrive as
+ * {@link CommandDatagram}s on a non-blocking channel next to the RMI registry
+ * and are applied from the receiving thread, like scheduled commands, without
+ * waiting for a pipeline pulse. Every command is acked to its sender, which
+ * retransmits until it is and falls back to RMI otherwise.
+ * <p>
+ * Retransmits must not be applied twice and a late retransmit must not undo a
+ * newer command, so per sender and target only sequences above the last applied
+ * one are applied; older ones are acked and dropped. The table of senders is
+ * fixed-size and the buffer is reused, so nothing is allocated per datagram.
+ * <p>
+ * A command for every player is acked once per host: OK if any player applied it,
+ * since resending it over RMI would apply it again on those. Players that could
+ * not apply it are only reported here.
+ * <p>
+ * The channel is optional and off by default: datagrams are not authenticated,
+ * so anyone who can reach the port can drive the players. Enable it only on a
+ * network reserved for the wall. Controllers and hosts need the same setting.
+ * <p>
+ * Configured with system properties:
+ * <ul>
+ *   <li>{@code fastpath.enabled} - start the channel at all (default false).</li>
+ *   <li>{@code fastpath.port} - UDP port, 0 for the number of the registry port (default 0).</li>
+ *   <li>{@code fastpath.group} - multicast group to also listen on, so one datagram
+ *       reaches every host of a wall (default none).</li>
+ *   <li>{@code fastpath.groupPort} - port of the group, the same on every host (default 4447).</li>
+ *   <li>{@code fastpath.interface} - network interface to join the group on (default: the first multicast one).</li>
+ * </ul>
+ */
+public class FastPathReceiver {
+
+    public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("fastpath.enabled", "false"));
+    public static final int PORT = Integer.getInteger("fastpath.port", 0);
+    public static final String GROUP = System.getProperty("fastpath.group");
+    public static final int GROUP_PORT = Integer.getInteger("fastpath.groupPort", 4447);
+
+    // Controllers talking to one host at a time; the least recently seen one is forgotten first
+    private static final int SENDERS = 64;
+
+    /**
+     * A player the fast path drives.
+     */
+    public interface Target {
+
+        /**
+         * @param atEpochMillis When to apply it in the host's clock, 0 for right away.
+         * @throws IllegalStateException If the command cannot be applied; the sender falls back to RMI.
+         */
+        void apply(Command.Type type, long positionMillis, long atEpochMillis);
+    }
+
+    private final DatagramChannel channel;
+    private final DatagramChannel groupChannel; // Null without a group
+    private final Selector selector;
+    private final Thread thread;
+    private volatile Player[] players = new Player[0]; // Copied on write; a host has a handful
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(CommandDatagram.SIZE);
+
+    // Receiving thread only
+    private final long[] senders = new long[SENDERS];
+    private final int[] senderTargets = new int[SENDERS];
+    private final long[] lastSequences = new long[SENDERS];
+    private final long[] lastSeen = new long[SENDERS];
+    private long received;
+
+    private volatile boolean running = true;
+
+    /**
+     * Opens the channel on the fast path port for a registry port, and the group
+     * channel if one is configured, and starts receiving.
+     */
+    public FastPathReceiver(int registryPort) throws IOException {
+        selector = Selector.open();
+        channel = DatagramChannel.open(StandardProtocolFamily.INET);
+        channel.bind(new InetSocketAddress(portFor(registryPort)));
+        channel.configureBlocking(false);
+        channel.register(selector, SelectionKey.OP_READ);
+        groupChannel = GROUP == null ? null : openGroup();
+
+        thread = new Thread(this::receiveLoop, "fastpath-receiver");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MAX_PRIORITY); // Its whole point is to get there first
+        thread.start();
+        System.out.println("Fast path listening on UDP port " + portFor(registryPort)
+                + (GROUP != null ? " and group " + GROUP + ":" + GROUP_PORT : "") + ".");
+    }
+
+    /**
+     * @return The UDP port of the fast path of a host whose registry listens on {@code registryPort}.
+     */
+    public static int portFor(int registryPort) {
+        return PORT > 0 ? PORT : registryPort;
+    }
+
+    /**
+     * Routes commands addressed to {@code serviceName}, and those for every player, to {@code target}.
+     */
+    public synchronized void addTarget(String serviceName, Target target) {
+        int id = CommandDatagram.targetOf(serviceName);
+        if (find(id) != null) {
+            // Hash collision between two players of the same host; RMI still reaches both
+            System.err.println("Fast path disabled for " + serviceName + ": another player has the same target id.");
+            return;
+        }
+        Player[] extended = Arrays.copyOf(players, players.length + 1);
+        extended[players.length] = new Player(id, target);
+        players = extended;
+    }
+
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeQuietly(channel);
+        if (groupChannel != null) closeQuietly(groupChannel);
+        try {
+            selector.close();
+        } catch (IOException e) {
+            // Nothing left to release
+        }
+    }
+
+    private DatagramChannel openGroup() throws IOException {
+        InetAddress group = InetAddress.getByName(GROUP);
+        DatagramChannel multicast = DatagramChannel.open(StandardProtocolFamily.INET);
+        // Several host processes on one machine all listen on the group port
+        multicast.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        multicast.bind(new InetSocketAddress(GROUP_PORT));
+        multicast.join(group, multicastInterface());
+        multicast.configureBlocking(false);
+        multicast.register(selector, SelectionKey.OP_READ);
+        return multicast;
+    }
+
+    private static NetworkInterface multicastInterface() throws IOException {
+        String name = System.getProperty("fastpath.interface");
+        if (name != null) {
+            NetworkInterface named = NetworkInterface.getByName(name);
+            if (named == null) throw new IOException("No network interface named " + name);
+            return named;
+        }
+        NetworkInterface loopback = null;
+        for (NetworkInterface candidate : NetworkInterface.networkInterfaces().toArray(NetworkInterface[]::new)) {
+            if (!candidate.isUp() || !candidate.supportsMulticast()) continue;
+            if (!candidate.isLoopback()) return candidate;
+            loopback = candidate;
+        }
+        if (loopback == null) throw new IOException("No network interface supports multicast");
+        return loopback;
+    }
+
+    private void receiveLoop() {
+        while (running) {
+            try {
+                selector.select();
+                selector.selectedKeys().clear();
+                drain(channel);
+                if (groupChannel != null) drain(groupChannel);
+            } catch (IOException e) {
+                if (running) System.err.println("Fast path receive failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void drain(DatagramChannel from) throws IOException {
+        while (true) {
+            buffer.clear();
+            SocketAddress sender = from.receive(buffer);
+            if (sender == null) return;
+            if (!CommandDatagram.isValid(buffer, buffer.position())
+                    || CommandDatagram.kind(buffer) != CommandDatagram.COMMAND) continue;
+            byte status = handle() ? CommandDatagram.OK : CommandDatagram.REJECTED;
+            CommandDatagram.toAck(buffer, status);
+            // Acks always leave from the unicast port, which is what the sender knows this host by
+            channel.send(buffer, sender);
+        }
+    }
+
+    // Applies the command in the buffer; false if it was addressed to no player here or could not be applied
+    private boolean handle() {
+        Command.Type type = CommandDatagram.typeOf(CommandDatagram.code(buffer));
+        int target = CommandDatagram.target(buffer);
+        Target addressed = target == CommandDatagram.ALL_PLAYERS ? null : find(target);
+        if (type == null || (target != CommandDatagram.ALL_PLAYERS && addressed == null)) return false;
+        long sequence = CommandDatagram.sequence(buffer);
+        int slot = slotOf(CommandDatagram.sender(buffer), target);
+        if (sequence <= lastSequences[slot]) return true; // Applied already, or superseded
+
+        long position = CommandDatagram.positionMillis(buffer);
+        long at = CommandDatagram.atEpochMillis(buffer);
+        boolean applied = false;
+        if (addressed != null) {
+            applied = apply(addressed, type, position, at);
+        } else {
+            // Every player gets it even if one fails
+            for (Player player : players) {
+                applied |= apply(player.target, type, position, at);
+            }
+        }
+        // Only now, so a retransmit of a rejected command is tried, and rejected, again
+        if (applied) lastSequences[slot] = sequence;
+        return applied;
+    }
+
+    private static boolean apply(Target target, Command.Type type, long position, long at) {
+        try {
+            target.apply(type, position, at);
+            return true;
+        } catch (RuntimeException e) {
+            System.err.println("Fast path " + type + " rejected: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // The table entry of a sender and target, taking over the least recently seen one for a new pair
+    private int slotOf(long sender, int target) {
+        received++;
+        int oldest = 0;
+        for (int i = 0; i < SENDERS; i++) {
+            if (lastSeen[i] != 0 && senders[i] == sender && senderTargets[i] == target) {
+                lastSeen[i] = received;
+                return i;
+            }
+            if (lastSeen[i] < lastSeen[oldest]) oldest = i;
+        }
+        senders[oldest] = sender;
+        senderTargets[oldest] = target;
+        lastSequences[oldest] = 0; // Sequences start at 1
+        lastSeen[oldest] = received;
+        return oldest;
+    }
+
+    private Target find(int id) {
+        for (Player player : players) {
+            if (player.id == id) return player.target;
+        }
+        return null;
+    }
+
+    private static void closeQuietly(DatagramChannel closing) {
+        try {
+            closing.close();
+        } catch (IOException e) {
+            // Nothing left to release
+        }
+    }
+
+    private static final class Player {
+        final int id;
+        final Target target;
+
+        Player(int id, Target target) {
+            this.id = id;
+            this.target = target;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package services;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import services.net.CommandDatagram;
+import services.primitives.Command;
+
+/**
+ * Controller end of the datagram fast path (see {@link FastPathReceiver}).
+ * <p>
+ * A send goes out as one datagram, to a host or to the multicast group, and
+ * completes once every expected host acked it. Hosts that have not acked are
+ * sent the same datagram again, with the wait doubling from
+ * {@link #RETRANSMIT_MICROS}, up to {@link #ATTEMPTS} times; whatever is still
+ * missing then is returned so the caller can fall back to RMI. A host that
+ * missed a whole send, because it has no fast path or a firewall drops UDP, is
+ * skipped for {@link #RETRY_AFTER_MILLIS} rather than delaying every command.
+ * <p>
+ * Retransmits can be tuned with the {@code fastpath.attempts} and
+ * {@code fastpath.retransmitMicros} system properties.
+ */
+public class FastPathSender implements AutoCloseable {
+
+    public static final int ATTEMPTS = Integer.getInteger("fastpath.attempts", 4);
+    public static final long RETRANSMIT_MICROS = Long.getLong("fastpath.retransmitMicros", 2000);
+    public static final long RETRY_AFTER_MILLIS = 30_000;
+
+    private final DatagramChannel channel;
+    private final Selector selector;
+    private final Thread thread;
+    private final ByteBuffer out = ByteBuffer.allocateDirect(CommandDatagram.SIZE); // Guarded by itself
+    private final ByteBuffer in = ByteBuffer.allocateDirect(CommandDatagram.SIZE); // Receiving thread only
+    private final long senderId = ThreadLocalRandom.current().nextLong();
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Long, Pending> pending = new ConcurrentHashMap<>();
+    private final Map<InetSocketAddress, Long> unreachable = new ConcurrentHashMap<>();
+    private volatile boolean running = true;
+
+    public FastPathSender() throws IOException {
+        selector = Selector.open();
+        channel = DatagramChannel.open(StandardProtocolFamily.INET);
+        channel.bind(null);
+        channel.configureBlocking(false);
+        channel.register(selector, SelectionKey.OP_READ);
+        thread = new Thread(this::receiveLoop, "fastpath-sender");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @param identifier A host identifier, {@code hostname:port/serviceName}.
+     * @return Where that host's fast path listens.
+     */
+    public static InetSocketAddress addressOf(String identifier) {
+        int colon = identifier.lastIndexOf(':', identifier.indexOf('/'));
+        int port = Integer.parseInt(identifier.substring(colon + 1, identifier.indexOf('/')));
+        return new InetSocketAddress(identifier.substring(0, colon), FastPathReceiver.portFor(port));
+    }
+
+    /**
+     * @return The service name part of a host identifier.
+     */
+    public static String serviceOf(String identifier) {
+        return identifier.substring(identifier.indexOf('/') + 1);
+    }
+
+    /**
+     * Sends a command to one player of one host.
+     * @param atEpochMillis When the host applies it, in its own clock; 0 for right away.
+     * @return Completes with true once the host acked it, false if it should be sent over RMI instead.
+     */
+    public CompletableFuture<Boolean> send(InetSocketAddress host, String serviceName, Command.Type type,
+                                           long positionMillis, long atEpochMillis) {
+        return sendTo(host, Set.of(host), CommandDatagram.targetOf(serviceName), type, positionMillis, atEpochMillis)
+                .thenApply(Set::isEmpty);
+    }
+
+    /**
+     * Sends a command to every player of the hosts listening on a multicast group, in one datagram.
+     * Hosts that are not in {@code members} also apply it, but are not waited for.
+     * @param members Hosts whose acks are expected, as returned by {@link #addressOf}.
+     * @return Completes with the members that did not ack, to be sent over RMI instead.
+     */
+    public CompletableFuture<Set<InetSocketAddress>> sendToGroup(InetSocketAddress group, Collection<InetSocketAddress> members,
+                                                                 Command.Type type, long positionMillis, long atEpochMillis) {
+        return sendTo(group, members, CommandDatagram.ALL_PLAYERS, type, positionMillis, atEpochMillis);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(1000);
+            channel.close();
+            selector.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // Nothing left to release
+        }
+        pending.values().forEach(waiting -> waiting.result.complete(waiting.missing()));
+        pending.clear();
+    }
+
+    private CompletableFuture<Set<InetSocketAddress>> sendTo(InetSocketAddress destination, Collection<InetSocketAddress> members,
+                                                             int target, Command.Type type, long positionMillis, long atEpochMillis) {
+        byte opcode = CommandDatagram.opcodeOf(type);
+        if (opcode == 0) throw new IllegalArgumentException(type + " cannot be sent over the fast path");
+
+        Pending waiting = new Pending(sequence.incrementAndGet(), target, opcode, positionMillis, atEpochMillis);
+        long now = System.currentTimeMillis();
+        for (InetSocketAddress member : members) {
+            Long failedAt = unreachable.get(member);
+            if (failedAt != null && now - failedAt < RETRY_AFTER_MILLIS) {
+                waiting.skipped.add(member);
+            } else {
+                waiting.awaiting.add(member);
+            }
+        }
+        if (waiting.awaiting.isEmpty() || !running) return CompletableFuture.completedFuture(waiting.missing());
+
+        waiting.deadlineNanos = System.nanoTime() + RETRANSMIT_MICROS * 1000;
+        pending.put(waiting.sequence, waiting);
+        if (!transmit(waiting, destination)) {
+            // Nothing went out, e.g. no route to the group: try each member directly
+            waiting.awaiting.forEach(member -> transmit(waiting, member));
+        }
+        selector.wakeup(); // After sending: the receiving thread now has a deadline to keep
+        return waiting.result;
+    }
+
+    private boolean transmit(Pending waiting, InetSocketAddress destination) {
+        synchronized (out) {
+            CommandDatagram.writeCommand(out, senderId, waiting.sequence, waiting.target,
+                    waiting.opcode, waiting.positionMillis, waiting.atEpochMillis);
+            try {
+                return channel.send(out, destination) > 0;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+    }
+
+    private void receiveLoop() {
+        while (running) {
+            try {
+                long wait = nextDeadlineNanos() - System.nanoTime();
+                if (pending.isEmpty()) {
+                    selector.select();
+                } else if (wait > 0) {
+                    selector.select(Math.max(1, wait / 1_000_000));
+                } else {
+                    selector.selectNow();
+                }
+                selector.selectedKeys().clear();
+                receiveAcks();
+                retransmit();
+            } catch (IOException e) {
+                if (running) System.err.println("Fast path ack receive failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void receiveAcks() throws IOException {
+        while (true) {
+            in.clear();
+            SocketAddress from = channel.receive(in);
+            if (from == null) return;
+            if (!CommandDatagram.isValid(in, in.position()) || CommandDatagram.kind(in) != CommandDatagram.ACK
+                    || CommandDatagram.sender(in) != senderId) continue;
+            // Any ack, even one too late for its send, shows the host has a fast path
+            unreachable.remove(from);
+            Pending waiting = pending.get(CommandDatagram.sequence(in));
+            if (waiting == null || !waiting.awaiting.remove(from)) continue; // Late or duplicate ack
+            // A host that rejected the command is answered over RMI, which reports why
+            if (CommandDatagram.code(in) != CommandDatagram.OK) waiting.rejected.add((InetSocketAddress) from);
+            if (waiting.awaiting.isEmpty()) finish(waiting);
+        }
+    }
+
+    private void retransmit() {
+        long now = System.nanoTime();
+        for (Iterator<Pending> it = pending.values().iterator(); it.hasNext(); ) {
+            Pending waiting = it.next();
+            if (waiting.deadlineNanos > now) continue;
+            if (++waiting.attempts >= ATTEMPTS) {
+                long failedAt = System.currentTimeMillis();
+                waiting.awaiting.forEach(member -> unreachable.put(member, failedAt));
+                finish(waiting);
+                continue;
+            }
+            // Unicast, so hosts that already acked the group datagram are left alone
+            waiting.awaiting.forEach(member -> transmit(waiting, member));
+            waiting.deadlineNanos = now + (RETRANSMIT_MICROS * 1000 << waiting.attempts);
+        }
+    }
+
+    private void finish(Pending waiting) {
+        pending.remove(waiting.sequence);
+        waiting.result.complete(waiting.missing());
+    }
+
+    private long nextDeadlineNanos() {
+        long next = Long.MAX_VALUE;
+        for (Pending waiting : pending.values()) {
+            next = Math.min(next, waiting.deadlineNanos);
+        }
+        return next;
+    }
+
+    private static final class Pending {
+        final long sequence;
+        final int target;
+        final byte opcode;
+        final long positionMillis;
+        final long atEpochMillis;
+        final Set<InetSocketAddress> awaiting = ConcurrentHashMap.newKeySet();
+        final Set<InetSocketAddress> skipped = new LinkedHashSet<>(); // Filled before sending
+        final Set<InetSocketAddress> rejected = ConcurrentHashMap.newKeySet();
+        final CompletableFuture<Set<InetSocketAddress>> result = new CompletableFuture<>();
+        volatile long deadlineNanos;
+        int attempts; // Receiving thread only
+
+        Pending(long sequence, int target, byte opcode, long positionMillis, long atEpochMillis) {
+            this.sequence = sequence;
+            this.target = target;
+            this.opcode = opcode;
+            this.positionMillis = positionMillis;
+            this.atEpochMillis = atEpochMillis;
+        }
+
+        Set<InetSocketAddress> missing() {
+            Set<InetSocketAddress> missing = new LinkedHashSet<>(skipped);
+            missing.addAll(rejected);
+            missing.addAll(awaiting);
+            return missing;
+        }
+    }
+}
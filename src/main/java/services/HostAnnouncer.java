@@ -0,0 +1,72 @@
+package services;
+
+import com.model.Host;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.MulticastSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically announces a bound host on the discovery multicast group,
+ * so controllers can find it without typing its address.
+ * The group and port can be changed with the {@code discovery.group} and
+ * {@code discovery.port} system properties.
+ */
+public class HostAnnouncer {
+
+    public static final String GROUP = System.getProperty("discovery.group", "230.0.0.1");
+    public static final int PORT = Integer.getInteger("discovery.port", 4446);
+    public static final long INTERVAL_MILLIS = 2000;
+
+    // First line of every datagram, so unrelated traffic on the group is ignored
+    static final String MAGIC = "RMI_VIDEO/1";
+    static final String HELLO = "HELLO";
+    static final String BYE = "BYE";
+
+    private final Host host;
+    private final ScheduledExecutorService scheduler;
+    private MulticastSocket socket;
+
+    public HostAnnouncer(Host host) {
+        this.host = host;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "host-announcer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start() throws IOException {
+        socket = new MulticastSocket();
+        socket.setTimeToLive(4);
+        scheduler.scheduleAtFixedRate(() -> send(HELLO), 0, INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        System.out.println("Announcing host on multicast group " + GROUP + ":" + PORT);
+    }
+
+    /**
+     * Stops announcing and tells listeners the host is going away.
+     */
+    public void stop() {
+        scheduler.shutdownNow();
+        if (socket != null) {
+            send(BYE);
+            socket.close();
+        }
+    }
+
+    private void send(String type) {
+        String payload = String.join("\n", MAGIC, type, host.getName(), host.getHost(),
+                host.getService(), String.valueOf(host.getPort()), String.valueOf(host.getIndiceVideo()));
+        byte[] data = payload.getBytes(StandardCharsets.UTF_8);
+        try {
+            socket.send(new DatagramPacket(data, data.length, InetAddress.getByName(GROUP), PORT));
+        } catch (IOException e) {
+            System.err.println("Error sending discovery announcement: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package services;
+
+import com.model.Host;
+
+import java.rmi.NoSuchObjectException;
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.ExportException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import services.journal.CommandJournal;
+import services.media.ContentReceiver;
+import services.media.MediaCatalog;
+import services.media.PreviewService;
+import services.net.RmiTuning;
+import services.primitives.ContentDistributionRemote;
+import services.primitives.PreviewRemote;
+
+/**
+ * Exports and binds everything a host serves: one player service per output,
+ * their metrics MBeans, the LAN announcements and, once the media catalog is
+ * loaded, the content receiver. Each player also gets a preview service for live
+ * thumbnails, which captures nothing until the UI gives it a view and someone
+ * subscribes. Play, pause, restart and seek can also arrive as datagrams on the
+ * UDP port of the same number as the registry (see {@link FastPathReceiver}),
+ * with RMI as the fallback. With {@code directory.address} set, every player is
+ * also listed in the directory under a lease (see {@link DirectoryClient}), so
+ * a crashed host drops out of it by itself. The players of a host share the registry, the
+ * export port, the command pipeline, the timer thread and the catalog; each gets
+ * the command journal of its service name, so a restarted host can restore what
+ * it was playing. Nothing here touches the JavaFX thread, so the host can be
+ * reachable while the UI and media are still loading.
+ */
+public class HostBootstrap {
+
+    private final Registry registry;
+    private final Map<String, Host> hosts = new LinkedHashMap<>();
+    private final Map<String, VideoRemoteHostService> services = new LinkedHashMap<>();
+    private final Map<String, PreviewService> previews = new LinkedHashMap<>();
+    private final List<HostAnnouncer> announcers = new ArrayList<>();
+    private volatile ContentReceiver contentReceiver;
+    private FastPathReceiver fastPath; // Null when disabled or the port is taken
+    private DirectoryClient directory; // Null without a directory
+
+    private HostBootstrap(Registry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Uses the registry on the host's port, creating it if none is running, and binds the player service.
+     */
+    public static HostBootstrap bind(Host host) throws Exception {
+        return bind(List.of(host));
+    }
+
+    /**
+     * Binds one player service per host in the same registry.
+     * @param players Hosts that differ only in service and display name; the first one's port is used.
+     */
+    public static HostBootstrap bind(List<Host> players) throws Exception {
+        Registry registry = locateRegistry(players.get(0).getPort());
+
+        // Create the services after the registry, which may share their port (rmi.exportPort)
+        HostCommandPipeline pipeline = new HostCommandPipeline();
+        ScheduledCommandTimer timer = new ScheduledCommandTimer();
+        HostBootstrap bootstrap = new HostBootstrap(registry);
+        bootstrap.directory = DirectoryClient.fromProperties();
+        if (FastPathReceiver.ENABLED) {
+            try {
+                bootstrap.fastPath = new FastPathReceiver(players.get(0).getPort());
+            } catch (Exception e) {
+                // Controllers get no acks and send everything over RMI
+                System.err.println("Could not open the fast path: " + e.getMessage());
+            }
+        }
+        for (Host host : players) {
+            VideoRemoteHostService service = new VideoRemoteHostService(pipeline, timer);
+            try {
+                service.setJournal(CommandJournal.open(CommandJournal.fileFor(host.getService(), host.getPort())));
+            } catch (Exception e) {
+                // Playback works without it; only recovery after a restart is lost
+                System.err.println("Could not open the command journal of " + host.getService() + ": " + e.getMessage());
+            }
+            registry.rebind(host.getService(), service);
+            bootstrap.hosts.put(host.getService(), host);
+            bootstrap.services.put(host.getService(), service);
+            System.out.println("VideoRemoteHostService bound to RMI Registry.");
+            service.getMetricsRegistry().registerMBean(host.getService());
+            if (bootstrap.fastPath != null) bootstrap.fastPath.addTarget(host.getService(), service::applyFastPath);
+
+            PreviewService preview = new PreviewService();
+            registry.rebind(host.getService() + PreviewRemote.SERVICE_SUFFIX, preview);
+            bootstrap.previews.put(host.getService(), preview);
+
+            String rmi = "rmi://" + host.getHost() + ":" + host.getPort() + "/" + host.getService();
+            System.out.println("Hosting server listening at: [ " + rmi + " ]");
+            if (bootstrap.directory != null) bootstrap.directory.register(host);
+
+            try {
+                HostAnnouncer announcer = new HostAnnouncer(host);
+                announcer.start();
+                bootstrap.announcers.add(announcer);
+            } catch (Exception e) {
+                // Discovery is a convenience; the service stays reachable by address
+                System.err.println("Could not start discovery announcements: " + e.getMessage());
+            }
+        }
+        return bootstrap;
+    }
+
+    /**
+     * Creates the registry on the port, or uses the one already running there.
+     * Creating first needs no remote call to find out, and fails at once if the port is taken.
+     */
+    public static Registry locateRegistry(int port) throws RemoteException {
+        try {
+            return LocateRegistry.createRegistry(port,
+                    RmiTuning.clientSocketFactory(), RmiTuning.serverSocketFactory());
+        } catch (ExportException e) {
+            // Another host process on this machine, or an earlier one in this JVM, already runs it
+            System.out.println("RMI Registry already running on port " + port + ", binding into it.");
+            return LocateRegistry.getRegistry(null, port, RmiTuning.clientSocketFactory());
+        }
+    }
+
+    /**
+     * Lets the services resolve video ids and binds the content receiver for this catalog,
+     * under every player's name, so a video pushed to any output lands in the shared catalog.
+     */
+    public synchronized void attachCatalog(MediaCatalog catalog) throws RemoteException {
+        services.values().forEach(service -> service.setMediaCatalog(catalog));
+        if (contentReceiver != null) return;
+        contentReceiver = new ContentReceiver(catalog);
+        // Lets controllers push new videos into this host's catalog
+        for (String name : services.keySet()) {
+            registry.rebind(name + ContentDistributionRemote.SERVICE_SUFFIX, contentReceiver);
+        }
+    }
+
+    /**
+     * @return The first player, the only one unless several were bound.
+     */
+    public Host getHost() {
+        return hosts.values().iterator().next();
+    }
+
+    public VideoRemoteHostService getService() {
+        return services.values().iterator().next();
+    }
+
+    /**
+     * @return The service bound under {@code serviceName}, or {@code null} if there is none.
+     */
+    public VideoRemoteHostService getService(String serviceName) {
+        return services.get(serviceName);
+    }
+
+    /**
+     * @return The preview service of the player bound under {@code serviceName}, or {@code null} if there is none.
+     */
+    public PreviewService getPreview(String serviceName) {
+        return previews.get(serviceName);
+    }
+
+    /**
+     * Stops the announcements and the fast path, leaves the directory, unbinds all services and unexports them, so in-flight
+     * calls fail fast instead of keeping the JVM waiting, and flushes their journals.
+     */
+    public void close() {
+        announcers.forEach(HostAnnouncer::stop);
+        if (directory != null) directory.close();
+        if (fastPath != null) fastPath.close();
+        for (Map.Entry<String, VideoRemoteHostService> entry : services.entrySet()) {
+            unbind(entry.getKey());
+            unexport(entry.getValue());
+            if (entry.getValue().getJournal() != null) {
+                entry.getValue().getJournal().close();
+            }
+            if (contentReceiver != null) {
+                unbind(entry.getKey() + ContentDistributionRemote.SERVICE_SUFFIX);
+            }
+            PreviewService preview = previews.get(entry.getKey());
+            if (preview != null) {
+                unbind(entry.getKey() + PreviewRemote.SERVICE_SUFFIX);
+                unexport(preview);
+                preview.shutdown();
+            }
+        }
+        if (contentReceiver != null) {
+            unexport(contentReceiver);
+        }
+    }
+
+    private void unbind(String name) {
+        try {
+            registry.unbind(name);
+            System.out.println("Service " + name + " unbound successfully.");
+        } catch (Exception e) {
+            System.err.println("Error unbinding service " + name + ": " + e.getMessage());
+        }
+    }
+
+    private static void unexport(UnicastRemoteObject object) {
+        try {
+            UnicastRemoteObject.unexportObject(object, true);
+        } catch (NoSuchObjectException e) {
+            // Already unexported
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import services.metrics.HostMetrics;
+import services.primitives.Command;
+
+/**
+ * Single-writer pipeline between incoming remote commands and the players of a host.
+ * <p>
+ * Each player has its own {@link Lane}. Any thread may {@link Lane#submit(Command)};
+ * commands are numbered, retried duplicates are dropped by idempotency key, and the
+ * remaining ones are folded into one pending target state per lane (video, seek
+ * position, playing or paused). A single {@link AnimationTimer} applies the pending
+ * state of every lane at most once per JavaFX pulse and stops itself when there is
+ * nothing left to do, so a command storm costs a single state change per frame and
+ * player instead of one {@code Platform.runLater} per call, however many outputs the
+ * host drives. The time from receipt to dispatch is recorded per command type in the
+ * lane's {@link HostMetrics}.
+ */
+public class HostCommandPipeline {
+
+    // How many recent idempotency keys are remembered for duplicate detection, per lane
+    private static final int MAX_REMEMBERED_KEYS = 4096;
+
+    private static final Command.Type[] TYPES = Command.Type.values();
+
+    // Guards the pending state of every lane; a host has a handful of players at most
+    private final Object lock = new Object();
+    private final List<Lane> lanes = new ArrayList<>(); // Guarded by lock
+    private boolean scheduled; // Guarded by lock
+    private final List<Lane> busy = new ArrayList<>(); // Only touched by the FX thread
+
+    private final AnimationTimer pulse = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            drain();
+        }
+    };
+
+    /**
+     * Adds a player to the pipeline.
+     * @param target The player the lane's commands are applied to.
+     * @param metrics Where the lane records dispatch times.
+     */
+    public Lane addLane(PlaybackTarget target, HostMetrics metrics) {
+        Lane lane = new Lane(target, metrics);
+        synchronized (lock) {
+            lanes.add(lane);
+        }
+        return lane;
+    }
+
+    // Runs on the JavaFX Application Thread, once per pulse while work is pending
+    private void drain() {
+        synchronized (lock) {
+            for (Lane lane : lanes) {
+                if (lane.take()) busy.add(lane);
+            }
+            if (busy.isEmpty()) {
+                scheduled = false;
+                pulse.stop();
+                return;
+            }
+        }
+        long now = System.nanoTime();
+        for (Lane lane : busy) {
+            lane.apply(now);
+        }
+        busy.clear();
+    }
+
+    /**
+     * Commands for one player. Sequence numbers and idempotency keys are per lane.
+     */
+    public class Lane {
+
+        private final PlaybackTarget target;
+        private final HostMetrics metrics;
+
+        private final Map<Long, Boolean> seenKeys = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                return size() > MAX_REMEMBERED_KEYS;
+            }
+        };
+
+        // Pending state, guarded by the pipeline lock
+        private long nextSequence = 1;
+        private long pendingSequence;
+        private long takenSequence;
+        private String pendingVideo;
+        private boolean pendingSeekToStart;
+        private Long pendingSeek;
+        private Boolean pendingPlaying;
+        // Receipt time of the oldest pending command of each type, 0 when none is pending
+        private final long[] pendingReceived = new long[TYPES.length];
+
+        // State taken for the current pulse, only touched by the FX thread
+        private String video;
+        private boolean seekToStart;
+        private Long seek;
+        private Boolean playing;
+        private long sequence;
+        private final long[] drained = new long[TYPES.length];
+
+        private volatile long lastAppliedSequence;
+        private volatile long duplicateCount;
+
+        private Lane(PlaybackTarget target, HostMetrics metrics) {
+            this.target = target;
+            this.metrics = metrics;
+        }
+
+        public long submit(Command command) {
+            return submit(command, System.nanoTime());
+        }
+
+        /**
+         * Queues a command for the next pulse.
+         * @param command The command to apply.
+         * @param receivedNanos When the command was received, from {@link System#nanoTime()}.
+         * @return The sequence number assigned to the command, or -1 if it is a duplicate.
+         */
+        public long submit(Command command, long receivedNanos) {
+            boolean start;
+            long assigned;
+            synchronized (lock) {
+                long key = command.getIdempotencyKey();
+                if (key != 0 && seenKeys.put(key, Boolean.TRUE) != null) {
+                    duplicateCount++;
+                    return -1;
+                }
+                assigned = nextSequence++;
+                pendingSequence = assigned;
+                merge(command);
+                int type = command.getType().ordinal();
+                if (pendingReceived[type] == 0) pendingReceived[type] = receivedNanos;
+
+                start = !scheduled;
+                scheduled = true;
+            }
+            if (start) {
+                // Only the idle-to-busy transition costs a hop to the JavaFX Application Thread
+                Platform.runLater(pulse::start);
+            }
+            return assigned;
+        }
+
+        // Folds the command into the pending state; later commands override earlier ones
+        private void merge(Command command) {
+            switch (command.getType()) {
+                case PLAY:
+                    pendingPlaying = Boolean.TRUE;
+                    break;
+                case PAUSE:
+                    pendingPlaying = Boolean.FALSE;
+                    break;
+                case RESTART:
+                    pendingSeekToStart = true;
+                    pendingSeek = null;
+                    pendingPlaying = Boolean.TRUE;
+                    break;
+                case SEEK:
+                    pendingSeekToStart = false;
+                    pendingSeek = command.getPositionMillis();
+                    break;
+                case SELECT_VIDEO:
+                    // A seek queued before the switch refers to the old video
+                    pendingVideo = command.getVideoId();
+                    pendingSeekToStart = false;
+                    pendingSeek = null;
+                    break;
+            }
+        }
+
+        // Moves the pending state out under the pipeline lock; false if nothing arrived since the last pulse
+        private boolean take() {
+            if (pendingSequence == takenSequence) return false;
+            video = pendingVideo;
+            seekToStart = pendingSeekToStart;
+            seek = pendingSeek;
+            playing = pendingPlaying;
+            sequence = pendingSequence;
+            takenSequence = pendingSequence;
+
+            pendingVideo = null;
+            pendingSeekToStart = false;
+            pendingSeek = null;
+            pendingPlaying = null;
+            System.arraycopy(pendingReceived, 0, drained, 0, drained.length);
+            Arrays.fill(pendingReceived, 0);
+            return true;
+        }
+
+        private void apply(long now) {
+            for (int i = 0; i < drained.length; i++) {
+                if (drained[i] != 0) metrics.recordDispatch(TYPES[i], now - drained[i]);
+            }
+
+            try {
+                if (video != null) target.selectVideo(video);
+                if (seekToStart) target.seekToStart();
+                if (seek != null) target.seek(seek);
+                if (playing != null) {
+                    if (playing) target.play();
+                    else target.pause();
+                }
+            } catch (Exception e) {
+                System.err.println("Error applying commands up to #" + sequence + ": " + e.getMessage());
+            }
+            lastAppliedSequence = sequence;
+        }
+
+        /**
+         * @return The sequence number of the last command whose effect reached the player.
+         */
+        public long getLastAppliedSequence() {
+            return lastAppliedSequence;
+        }
+
+        public long getDuplicateCount() {
+            return duplicateCount;
+        }
+    }
+}
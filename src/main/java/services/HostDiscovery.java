@@ -0,0 +1,119 @@
+package services;
+
+import com.model.Host;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Listens on the discovery multicast group and keeps a table of live hosts.
+ * Entries expire when a host has not announced itself for a few intervals,
+ * or immediately when it says goodbye.
+ */
+public class HostDiscovery {
+
+    // A host is considered gone after missing this many announcements
+    private static final long EXPIRY_MILLIS = HostAnnouncer.INTERVAL_MILLIS * 3;
+
+    private final Map<String, Entry> hosts = new ConcurrentHashMap<>();
+    private MulticastSocket socket;
+    private Thread listener;
+
+    private static class Entry {
+        final Host host;
+        final long lastSeen;
+
+        Entry(Host host, long lastSeen) {
+            this.host = host;
+            this.lastSeen = lastSeen;
+        }
+    }
+
+    public void start() throws IOException {
+        InetAddress group = InetAddress.getByName(HostAnnouncer.GROUP);
+        socket = new MulticastSocket(HostAnnouncer.PORT);
+        socket.joinGroup(new InetSocketAddress(group, HostAnnouncer.PORT), null);
+
+        listener = new Thread(this::receiveLoop, "host-discovery");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    public void stop() {
+        if (socket != null) {
+            socket.close(); // Unblocks the receive loop
+        }
+    }
+
+    /**
+     * @return The hosts heard from recently, ordered by identifier.
+     */
+    public List<Host> liveHosts() {
+        long now = System.currentTimeMillis();
+        hosts.values().removeIf(entry -> now - entry.lastSeen > EXPIRY_MILLIS);
+
+        List<Host> live = new ArrayList<>();
+        for (Entry entry : hosts.values()) {
+            live.add(entry.host);
+        }
+        live.sort(Comparator.comparing(HostDiscovery::identifier));
+        return live;
+    }
+
+    /**
+     * @return The identifier used by ControlApp for this host, "hostname:port/serviceName".
+     */
+    public static String identifier(Host host) {
+        return String.format("%s:%d/%s", host.getHost(), host.getPort(), host.getService());
+    }
+
+    private void receiveLoop() {
+        byte[] buffer = new byte[1024];
+        DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+        while (!socket.isClosed()) {
+            try {
+                packet.setLength(buffer.length);
+                socket.receive(packet);
+                handle(packet);
+            } catch (SocketException e) {
+                return; // Socket closed by stop()
+            } catch (IOException e) {
+                System.err.println("Error receiving discovery announcement: " + e.getMessage());
+            }
+        }
+    }
+
+    private void handle(DatagramPacket packet) {
+        String[] lines = new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8).split("\n");
+        if (lines.length != 7 || !HostAnnouncer.MAGIC.equals(lines[0])) {
+            return;
+        }
+        try {
+            String hostname = lines[3];
+            // A host announcing a loopback name is reachable at the address it sent from
+            if ((hostname.equals("localhost") || hostname.startsWith("127."))
+                    && !packet.getAddress().isLoopbackAddress()) {
+                hostname = packet.getAddress().getHostAddress();
+            }
+            Host host = new Host(lines[2], hostname, lines[4], Integer.parseInt(lines[5]), Integer.parseInt(lines[6]));
+
+            if (HostAnnouncer.BYE.equals(lines[1])) {
+                hosts.remove(identifier(host));
+            } else {
+                hosts.put(identifier(host), new Entry(host, System.currentTimeMillis()));
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Ignoring malformed discovery announcement: " + e.getMessage());
+        }
+    }
+}
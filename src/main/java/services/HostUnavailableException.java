@@ -0,0 +1,15 @@
+package services;
+
+import java.rmi.RemoteException;
+
+/**
+ * Thrown instead of making a remote call while a host's circuit breaker is open.
+ */
+public class HostUnavailableException extends RemoteException {
+
+    private static final long serialVersionUID = 1L;
+
+    public HostUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,152 @@
+package services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import services.primitives.PlaybackEvent;
+import services.primitives.PlaybackListenerRemote;
+import services.primitives.PlaybackStatus;
+
+/**
+ * Pushes playback state changes to remote listeners.
+ * <p>
+ * Each listener has its own {@link PushSender}. Events that pile up while a send
+ * is in progress go out together in the next call, with consecutive position
+ * ticks collapsed, so a slow controller only delays itself.
+ * Position updates are throttled to {@link #POSITION_INTERVAL_MILLIS}.
+ */
+public class PlaybackEventPublisher {
+
+    public static final long POSITION_INTERVAL_MILLIS = 500;
+
+    // Beyond this many queued events a listener is resynchronized with a single snapshot
+    private static final int MAX_QUEUED_EVENTS = 256;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ExecutorService senders;
+
+    // Current state, guarded by this
+    private PlaybackStatus status = PlaybackStatus.UNKNOWN;
+    private String videoId;
+    private long positionMillis;
+    private long lastPositionPublish;
+
+    public PlaybackEventPublisher() {
+        AtomicInteger counter = new AtomicInteger();
+        senders = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "playback-events-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void addListener(PlaybackListenerRemote listener, String tag) {
+        Subscriber subscriber = new Subscriber(listener, tag);
+        synchronized (subscribers) {
+            // A controller subscribes again on every reconnect; the new subscription replaces the old one
+            remove(listener);
+            subscribers.add(subscriber);
+        }
+        subscriber.offer(snapshot());
+    }
+
+    public void removeListener(PlaybackListenerRemote listener) {
+        remove(listener);
+    }
+
+    public void updateStatus(PlaybackStatus newStatus) {
+        synchronized (this) {
+            if (newStatus == status) return;
+            status = newStatus;
+        }
+        publish(new PlaybackEvent(PlaybackEvent.STATUS, System.currentTimeMillis(), newStatus, null, 0));
+    }
+
+    public void updateVideo(String newVideoId) {
+        synchronized (this) {
+            if (newVideoId == null ? videoId == null : newVideoId.equals(videoId)) return;
+            videoId = newVideoId;
+            positionMillis = 0;
+        }
+        publish(new PlaybackEvent(PlaybackEvent.VIDEO | PlaybackEvent.POSITION,
+                System.currentTimeMillis(), null, newVideoId, 0));
+    }
+
+    /**
+     * Records the playback position; it is published only if the last position
+     * update went out more than {@link #POSITION_INTERVAL_MILLIS} ago.
+     */
+    public void updatePosition(long newPositionMillis) {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            positionMillis = newPositionMillis;
+            if (now - lastPositionPublish < POSITION_INTERVAL_MILLIS) return;
+            lastPositionPublish = now;
+        }
+        publish(new PlaybackEvent(PlaybackEvent.POSITION, now, null, null, newPositionMillis));
+    }
+
+    public synchronized PlaybackEvent snapshot() {
+        return new PlaybackEvent(PlaybackEvent.ALL, System.currentTimeMillis(), status, videoId, positionMillis);
+    }
+
+    public void shutdown() {
+        senders.shutdownNow();
+    }
+
+    private void remove(PlaybackListenerRemote listener) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.listener.equals(listener) && subscribers.remove(subscriber)) subscriber.sender.cancel();
+        }
+    }
+
+    private void publish(PlaybackEvent event) {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(event);
+        }
+    }
+
+    // Appends later events, keeping only the latest of consecutive position ticks
+    private List<PlaybackEvent> append(List<PlaybackEvent> waiting, List<PlaybackEvent> later) {
+        for (PlaybackEvent event : later) {
+            PlaybackEvent last = waiting.isEmpty() ? null : waiting.get(waiting.size() - 1);
+            if (last != null && event.getChanges() == PlaybackEvent.POSITION
+                    && last.getChanges() == PlaybackEvent.POSITION) {
+                waiting.remove(waiting.size() - 1);
+            } else if (waiting.size() >= MAX_QUEUED_EVENTS) {
+                waiting.clear();
+                event = snapshot();
+            }
+            waiting.add(event);
+        }
+        return waiting;
+    }
+
+    // Events are queued in a list of their own, which later ones are appended to
+    private static List<PlaybackEvent> batchOf(PlaybackEvent event) {
+        List<PlaybackEvent> batch = new ArrayList<>();
+        batch.add(event);
+        return batch;
+    }
+
+    private class Subscriber {
+        final PlaybackListenerRemote listener;
+        final PushSender<List<PlaybackEvent>> sender;
+
+        Subscriber(PlaybackListenerRemote listener, String tag) {
+            this.listener = listener;
+            // The lost batch may have carried a status change, so the full state is sent again
+            this.sender = new PushSender<>("playback listener " + tag, senders,
+                    batch -> listener.onPlaybackEvents(tag, batch), PlaybackEventPublisher.this::append,
+                    lost -> batchOf(snapshot()), 0, () -> subscribers.remove(this));
+        }
+
+        void offer(PlaybackEvent event) {
+            sender.offer(batchOf(event));
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package services;
+
+import com.model.HostStatus;
+
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import services.net.RmiTuning;
+import services.primitives.PlaybackEvent;
+import services.primitives.PlaybackListenerRemote;
+
+/**
+ * Controller-side listener that keeps the latest state pushed by each host,
+ * keyed by the tag the controller registered it with.
+ */
+public class PlaybackStatusListener extends UnicastRemoteObject implements PlaybackListenerRemote {
+
+    private final transient Map<String, HostStatus> statuses = new ConcurrentHashMap<>();
+    private transient volatile Consumer<String> onChange;
+
+    public PlaybackStatusListener() throws RemoteException {
+        // Hosts call back through the tuned sockets too; the controller needs no fixed port
+        super(0, RmiTuning.clientSocketFactory(), RmiTuning.serverSocketFactory());
+    }
+
+    @Override
+    public void onPlaybackEvents(String tag, List<PlaybackEvent> events) throws RemoteException {
+        HostStatus status = statuses.computeIfAbsent(tag, key -> new HostStatus());
+        for (PlaybackEvent event : events) {
+            status.apply(event);
+        }
+        Consumer<String> callback = onChange;
+        if (callback != null) {
+            callback.accept(tag);
+        }
+    }
+
+    /**
+     * @param onChange Called with the tag after every batch of events, on an RMI thread.
+     */
+    public void setOnChange(Consumer<String> onChange) {
+        this.onChange = onChange;
+    }
+
+    public HostStatus getStatus(String tag) {
+        return statuses.get(tag);
+    }
+
+    public void forget(String tag) {
+        statuses.remove(tag);
+    }
+}
@@ -0,0 +1,19 @@
+package services;
+
+/**
+ * The player that {@link HostCommandPipeline} applies coalesced state to.
+ * Methods are called on the JavaFX Application Thread, in the order
+ * selectVideo, seek, play/pause.
+ */
+public interface PlaybackTarget {
+
+    void selectVideo(String videoId);
+
+    void seekToStart();
+
+    void seek(long positionMillis);
+
+    void play();
+
+    void pause();
+}
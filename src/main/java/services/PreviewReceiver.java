@@ -0,0 +1,50 @@
+package services;
+
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import services.net.RmiTuning;
+import services.primitives.PreviewFrame;
+import services.primitives.PreviewListenerRemote;
+
+/**
+ * Controller-side listener that keeps the latest preview frame of each host,
+ * keyed by the tag the controller subscribed with.
+ */
+public class PreviewReceiver extends UnicastRemoteObject implements PreviewListenerRemote {
+
+    private final transient Map<String, PreviewFrame> frames = new ConcurrentHashMap<>();
+    private transient volatile Consumer<String> onFrame;
+
+    public PreviewReceiver() throws RemoteException {
+        super(0, RmiTuning.clientSocketFactory(), RmiTuning.serverSocketFactory());
+    }
+
+    @Override
+    public void onPreviewFrame(String tag, PreviewFrame frame) throws RemoteException {
+        // Frames may overtake each other on different connections; an older one never replaces a newer one
+        frames.merge(tag, frame, (current, next) -> next.getSequence() > current.getSequence() ? next : current);
+        Consumer<String> callback = onFrame;
+        if (callback != null) {
+            callback.accept(tag);
+        }
+    }
+
+    /**
+     * @param onFrame Called with the tag after every frame, on an RMI thread.
+     */
+    public void setOnFrame(Consumer<String> onFrame) {
+        this.onFrame = onFrame;
+    }
+
+    public PreviewFrame getFrame(String tag) {
+        return frames.get(tag);
+    }
+
+    public void forget(String tag) {
+        frames.remove(tag);
+    }
+}
@@ -0,0 +1,142 @@
+package services;
+
+import java.rmi.RemoteException;
+import java.util.concurrent.Executor;
+import java.util.function.BinaryOperator;
+import java.util.function.UnaryOperator;
+
+/**
+ * Pushes values to one remote listener, with at most one call in flight.
+ * <p>
+ * Values offered while a call is in progress are merged into the one waiting,
+ * so a slow listener only delays itself and never ties up more than one thread
+ * of the pool. A failed call is not retried right away, which would use up
+ * every attempt within one short outage: what is to be sent again waits for the
+ * next {@link #offer} or {@link #resume}. A listener that fails
+ * {@link #MAX_FAILURES} calls in a row, on as many occasions, is dropped.
+ *
+ * @param <T> What one call carries.
+ */
+public class PushSender<T> {
+
+    public static final int MAX_FAILURES = 3;
+
+    /**
+     * The remote call.
+     */
+    public interface Push<T> {
+        void send(T value) throws RemoteException;
+    }
+
+    private final String name;
+    private final Executor executor;
+    private final Push<T> push;
+    private final BinaryOperator<T> merge;
+    private final UnaryOperator<T> retry;
+    private final long intervalNanos;
+    private final Runnable onDropped;
+
+    // Guarded by this
+    private T waiting;
+    private boolean sending;
+    private boolean cancelled;
+    private long lastSent;
+
+    private int failures; // Sending thread only
+
+    /**
+     * @param name Names the listener in the log.
+     * @param merge Folds a value offered later into the one waiting.
+     * @param retry What to send again after a failed call, or {@code null} for nothing.
+     * @param intervalNanos Least time between calls, 0 for none; a value not due yet waits for the next offer.
+     * @param onDropped Run once the listener is dropped.
+     */
+    public PushSender(String name, Executor executor, Push<T> push, BinaryOperator<T> merge,
+                      UnaryOperator<T> retry, long intervalNanos, Runnable onDropped) {
+        this.name = name;
+        this.executor = executor;
+        this.push = push;
+        this.merge = merge;
+        this.retry = retry;
+        this.intervalNanos = intervalNanos;
+        this.onDropped = onDropped;
+        this.lastSent = System.nanoTime() - intervalNanos;
+    }
+
+    /**
+     * @return A sender of the latest value only, which replaces any value not sent yet.
+     */
+    public static <T> PushSender<T> latest(String name, Executor executor, Push<T> push,
+                                           UnaryOperator<T> retry, long intervalNanos, Runnable onDropped) {
+        return new PushSender<>(name, executor, push, (waiting, later) -> later, retry, intervalNanos, onDropped);
+    }
+
+    public long getIntervalNanos() {
+        return intervalNanos;
+    }
+
+    public void offer(T value) {
+        synchronized (this) {
+            if (cancelled) return;
+            waiting = waiting == null ? value : merge.apply(waiting, value);
+            if (sending || System.nanoTime() - lastSent < intervalNanos) return;
+            sending = true;
+        }
+        executor.execute(this::drain);
+    }
+
+    /**
+     * Sends what is waiting, if anything, e.g. what a failed call left to send again.
+     */
+    public void resume() {
+        synchronized (this) {
+            if (cancelled || sending || waiting == null) return;
+            sending = true;
+        }
+        executor.execute(this::drain);
+    }
+
+    /**
+     * Stops sending, e.g. once the listener unsubscribed; a call in flight still completes.
+     */
+    public synchronized void cancel() {
+        cancelled = true;
+        waiting = null;
+    }
+
+    private void drain() {
+        while (true) {
+            T value;
+            synchronized (this) {
+                if (waiting == null || System.nanoTime() - lastSent < intervalNanos) {
+                    sending = false;
+                    return;
+                }
+                value = waiting;
+                waiting = null;
+                lastSent = System.nanoTime();
+            }
+            try {
+                push.send(value);
+                failures = 0;
+            } catch (RemoteException e) {
+                if (++failures >= MAX_FAILURES) {
+                    System.err.println("Dropping " + name + ": " + e.getMessage());
+                    synchronized (this) {
+                        cancelled = true;
+                        waiting = null;
+                        sending = false;
+                    }
+                    onDropped.run();
+                    return;
+                }
+                synchronized (this) {
+                    T again = cancelled ? null : retry.apply(value);
+                    if (again != null) waiting = waiting == null ? again : merge.apply(again, waiting);
+                    sending = false;
+                }
+                return;
+            }
+        }
+    }
+}
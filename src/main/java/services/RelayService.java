@@ -0,0 +1,624 @@
+package services;
+
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import services.metrics.HostMetrics;
+import services.metrics.RemoteMethod;
+import services.net.RmiTuning;
+import services.primitives.BatchResult;
+import services.primitives.Command;
+import services.primitives.Cue;
+import services.primitives.MetricsSnapshot;
+import services.primitives.PlaybackListenerRemote;
+import services.primitives.PositionSample;
+import services.primitives.RelayRemote;
+import services.primitives.RelayReport;
+import services.primitives.TimelineProgress;
+import services.primitives.VideoPlayerRemote;
+
+/**
+ * Relay role: forwards every command to a configured set of children, hosts or
+ * further relays, in parallel on a bounded pool, and aggregates their
+ * acknowledgements (see {@link RelayRemote}).
+ * <p>
+ * Children are managed by a {@link StubManager}, so a dead host trips its circuit
+ * breaker and fails fast instead of holding up the whole floor. The call deadline,
+ * {@code relay.callTimeoutMillis}, has to stay below the deadline of the caller
+ * above, so lower it at each level of deeper trees. Scheduled instants are
+ * translated into each child's clock with an offset re-estimated every
+ * {@link #MAINTENANCE_INTERVAL_MILLIS}; children that could not be reached at
+ * startup are retried on the same schedule. Timeline calls are acknowledged per
+ * child, and the relay keeps its own timeline revision over its children's.
+ */
+public class RelayService extends UnicastRemoteObject implements RelayRemote {
+
+    public static final long CALL_TIMEOUT_MILLIS = Long.getLong("relay.callTimeoutMillis", StubManager.CALL_TIMEOUT_MILLIS / 2);
+    public static final int PARALLELISM = Integer.getInteger("relay.parallelism", BroadcastService.DEFAULT_PARALLELISM);
+    public static final long MAINTENANCE_INTERVAL_MILLIS = 30_000;
+
+    private static final List<Command> PLAY = List.of(Command.play());
+    private static final List<Command> PAUSE = List.of(Command.pause());
+    private static final List<Command> RESTART = List.of(Command.restart());
+
+    /**
+     * One call against a child, returning the acknowledgement of its subtree.
+     */
+    @FunctionalInterface
+    private interface ChildCall {
+        RelayReport invoke(String identifier, VideoPlayerRemote child) throws Exception;
+    }
+
+    private final transient List<String> children = new ArrayList<>();
+    private final transient Map<String, VideoPlayerRemote> stubs = new ConcurrentHashMap<>();
+    private final transient Map<String, Long> offsets = new ConcurrentHashMap<>();
+    private final transient Map<PlaybackListenerRemote, String> listeners = new ConcurrentHashMap<>();
+    private final transient HostMetrics metrics = new HostMetrics();
+    private final transient ClockSync clockSync = new ClockSync();
+    private final transient StubManager stubManager = new StubManager(this::onChildConnected, CALL_TIMEOUT_MILLIS);
+    private final transient BroadcastService pool = new BroadcastService(PARALLELISM);
+    private final transient ScheduledExecutorService maintenance;
+
+    // Timeline state, guarded by timelineLock
+    private final transient Object timelineLock = new Object();
+    private transient long revision;
+    private transient long timelineStart;
+    private final transient Map<String, Long> childRevisions = new HashMap<>();
+
+    /**
+     * Connects to the children in parallel; those that cannot be reached yet are retried in the background.
+     * @param children Child addresses, "hostname:port/serviceName".
+     */
+    public RelayService(List<String> children) throws RemoteException {
+        // Export with the tuned socket factories, on the fixed export port if one is configured
+        super(RmiTuning.EXPORT_PORT, RmiTuning.clientSocketFactory(), RmiTuning.serverSocketFactory());
+        for (String child : children) {
+            this.children.add(normalize(child));
+        }
+        maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "relay-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        List<Future<?>> connecting = new ArrayList<>();
+        for (String child : this.children) {
+            connecting.add(pool.submit(() -> {
+                connect(child);
+                return null;
+            }));
+        }
+        for (Future<?> future : connecting) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                // connect() reports its own failures
+            }
+        }
+        System.out.println("Relay connected to " + stubs.size() + " of " + this.children.size() + " children.");
+        maintenance.scheduleWithFixedDelay(this::maintain, MAINTENANCE_INTERVAL_MILLIS,
+                MAINTENANCE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public HostMetrics getMetricsRegistry() {
+        return metrics;
+    }
+
+    public void shutdown() {
+        maintenance.shutdownNow();
+        stubManager.shutdown();
+        pool.shutdown();
+    }
+
+    @Override
+    public void playVideo() throws RemoteException {
+        long received = System.nanoTime();
+        try {
+            complete(relay(PLAY), RemoteMethod.PLAY_VIDEO);
+        } finally {
+            metrics.recordCall(RemoteMethod.PLAY_VIDEO, System.nanoTime() - received);
+        }
+    }
+
+    @Override
+    public void pauseVideo() throws RemoteException {
+        long received = System.nanoTime();
+        try {
+            complete(relay(PAUSE), RemoteMethod.PAUSE_VIDEO);
+        } finally {
+            metrics.recordCall(RemoteMethod.PAUSE_VIDEO, System.nanoTime() - received);
+        }
+    }
+
+    @Override
+    public void restartVideo() throws RemoteException {
+        long received = System.nanoTime();
+        try {
+            complete(relay(RESTART), RemoteMethod.RESTART_VIDEO);
+        } finally {
+            metrics.recordCall(RemoteMethod.RESTART_VIDEO, System.nanoTime() - received);
+        }
+    }
+
+    @Override
+    public void selectVideo(String videoId) throws RemoteException {
+        long received = System.nanoTime();
+        try {
+            complete(relay(List.of(Command.selectVideo(videoId))), RemoteMethod.SELECT_VIDEO);
+        } finally {
+            metrics.recordCall(RemoteMethod.SELECT_VIDEO, System.nanoTime() - received);
+        }
+    }
+
+    @Override
+    public long currentTimeMillis() throws RemoteException {
+        long received = System.nanoTime();
+        long now = System.currentTimeMillis();
+        metrics.recordCall(RemoteMethod.CURRENT_TIME_MILLIS, System.nanoTime() - received);
+        return now;
+    }
+
+    @Override
+    public void playAt(long epochMillis) throws RemoteException {
+        long received = System.nanoTime();
+        try {
+            complete(relayAt(Command.Type.PLAY, epochMillis), RemoteMethod.PLAY_AT);
+        } finally {
+            metrics.recordCall(RemoteMethod.PLAY_AT, System.nanoTime() - received);
+        }
+    }
+
+    @Override
+    public void pauseAt(long epochMillis) throws RemoteException {
+        long received = System.nanoTime();
+        try {
+            complete(relayAt(Command.Type.PAUSE, epochMillis), RemoteMethod.PAUSE_AT);
+        } finally {
+            metrics.recordCall(RemoteMethod.PAUSE_AT, System.nanoTime() - received);
+        }
+    }
+
+    @Override
+    public void restartAt(long epochMillis) throws RemoteException {
+        long received = System.nanoTime();
+        try {
+            complete(relayAt(Command.Type.RESTART, epochMillis), RemoteMethod.RESTART_AT);
+        } finally {
+            metrics.recordCall(RemoteMethod.RESTART_AT, System.nanoTime() - received);
+        }
+    }
+
+    @Override
+    public long uploadTimeline(long startEpochMillis, List<Cue> cues) throws RemoteException {
+        long received = System.nanoTime();
+        try {
+            synchronized (timelineLock) {
+                Map<String, Long> uploaded = new ConcurrentHashMap<>();
+                RelayReport report = fanOut((identifier, child) -> {
+                    long begin = System.nanoTime();
+                    uploaded.put(identifier, child.uploadTimeline(startEpochMillis + offset(identifier), cues));
+                    return RelayReport.success(identifier, micros(begin));
+                });
+                revision++;
+                timelineStart = startEpochMillis;
+                childRevisions.clear();
+                childRevisions.putAll(uploaded);
+                complete(report, RemoteMethod.UPLOAD_TIMELINE);
+                return revision;
+            }
+        } finally {
+            metrics.recordCall(RemoteMethod.UPLOAD_TIMELINE, System.nanoTime() - received);
+        }
+    }
+
+    @Override
+    public long amendTimeline(long expectedRevision, int fromIndex, List<Cue> cues) throws RemoteException {
+        long received = System.nanoTime();
+        try {
+            synchronized (timelineLock) {
+                if (childRevisions.isEmpty()) {
+                    metrics.recordError(RemoteMethod.AMEND_TIMELINE);
+                    throw new IllegalStateException("No timeline to amend");
+                }
+                if (expectedRevision != revision) {
+                    metrics.recordError(RemoteMethod.AMEND_TIMELINE);
+                    throw new IllegalStateException("Timeline changed meanwhile, current revision is " + revision);
+                }
+                Map<String, Long> current = new HashMap<>(childRevisions);
+                Map<String, Long> amended = new ConcurrentHashMap<>();
+                RelayReport report = fanOut((identifier, child) -> {
+                    Long childRevision = current.get(identifier);
+                    if (childRevision == null) return RelayReport.failure(identifier, "No timeline to amend");
+                    long begin = System.nanoTime();
+                    amended.put(identifier, child.amendTimeline(childRevision, fromIndex, cues));
+                    return RelayReport.success(identifier, micros(begin));
+                });
+                revision++;
+                childRevisions.putAll(amended);
+                complete(report, RemoteMethod.AMEND_TIMELINE);
+                return revision;
+            }
+        } finally {
+            metrics.recordCall(RemoteMethod.AMEND_TIMELINE, System.nanoTime() - received);
+        }
+    }
+
+    /**
+     * Progress of the whole subtree: running while any child runs, fired cues of
+     * the child furthest behind, so amending from there is valid on every host.
+     */
+    @Override
+    public TimelineProgress getTimelineProgress() throws RemoteException {
+        long received = System.nanoTime();
+        try {
+            Map<String, TimelineProgress> progresses = new ConcurrentHashMap<>();
+            RelayReport report = fanOut((identifier, child) -> {
+                long begin = System.nanoTime();
+                progresses.put(identifier, child.getTimelineProgress());
+                return RelayReport.success(identifier, micros(begin));
+            });
+            if (progresses.isEmpty()) {
+                metrics.recordError(RemoteMethod.GET_TIMELINE_PROGRESS);
+                throw new IllegalStateException(report.toString());
+            }
+            return aggregate(progresses);
+        } finally {
+            metrics.recordCall(RemoteMethod.GET_TIMELINE_PROGRESS, System.nanoTime() - received);
+        }
+    }
+
+    @Override
+    public void cancelTimeline() throws RemoteException {
+        long received = System.nanoTime();
+        try {
+            complete(fanOut((identifier, child) -> {
+                long begin = System.nanoTime();
+                child.cancelTimeline();
+                return RelayReport.success(identifier, micros(begin));
+            }), RemoteMethod.CANCEL_TIMELINE);
+        } finally {
+            metrics.recordCall(RemoteMethod.CANCEL_TIMELINE, System.nanoTime() - received);
+        }
+    }
+
+    /**
+     * Runs the batch on every host below the relay; a command counts as failed
+     * unless every host applied the batch.
+     */
+    @Override
+    public BatchResult executeBatch(List<Command> commands) throws RemoteException {
+        long received = System.nanoTime();
+        RelayReport report = relay(commands);
+        BatchResult result = new BatchResult(commands.size());
+        if (!report.isComplete()) {
+            for (int i = 0; i < commands.size(); i++) {
+                result.fail(i, report.toString());
+            }
+            metrics.recordError(RemoteMethod.EXECUTE_BATCH);
+        }
+        metrics.recordCall(RemoteMethod.EXECUTE_BATCH, System.nanoTime() - received);
+        return result;
+    }
+
+    // Listeners are registered on every host below the relay, with the host in the tag,
+    // and again whenever a child reconnects
+    @Override
+    public void addPlaybackListener(PlaybackListenerRemote listener, String tag) throws RemoteException {
+        long received = System.nanoTime();
+        try {
+            listeners.put(listener, tag);
+            complete(fanOut((identifier, child) -> {
+                long begin = System.nanoTime();
+                child.addPlaybackListener(listener, tag + "@" + identifier);
+                return RelayReport.success(identifier, micros(begin));
+            }), RemoteMethod.ADD_PLAYBACK_LISTENER);
+        } finally {
+            metrics.recordCall(RemoteMethod.ADD_PLAYBACK_LISTENER, System.nanoTime() - received);
+        }
+    }
+
+    @Override
+    public void removePlaybackListener(PlaybackListenerRemote listener) throws RemoteException {
+        long received = System.nanoTime();
+        try {
+            listeners.remove(listener);
+            complete(fanOut((identifier, child) -> {
+                long begin = System.nanoTime();
+                child.removePlaybackListener(listener);
+                return RelayReport.success(identifier, micros(begin));
+            }), RemoteMethod.REMOVE_PLAYBACK_LISTENER);
+        } finally {
+            metrics.recordCall(RemoteMethod.REMOVE_PLAYBACK_LISTENER, System.nanoTime() - received);
+        }
+    }
+
+    // The relay's own counters; hosts below it are scraped directly
+    @Override
+    public MetricsSnapshot getMetrics() throws RemoteException {
+        long received = System.nanoTime();
+        MetricsSnapshot snapshot = metrics.snapshot();
+        metrics.recordCall(RemoteMethod.GET_METRICS, System.nanoTime() - received);
+        return snapshot;
+    }
+
+    // A relay has no player of its own: it reports the first of its hosts that answers, in the relay's clock
+    @Override
+    public PositionSample samplePosition() throws RemoteException {
+        long received = System.nanoTime();
+        try {
+            for (String child : children) {
+                VideoPlayerRemote stub = stubs.get(child);
+                if (stub == null) continue;
+                try {
+                    PositionSample sample = stub.samplePosition();
+                    return new PositionSample(sample.getVideoId(), sample.getStatus(), sample.getPositionMillis(),
+                            sample.getSampledAtEpochMillis() - offset(child), sample.getDurationMillis(), sample.getRate());
+                } catch (Exception e) {
+                    // Try the next child
+                }
+            }
+            metrics.recordError(RemoteMethod.SAMPLE_POSITION);
+            throw new IllegalStateException("No child could be sampled");
+        } finally {
+            metrics.recordCall(RemoteMethod.SAMPLE_POSITION, System.nanoTime() - received);
+        }
+    }
+
+    // Every host below the relay follows the reference, translated into its own clock;
+    // returns the largest drift found
+    @Override
+    public long syncTo(String videoId, long positionMillis, long atEpochMillis) throws RemoteException {
+        long received = System.nanoTime();
+        try {
+            AtomicLong worst = new AtomicLong();
+            complete(fanOut((identifier, child) -> {
+                long begin = System.nanoTime();
+                long drift = child.syncTo(videoId, positionMillis, atEpochMillis + offset(identifier));
+                worst.accumulateAndGet(drift, (a, b) -> Math.abs(b) > Math.abs(a) ? b : a);
+                return RelayReport.success(identifier, micros(begin));
+            }), RemoteMethod.SYNC_TO);
+            return worst.get();
+        } finally {
+            metrics.recordCall(RemoteMethod.SYNC_TO, System.nanoTime() - received);
+        }
+    }
+
+    @Override
+    public void resetRate() throws RemoteException {
+        long received = System.nanoTime();
+        try {
+            complete(fanOut((identifier, child) -> {
+                long begin = System.nanoTime();
+                child.resetRate();
+                return RelayReport.success(identifier, micros(begin));
+            }), RemoteMethod.RESET_RATE);
+        } finally {
+            metrics.recordCall(RemoteMethod.RESET_RATE, System.nanoTime() - received);
+        }
+    }
+
+    @Override
+    public RelayReport forward(List<Command> commands) throws RemoteException {
+        long received = System.nanoTime();
+        RelayReport report = relay(commands);
+        if (!report.isComplete()) metrics.recordError(RemoteMethod.FORWARD);
+        metrics.recordCall(RemoteMethod.FORWARD, System.nanoTime() - received);
+        return report;
+    }
+
+    @Override
+    public RelayReport forwardAt(Command.Type type, long epochMillis) throws RemoteException {
+        long received = System.nanoTime();
+        try {
+            RelayReport report = relayAt(type, epochMillis);
+            if (!report.isComplete()) metrics.recordError(RemoteMethod.FORWARD_AT);
+            return report;
+        } finally {
+            metrics.recordCall(RemoteMethod.FORWARD_AT, System.nanoTime() - received);
+        }
+    }
+
+    @Override
+    public List<String> getChildren() throws RemoteException {
+        long received = System.nanoTime();
+        List<String> list = new ArrayList<>(children);
+        metrics.recordCall(RemoteMethod.GET_CHILDREN, System.nanoTime() - received);
+        return list;
+    }
+
+    // Child relays forward the whole batch to their subtree, hosts run it in one round trip
+    private RelayReport relay(List<Command> commands) {
+        return fanOut((identifier, child) -> {
+            if (child instanceof RelayRemote) {
+                RelayReport subtree = new RelayReport();
+                subtree.add(((RelayRemote) child).forward(commands), identifier);
+                return subtree;
+            }
+            long begin = System.nanoTime();
+            BatchResult result = child.executeBatch(commands);
+            for (int i = 0; i < result.size(); i++) {
+                if (!result.isSuccess(i)) return RelayReport.failure(identifier, "Command #" + i + ": " + result.getError(i));
+            }
+            return RelayReport.success(identifier, micros(begin));
+        });
+    }
+
+    // Each child gets the instant in its own clock
+    private RelayReport relayAt(Command.Type type, long epochMillis) {
+        if (type != Command.Type.PLAY && type != Command.Type.PAUSE && type != Command.Type.RESTART) {
+            throw new IllegalArgumentException("Only PLAY, PAUSE and RESTART can be scheduled, not " + type);
+        }
+        return fanOut((identifier, child) -> {
+            long childEpochMillis = epochMillis + offset(identifier);
+            if (child instanceof RelayRemote) {
+                RelayReport subtree = new RelayReport();
+                subtree.add(((RelayRemote) child).forwardAt(type, childEpochMillis), identifier);
+                return subtree;
+            }
+            long begin = System.nanoTime();
+            switch (type) {
+                case PLAY:
+                    child.playAt(childEpochMillis);
+                    break;
+                case PAUSE:
+                    child.pauseAt(childEpochMillis);
+                    break;
+                default:
+                    child.restartAt(childEpochMillis);
+                    break;
+            }
+            return RelayReport.success(identifier, micros(begin));
+        });
+    }
+
+    // Calls every child in parallel and waits for all of them; children that are not connected count as failed
+    private RelayReport fanOut(ChildCall call) {
+        RelayReport report = new RelayReport();
+        List<Future<RelayReport>> futures = new ArrayList<>(children.size());
+        for (String child : children) {
+            VideoPlayerRemote stub = stubs.get(child);
+            if (stub == null) {
+                report.add(RelayReport.failure(child, "Not connected"), null);
+                continue;
+            }
+            futures.add(pool.submit(() -> {
+                try {
+                    return call.invoke(child, stub);
+                } catch (Exception e) {
+                    return RelayReport.failure(child, e.getMessage());
+                }
+            }));
+        }
+        for (Future<RelayReport> future : futures) {
+            try {
+                report.add(future.get(), null);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while relaying");
+            } catch (ExecutionException e) {
+                // The task catches everything the child call throws
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        return report;
+    }
+
+    // Plain calls succeed only if every host below the relay took the command
+    private void complete(RelayReport report, RemoteMethod method) {
+        if (report.isComplete()) return;
+        metrics.recordError(method);
+        throw new IllegalStateException(report.toString());
+    }
+
+    private TimelineProgress aggregate(Map<String, TimelineProgress> progresses) {
+        int total = 0;
+        int fired = Integer.MAX_VALUE;
+        long next = -1;
+        long lateness = 0;
+        boolean running = false;
+        boolean cancelled = false;
+        boolean finished = true;
+        for (Map.Entry<String, TimelineProgress> entry : progresses.entrySet()) {
+            TimelineProgress progress = entry.getValue();
+            total = Math.max(total, progress.getTotalCues());
+            fired = Math.min(fired, progress.getFiredCues());
+            lateness = Math.max(lateness, progress.getMaxLatenessMicros());
+            if (progress.getNextCueEpochMillis() >= 0) {
+                // Back into the relay's clock
+                long local = progress.getNextCueEpochMillis() - offset(entry.getKey());
+                next = next < 0 ? local : Math.min(next, local);
+            }
+            running |= progress.getState() == TimelineProgress.State.RUNNING;
+            cancelled |= progress.getState() == TimelineProgress.State.CANCELLED;
+            finished &= progress.getState() == TimelineProgress.State.FINISHED;
+        }
+        TimelineProgress.State state = running ? TimelineProgress.State.RUNNING
+                : finished ? TimelineProgress.State.FINISHED
+                : cancelled ? TimelineProgress.State.CANCELLED : TimelineProgress.State.IDLE;
+        synchronized (timelineLock) {
+            return new TimelineProgress(state, revision, timelineStart, total, fired, next, lateness);
+        }
+    }
+
+    private void connect(String identifier) {
+        int colon = identifier.lastIndexOf(':');
+        int slash = identifier.indexOf('/', colon);
+        try {
+            VideoPlayerRemote stub = stubManager.connect(identifier.substring(0, colon),
+                    Integer.parseInt(identifier.substring(colon + 1, slash)), identifier.substring(slash + 1));
+            stubs.put(identifier, stub);
+        } catch (Exception e) {
+            System.err.println("Could not connect to child " + identifier + ": " + e.getMessage());
+        }
+    }
+
+    // Runs after every (re)connection, with the raw stub
+    private void onChildConnected(String identifier, VideoPlayerRemote stub) {
+        try {
+            offsets.put(identifier, clockSync.estimateOffset(stub));
+        } catch (RemoteException e) {
+            System.err.println("Could not estimate the clock offset of " + identifier + ": " + e.getMessage());
+        }
+        listeners.forEach((listener, tag) -> {
+            try {
+                stub.addPlaybackListener(listener, tag + "@" + identifier);
+            } catch (RemoteException e) {
+                System.err.println("Could not register playback listener on " + identifier + ": " + e.getMessage());
+            }
+        });
+    }
+
+    // Connects children that were down at startup and keeps the clock offsets fresh
+    private void maintain() {
+        for (String child : children) {
+            VideoPlayerRemote stub = stubs.get(child);
+            if (stub == null) {
+                connect(child);
+                continue;
+            }
+            try {
+                offsets.put(child, clockSync.estimateOffset(stub));
+            } catch (RemoteException e) {
+                // The breaker reconnects it and the offset is estimated again then
+            }
+        }
+    }
+
+    private long offset(String identifier) {
+        return offsets.getOrDefault(identifier, 0L);
+    }
+
+    private static long micros(long beginNanos) {
+        return (System.nanoTime() - beginNanos) / 1000;
+    }
+
+    // "hostname:port/serviceName", the form StubManager identifies hosts by
+    private static String normalize(String child) {
+        String trimmed = child.trim();
+        int colon = trimmed.lastIndexOf(':');
+        int slash = trimmed.indexOf('/', colon);
+        if (colon <= 0 || slash < 0 || slash == trimmed.length() - 1) {
+            throw new IllegalArgumentException("Child must be hostname:port/serviceName: " + child);
+        }
+        try {
+            return StubManager.identifier(trimmed.substring(0, colon),
+                    Integer.parseInt(trimmed.substring(colon + 1, slash)), trimmed.substring(slash + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid port in child " + child);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package services;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fires actions at a wall-clock instant with sub-millisecond precision.
+ * The action is scheduled to wake up slightly early and then spins on
+ * {@link System#nanoTime()} until the exact deadline, which avoids the
+ * scheduling jitter of a plain sleep.
+ */
+public class ScheduledCommandTimer {
+
+    // How long before the deadline the timer thread wakes up and starts spinning
+    private static final long SPIN_WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+
+    private final ScheduledThreadPoolExecutor executor;
+
+    public ScheduledCommandTimer() {
+        executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "scheduled-commands");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MAX_PRIORITY);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Runs {@code action} on the timer thread when the local clock reaches {@code epochMillis}.
+     * Instants in the past run immediately.
+     * @param epochMillis Target instant in milliseconds since the epoch, in host clock.
+     * @param action The action to run.
+     * @return A handle that can cancel the action before it starts.
+     */
+    public ScheduledFuture<?> schedule(long epochMillis, Runnable action) {
+        // Translate the wall-clock target once into the monotonic clock
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(epochMillis - System.currentTimeMillis());
+        long delay = deadline - System.nanoTime() - SPIN_WINDOW_NANOS;
+
+        return executor.schedule(() -> {
+            while (System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+            }
+            action.run();
+        }, Math.max(0, delay), TimeUnit.NANOSECONDS);
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
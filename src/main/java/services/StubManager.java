@@ -0,0 +1,342 @@
+package services;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.rmi.NotBoundException;
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.RMIClientSocketFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import services.net.RmiTuning;
+import services.primitives.ContentDistributionRemote;
+import services.primitives.PreviewRemote;
+import services.primitives.VideoPlayerRemote;
+
+/**
+ * Keeps controller connections to hosts healthy.
+ * <p>
+ * {@link #connect(String, int, String)} returns a proxy that runs every call
+ * against the host's current stub with a deadline. A failed or timed out call
+ * trips the host's circuit breaker: further calls fail fast with
+ * {@link HostUnavailableException} while a background task re-resolves the
+ * registry and looks the service up again, backing off exponentially with
+ * jitter. Healthy hosts are probed with a lightweight heartbeat so a dead
+ * connection is noticed before the next cue.
+ * <p>
+ * Deadlines can be tuned with the {@code control.callTimeoutMillis} and
+ * {@code control.heartbeatMillis} system properties; socket level timeouts
+ * come from {@link RmiTuning}.
+ */
+public class StubManager {
+
+    public static final long CALL_TIMEOUT_MILLIS = Long.getLong("control.callTimeoutMillis", 3000);
+    public static final long HEARTBEAT_MILLIS = Long.getLong("control.heartbeatMillis", 2000);
+
+    private static final long BACKOFF_BASE_MILLIS = 250;
+    private static final long BACKOFF_MAX_MILLIS = 30_000;
+
+    /**
+     * Limits how long the RMI runtime waits for a response on an established connection to
+     * {@link #CALL_TIMEOUT_MILLIS}, unless {@code sun.rmi.transport.tcp.responseTimeout} was given
+     * on the command line. The runtime reads it only once, so entry points call this first thing
+     * in {@code main}, before any remote call.
+     */
+    public static void useCallTimeoutForResponses() {
+        if (System.getProperty("sun.rmi.transport.tcp.responseTimeout") == null) {
+            System.setProperty("sun.rmi.transport.tcp.responseTimeout", String.valueOf(CALL_TIMEOUT_MILLIS));
+        }
+    }
+
+    public enum State { CONNECTED, OPEN, RECONNECTING }
+
+    /**
+     * Connection state of one host.
+     */
+    public static class ManagedHost {
+        private final String identifier;
+        private final String hostname;
+        private final int port;
+        private final String serviceName;
+        private volatile VideoPlayerRemote stub;
+        private volatile State state = State.CONNECTED;
+        private volatile int failures;
+        private volatile long nextAttemptMillis;
+        private volatile long latencyMicros = -1;
+
+        ManagedHost(String identifier, String hostname, int port, String serviceName, VideoPlayerRemote stub) {
+            this.identifier = identifier;
+            this.hostname = hostname;
+            this.port = port;
+            this.serviceName = serviceName;
+            this.stub = stub;
+        }
+
+        public String getIdentifier() {
+            return identifier;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        public int getFailures() {
+            return failures;
+        }
+
+        public VideoPlayerRemote getStub() {
+            return stub;
+        }
+
+        /**
+         * @return Round trip of the last heartbeat or reconnection probe, -1 before the first one.
+         */
+        public long getLatencyMicros() {
+            return latencyMicros;
+        }
+    }
+
+    private final Map<String, ManagedHost> hosts = new ConcurrentHashMap<>();
+    private final BiConsumer<String, VideoPlayerRemote> onConnected;
+    private final long callTimeoutMillis;
+    private final ExecutorService callers;
+    private final ScheduledExecutorService heartbeat;
+    private final RMIClientSocketFactory registrySocketFactory = RmiTuning.clientSocketFactory();
+
+    /**
+     * @param onConnected Called with the identifier and raw stub after every successful
+     *                    (re)connection, e.g. to register callbacks again. May be {@code null}.
+     */
+    public StubManager(BiConsumer<String, VideoPlayerRemote> onConnected) {
+        this(onConnected, CALL_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param callTimeoutMillis Deadline of every call, e.g. shorter for a relay than for the controller above it.
+     */
+    public StubManager(BiConsumer<String, VideoPlayerRemote> onConnected, long callTimeoutMillis) {
+        this.onConnected = onConnected;
+        this.callTimeoutMillis = callTimeoutMillis;
+        AtomicInteger counter = new AtomicInteger();
+        this.callers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "stub-call-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stub-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat.scheduleWithFixedDelay(this::checkHosts, HEARTBEAT_MILLIS, HEARTBEAT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return The identifier used for a service, "hostname:port/serviceName".
+     */
+    public static String identifier(String hostname, int port, String serviceName) {
+        return String.format("%s:%d/%s", hostname, port, serviceName);
+    }
+
+    /**
+     * Looks up the service and starts managing it.
+     * @return A proxy that routes calls through the manager; it stays valid across reconnections.
+     *         It implements every remote interface of the service, e.g. {@code RelayRemote} for a relay.
+     */
+    public VideoPlayerRemote connect(String hostname, int port, String serviceName)
+            throws RemoteException, NotBoundException {
+        String identifier = identifier(hostname, port, serviceName);
+        VideoPlayerRemote stub = lookup(hostname, port, serviceName);
+        ManagedHost host = new ManagedHost(identifier, hostname, port, serviceName, stub);
+        hosts.put(identifier, host);
+        if (onConnected != null) {
+            onConnected.accept(identifier, stub);
+        }
+        return (VideoPlayerRemote) Proxy.newProxyInstance(VideoPlayerRemote.class.getClassLoader(),
+                remoteInterfaces(stub), new ManagedInvocationHandler(host));
+    }
+
+    private static Class<?>[] remoteInterfaces(VideoPlayerRemote stub) {
+        List<Class<?>> interfaces = new ArrayList<>();
+        for (Class<?> type : stub.getClass().getInterfaces()) {
+            if (VideoPlayerRemote.class.isAssignableFrom(type)) interfaces.add(type);
+        }
+        if (interfaces.isEmpty()) interfaces.add(VideoPlayerRemote.class);
+        return interfaces.toArray(new Class<?>[0]);
+    }
+
+    /**
+     * Looks up the content distribution service bound next to a managed host's player.
+     * The stub is not managed: transfers do their own retrying and resuming.
+     */
+    public ContentDistributionRemote lookupContent(String identifier) throws RemoteException, NotBoundException {
+        return (ContentDistributionRemote) lookupBeside(identifier, ContentDistributionRemote.SERVICE_SUFFIX);
+    }
+
+    /**
+     * Looks up the preview service bound next to a managed host's player. Not managed either:
+     * a controller subscribes again when it wants previews after a reconnection.
+     */
+    public PreviewRemote lookupPreview(String identifier) throws RemoteException, NotBoundException {
+        return (PreviewRemote) lookupBeside(identifier, PreviewRemote.SERVICE_SUFFIX);
+    }
+
+    private Remote lookupBeside(String identifier, String suffix) throws RemoteException, NotBoundException {
+        ManagedHost host = hosts.get(identifier);
+        if (host == null) {
+            throw new NotBoundException("Not connected to " + identifier);
+        }
+        Registry registry = LocateRegistry.getRegistry(host.hostname, host.port, registrySocketFactory);
+        return registry.lookup(host.serviceName + suffix);
+    }
+
+    public void remove(String identifier) {
+        hosts.remove(identifier);
+    }
+
+    public ManagedHost getHost(String identifier) {
+        return hosts.get(identifier);
+    }
+
+    public List<ManagedHost> getHosts() {
+        return new ArrayList<>(hosts.values());
+    }
+
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        callers.shutdownNow();
+    }
+
+    private VideoPlayerRemote lookup(String hostname, int port, String serviceName)
+            throws RemoteException, NotBoundException {
+        Registry registry = LocateRegistry.getRegistry(hostname, port, registrySocketFactory);
+        return (VideoPlayerRemote) registry.lookup(serviceName);
+    }
+
+    // Runs a call on the current stub, bounded by the call deadline
+    private Object invoke(ManagedHost host, Method method, Object[] args) throws Throwable {
+        if (host.state != State.CONNECTED) {
+            throw new HostUnavailableException(host.identifier + " is unavailable, reconnecting");
+        }
+        VideoPlayerRemote stub = host.stub;
+        Future<Object> future = callers.submit(() -> method.invoke(stub, args));
+        try {
+            Object result = future.get(callTimeoutMillis, TimeUnit.MILLISECONDS);
+            host.failures = 0;
+            return result;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            trip(host);
+            throw new RemoteException("Call to " + host.identifier + " timed out after " + callTimeoutMillis + " ms");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof InvocationTargetException
+                    ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof RemoteException) {
+                trip(host);
+            }
+            throw cause;
+        }
+    }
+
+    // Opens the breaker and schedules the next reconnection attempt
+    private void trip(ManagedHost host) {
+        synchronized (host) {
+            if (host.state != State.CONNECTED) return;
+            int failures = ++host.failures;
+            host.state = State.OPEN;
+            host.nextAttemptMillis = System.currentTimeMillis() + backoff(failures);
+        }
+        System.err.println("Connection to " + host.identifier + " lost, reconnecting in the background.");
+    }
+
+    // Exponential backoff with full jitter, capped at BACKOFF_MAX_MILLIS
+    private static long backoff(int failures) {
+        long ceiling = Math.min(BACKOFF_MAX_MILLIS, BACKOFF_BASE_MILLIS << Math.min(failures - 1, 16));
+        return ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1);
+    }
+
+    private void checkHosts() {
+        long now = System.currentTimeMillis();
+        for (ManagedHost host : hosts.values()) {
+            if (host.state == State.CONNECTED) {
+                callers.execute(() -> ping(host));
+            } else if (host.state == State.OPEN && now >= host.nextAttemptMillis) {
+                host.state = State.RECONNECTING;
+                callers.execute(() -> reconnect(host));
+            }
+        }
+    }
+
+    private void ping(ManagedHost host) {
+        long begin = System.nanoTime();
+        Future<Long> future = callers.submit(() -> host.stub.currentTimeMillis());
+        try {
+            future.get(callTimeoutMillis, TimeUnit.MILLISECONDS);
+            host.latencyMicros = (System.nanoTime() - begin) / 1000;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            future.cancel(true);
+            trip(host);
+        }
+    }
+
+    private void reconnect(ManagedHost host) {
+        try {
+            VideoPlayerRemote stub = lookup(host.hostname, host.port, host.serviceName);
+            long begin = System.nanoTime();
+            stub.currentTimeMillis();
+            host.latencyMicros = (System.nanoTime() - begin) / 1000;
+            if (onConnected != null) {
+                onConnected.accept(host.identifier, stub);
+            }
+            host.stub = stub;
+            host.failures = 0;
+            host.state = State.CONNECTED;
+            System.out.println("Reconnected to " + host.identifier + ".");
+        } catch (Exception e) {
+            synchronized (host) {
+                int failures = ++host.failures;
+                host.nextAttemptMillis = System.currentTimeMillis() + backoff(failures);
+                host.state = State.OPEN;
+            }
+        }
+    }
+
+    private class ManagedInvocationHandler implements InvocationHandler {
+        private final ManagedHost host;
+
+        ManagedInvocationHandler(ManagedHost host) {
+            this.host = host;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                switch (method.getName()) {
+                    case "equals": return proxy == args[0];
+                    case "hashCode": return System.identityHashCode(proxy);
+                    default: return "Managed[" + host.identifier + "]";
+                }
+            }
+            return StubManager.this.invoke(host, method, args);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package services;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import services.primitives.PlaybackStatus;
+import services.primitives.PositionSample;
+import services.primitives.VideoPlayerRemote;
+
+/**
+ * Keeps a group of hosts playing in step for as long as it runs.
+ * <p>
+ * Every round the leader's position is sampled together with its clock, turned
+ * into the controller's clock with the leader's offset and sent to each member
+ * in that member's clock; members correct themselves (see {@link DriftCorrector}).
+ * Since the reference carries its own timestamp, call latency does not add to the
+ * error, which is bounded by the clock offset estimates. Offsets are estimated
+ * again every {@link #OFFSET_REFRESH_MILLIS}, as clocks drift apart over hours.
+ * Whenever corrections stop, because the group stops or the leader is not
+ * playing, members are put back to normal rate rather than left nudged.
+ * <p>
+ * The round interval can be tuned with the {@code sync.intervalMillis} system property.
+ */
+public class SyncGroup {
+
+    public static final long INTERVAL_MILLIS = Long.getLong("sync.intervalMillis", 1000);
+    public static final long OFFSET_REFRESH_MILLIS = 60_000;
+
+    private static final AtomicInteger GROUPS = new AtomicInteger();
+
+    private final String leader;
+    private final Map<String, VideoPlayerRemote> members;
+    private final ClockSync clockSync;
+    private final BroadcastService pool;
+    private final ScheduledExecutorService rounds;
+
+    private final Map<String, Long> offsets = new ConcurrentHashMap<>();
+    private final Map<String, Long> drifts = new ConcurrentHashMap<>();
+    private final Map<String, String> errors = new ConcurrentHashMap<>();
+    private volatile PositionSample reference;
+    private long offsetsEstimatedAt; // Round thread only
+    private String leaderError; // Round thread only
+    private boolean correcting; // Round thread only; members may be nudged
+
+    /**
+     * @param members Hosts of the group keyed by identifier; the first one is the leader and is never corrected.
+     * @param pool Runs the calls to members in parallel.
+     */
+    public SyncGroup(Map<String, VideoPlayerRemote> members, ClockSync clockSync, BroadcastService pool) {
+        if (members.size() < 2) throw new IllegalArgumentException("A sync group needs at least two hosts");
+        this.members = new LinkedHashMap<>(members);
+        this.leader = this.members.keySet().iterator().next();
+        this.clockSync = clockSync;
+        this.pool = pool;
+        int group = GROUPS.incrementAndGet();
+        this.rounds = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sync-group-" + group);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start() {
+        rounds.scheduleWithFixedDelay(this::round, 0, INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        rounds.shutdownNow();
+        try {
+            // A round in progress could nudge a member again after the reset
+            rounds.awaitTermination(INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            resetRates();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public String getLeader() {
+        return leader;
+    }
+
+    // The last leader sample, null before the first
+    public PositionSample getReference() {
+        return reference;
+    }
+
+    /**
+     * @return The last drift measured on each member, in milliseconds; positive means ahead of the leader.
+     */
+    public Map<String, Long> getDrifts() {
+        return new LinkedHashMap<>(drifts);
+    }
+
+    /**
+     * @return Why the last correction of a member failed, for members whose last round failed.
+     */
+    public Map<String, String> getErrors() {
+        return new LinkedHashMap<>(errors);
+    }
+
+    private void round() {
+        try {
+            long now = System.currentTimeMillis();
+            if (now - offsetsEstimatedAt >= OFFSET_REFRESH_MILLIS) {
+                estimateOffsets();
+                offsetsEstimatedAt = now;
+            }
+
+            PositionSample sample;
+            try {
+                sample = members.get(leader).samplePosition();
+                if (leaderError != null) System.out.println("Sync group leader " + leader + " is back.");
+                leaderError = null;
+            } catch (Exception e) {
+                if (leaderError == null) System.err.println("Cannot sample sync group leader " + leader + ": " + e.getMessage());
+                leaderError = String.valueOf(e.getMessage());
+                if (correcting) resetRates();
+                return;
+            }
+            reference = sample;
+            if (sample.getStatus() != PlaybackStatus.PLAYING) {
+                if (correcting) resetRates();
+                return;
+            }
+            correcting = true;
+
+            // The leader's sample instant in the controller's clock
+            long sampledAt = sample.getSampledAtEpochMillis() - offsets.getOrDefault(leader, 0L);
+            List<String> identifiers = new ArrayList<>();
+            List<Future<Long>> corrections = new ArrayList<>();
+            for (Map.Entry<String, VideoPlayerRemote> member : members.entrySet()) {
+                if (member.getKey().equals(leader)) continue;
+                long memberAt = sampledAt + offsets.getOrDefault(member.getKey(), 0L);
+                VideoPlayerRemote service = member.getValue();
+                identifiers.add(member.getKey());
+                corrections.add(pool.submit(() -> service.syncTo(sample.getVideoId(), sample.getPositionMillis(), memberAt)));
+            }
+            for (int i = 0; i < corrections.size(); i++) {
+                String identifier = identifiers.get(i);
+                try {
+                    drifts.put(identifier, corrections.get(i).get());
+                    errors.remove(identifier);
+                } catch (ExecutionException e) {
+                    errors.put(identifier, String.valueOf(e.getCause().getMessage()));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            // A failed round must not cancel the schedule
+            System.err.println("Sync group round failed: " + e.getMessage());
+        }
+    }
+
+    // Puts every member back to normal rate; one that cannot be reached is reported like a failed correction
+    private void resetRates() throws InterruptedException {
+        correcting = false;
+        Map<String, Future<?>> resets = new LinkedHashMap<>();
+        for (Map.Entry<String, VideoPlayerRemote> member : members.entrySet()) {
+            if (member.getKey().equals(leader)) continue;
+            VideoPlayerRemote service = member.getValue();
+            resets.put(member.getKey(), pool.submit(() -> {
+                service.resetRate();
+                return null;
+            }));
+        }
+        for (Map.Entry<String, Future<?>> reset : resets.entrySet()) {
+            try {
+                reset.getValue().get();
+            } catch (ExecutionException e) {
+                errors.put(reset.getKey(), String.valueOf(e.getCause().getMessage()));
+            }
+        }
+    }
+
+    private void estimateOffsets() throws InterruptedException {
+        Map<String, Future<Long>> estimates = new LinkedHashMap<>();
+        for (Map.Entry<String, VideoPlayerRemote> member : members.entrySet()) {
+            VideoPlayerRemote service = member.getValue();
+            estimates.put(member.getKey(), pool.submit(() -> clockSync.estimateOffset(service)));
+        }
+        for (Map.Entry<String, Future<Long>> estimate : estimates.entrySet()) {
+            try {
+                offsets.put(estimate.getKey(), estimate.getValue().get());
+            } catch (ExecutionException e) {
+                // Keeps the previous estimate; the member is reported through its failing corrections
+            }
+        }
+    }
+}
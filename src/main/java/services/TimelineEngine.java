@@ -0,0 +1,217 @@
+package services;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import services.primitives.Command;
+import services.primitives.Cue;
+import services.primitives.TimelineProgress;
+
+/**
+ * Runs an uploaded timeline of cues from the host's own clock, so cues keep
+ * firing on time when the controller or the network is slow or gone.
+ * <p>
+ * Only the next cue is armed on the {@link ScheduledCommandTimer}; each cue arms
+ * the following one when it fires, and amending simply re-arms. Transport cues are
+ * applied straight from the timer thread like {@code playAt}. Video switches go
+ * through the {@link HostCommandPipeline}, and so does any cue that follows a switch
+ * the pipeline has not applied yet, so cue order is kept. Cues that are already due
+ * when they are armed, e.g. after a late upload, fire immediately and in order.
+ */
+public class TimelineEngine {
+
+    private final ScheduledCommandTimer timer;
+    private final HostCommandPipeline.Lane pipeline;
+    private final Consumer<Command> direct;
+    private volatile Consumer<String> upcomingVideoListener;
+
+    // Guarded by this
+    private TimelineProgress.State state = TimelineProgress.State.IDLE;
+    private long revision;
+    private long startEpochMillis;
+    private List<Cue> cues = new ArrayList<>();
+    private int fired;
+    private long maxLatenessNanos;
+    private ScheduledFuture<?> armed;
+    private String hintedVideo;
+
+    // Pipeline sequence of the last video switch cue; only touched by the timer thread
+    private long switchSequence;
+
+    /**
+     * Engine for a player without a pipeline, e.g. a simulated one: every cue goes to {@code direct}.
+     */
+    public TimelineEngine(ScheduledCommandTimer timer, Consumer<Command> direct) {
+        this(timer, null, direct);
+    }
+
+    /**
+     * @param direct Applies transport commands immediately, on the timer thread.
+     */
+    public TimelineEngine(ScheduledCommandTimer timer, HostCommandPipeline.Lane pipeline, Consumer<Command> direct) {
+        this.timer = timer;
+        this.pipeline = pipeline;
+        this.direct = direct;
+    }
+
+    /**
+     * Registers a callback told about the next video the timeline will switch to, e.g. to pre-roll it.
+     */
+    public void setUpcomingVideoListener(Consumer<String> listener) {
+        this.upcomingVideoListener = listener;
+    }
+
+    /**
+     * Replaces the current timeline and starts running it.
+     * @param startEpochMillis Host clock instant that cue offsets are relative to.
+     * @return The new revision.
+     */
+    public synchronized long upload(long startEpochMillis, List<Cue> newCues) {
+        List<Cue> sorted = sorted(newCues);
+        disarm();
+        this.startEpochMillis = startEpochMillis;
+        cues = sorted;
+        fired = 0;
+        maxLatenessNanos = 0;
+        hintedVideo = null;
+        revision++;
+        state = TimelineProgress.State.RUNNING;
+        armNext();
+        return revision;
+    }
+
+    /**
+     * Replaces the cues from {@code fromIndex} on. Cues that already fired cannot be changed;
+     * the replacement is merged by offset with the kept cues still to fire, so they all fire in order.
+     * @param expectedRevision The revision the caller based its change on.
+     * @return The new revision.
+     */
+    public synchronized long amend(long expectedRevision, int fromIndex, List<Cue> replacement) {
+        if (state == TimelineProgress.State.IDLE || state == TimelineProgress.State.CANCELLED) {
+            throw new IllegalStateException("No timeline to amend");
+        }
+        if (expectedRevision != revision) {
+            throw new IllegalStateException("Timeline changed meanwhile, current revision is " + revision);
+        }
+        if (fromIndex < fired || fromIndex > cues.size()) {
+            throw new IllegalArgumentException("Cannot amend from cue " + fromIndex + ": " + fired + " cue(s) already fired");
+        }
+        // Kept cues that have not fired are sorted in with the replacement, since cues are armed by index
+        List<Cue> pending = new ArrayList<>(cues.subList(fired, fromIndex));
+        pending.addAll(replacement);
+        List<Cue> tail = sorted(pending);
+        disarm();
+        List<Cue> updated = new ArrayList<>(cues.subList(0, fired));
+        updated.addAll(tail);
+        cues = updated;
+        hintedVideo = null;
+        revision++;
+        state = TimelineProgress.State.RUNNING;
+        armNext();
+        return revision;
+    }
+
+    public synchronized void cancel() {
+        disarm();
+        if (state == TimelineProgress.State.RUNNING) {
+            state = TimelineProgress.State.CANCELLED;
+        }
+        revision++;
+    }
+
+    public synchronized TimelineProgress progress() {
+        long next = fired < cues.size() && state == TimelineProgress.State.RUNNING
+                ? startEpochMillis + cues.get(fired).getOffsetMillis() : -1;
+        return new TimelineProgress(state, revision, startEpochMillis, cues.size(), fired, next,
+                TimeUnit.NANOSECONDS.toMicros(maxLatenessNanos));
+    }
+
+    // Caller holds the lock
+    private void armNext() {
+        if (fired >= cues.size()) {
+            state = TimelineProgress.State.FINISHED;
+            armed = null;
+            return;
+        }
+        hintUpcomingVideo();
+        long due = startEpochMillis + cues.get(fired).getOffsetMillis();
+        // Same wall-clock to monotonic translation as the timer, to measure how late the cue fires
+        long dueNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(due - System.currentTimeMillis());
+        long armedRevision = revision;
+        int index = fired;
+        armed = timer.schedule(due, () -> fire(armedRevision, index, dueNanos));
+    }
+
+    private void fire(long armedRevision, int index, long dueNanos) {
+        Command command;
+        synchronized (this) {
+            // Stale if the timeline was amended or cancelled after this cue was armed
+            if (armedRevision != revision || index != fired) return;
+            command = cues.get(index).getCommand();
+            fired++;
+            maxLatenessNanos = Math.max(maxLatenessNanos, System.nanoTime() - dueNanos);
+        }
+
+        try {
+            if (pipeline == null) {
+                direct.accept(command);
+            } else if (command.getType() == Command.Type.SELECT_VIDEO) {
+                switchSequence = pipeline.submit(command);
+            } else if (pipeline.getLastAppliedSequence() < switchSequence) {
+                // The switch has not reached the player yet; queue behind it
+                pipeline.submit(command);
+            } else {
+                direct.accept(command);
+            }
+        } catch (Exception e) {
+            System.err.println("Error firing cue " + index + " (" + command + "): " + e.getMessage());
+        }
+
+        synchronized (this) {
+            if (armedRevision == revision) armNext();
+        }
+    }
+
+    private void disarm() {
+        if (armed != null) {
+            armed.cancel(false);
+            armed = null;
+        }
+    }
+
+    // Caller holds the lock
+    private void hintUpcomingVideo() {
+        Consumer<String> listener = upcomingVideoListener;
+        if (listener == null) return;
+        for (int i = fired; i < cues.size(); i++) {
+            Command command = cues.get(i).getCommand();
+            if (command.getType() == Command.Type.SELECT_VIDEO) {
+                if (!command.getVideoId().equals(hintedVideo)) {
+                    hintedVideo = command.getVideoId();
+                    listener.accept(hintedVideo);
+                }
+                return;
+            }
+        }
+    }
+
+    // Stable sort, so cues at the same offset keep the order they were given in
+    private static List<Cue> sorted(List<Cue> cues) {
+        List<Cue> sorted = new ArrayList<>(cues.size());
+        for (Cue cue : cues) {
+            if (cue == null || cue.getCommand() == null) {
+                throw new IllegalArgumentException("Null cue");
+            }
+            if (cue.getOffsetMillis() < 0) {
+                throw new IllegalArgumentException("Negative cue offset: " + cue);
+            }
+            sorted.add(cue);
+        }
+        sorted.sort(Comparator.comparingLong(Cue::getOffsetMillis));
+        return sorted;
+    }
+}
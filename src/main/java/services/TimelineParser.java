@@ -0,0 +1,73 @@
+package services;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import services.primitives.Command;
+import services.primitives.Cue;
+
+/**
+ * Reads a timeline from a text file, one cue per line:
+ * <pre>
+ * # offset (ms)  command
+ * 0      SELECT_VIDEO intro.mp4
+ * 0      PLAY
+ * 15000  SEEK 0
+ * 30000  PAUSE
+ * </pre>
+ * Commands are PLAY, PAUSE, RESTART, SEEK &lt;ms&gt; and SELECT_VIDEO &lt;id or file name&gt;.
+ * Blank lines and lines starting with # are ignored.
+ */
+public final class TimelineParser {
+
+    private TimelineParser() {
+    }
+
+    public static List<Cue> read(Path file) throws IOException {
+        List<Cue> cues = new ArrayList<>();
+        List<String> lines = Files.readAllLines(file);
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            try {
+                cues.add(parse(line));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(file.getFileName() + ":" + (i + 1) + ": " + e.getMessage(), e);
+            }
+        }
+        return cues;
+    }
+
+    public static Cue parse(String line) {
+        String[] parts = line.trim().split("\\s+", 3);
+        if (parts.length < 2) {
+            throw new IllegalArgumentException("Expected '<offset ms> <command>': " + line);
+        }
+        long offset = Long.parseLong(parts[0]);
+        String argument = parts.length > 2 ? parts[2].trim() : null;
+        return new Cue(offset, command(parts[1].toUpperCase(Locale.ROOT), argument));
+    }
+
+    static Command command(String name, String argument) {
+        switch (name) {
+            case "PLAY":
+                return Command.play();
+            case "PAUSE":
+                return Command.pause();
+            case "RESTART":
+                return Command.restart();
+            case "SEEK":
+                if (argument == null) throw new IllegalArgumentException("SEEK needs a position in ms");
+                return Command.seek(Long.parseLong(argument));
+            case "SELECT_VIDEO":
+                if (argument == null) throw new IllegalArgumentException("SELECT_VIDEO needs a video id or file name");
+                return Command.selectVideo(argument);
+            default:
+                throw new IllegalArgumentException("Unknown command: " + name);
+        }
+    }
+}
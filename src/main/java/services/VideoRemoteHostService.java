@@ -1,67 +1,539 @@
 package services;
 
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
 
-import javafx.application.Platform;
+import javafx.beans.value.ChangeListener;
 import javafx.scene.media.MediaPlayer;
+import javafx.util.Duration;
+import services.journal.CommandJournal;
+import services.media.MediaCatalog;
+import services.metrics.HostMetrics;
+import services.metrics.RemoteMethod;
+import services.net.RmiTuning;
+import services.primitives.BatchResult;
+import services.primitives.Command;
+import services.primitives.Cue;
+import services.primitives.MediaEntry;
+import services.primitives.MetricsSnapshot;
+import services.primitives.PlaybackListenerRemote;
+import services.primitives.PlaybackStatus;
+import services.primitives.PositionSample;
+import services.primitives.TimelineProgress;
 import services.primitives.VideoPlayerRemote;
 
 public class VideoRemoteHostService extends UnicastRemoteObject implements VideoPlayerRemote {
 
-        private transient MediaPlayer currentMediaPlayer; // Use 'transient' and make it private
+        private transient volatile MediaPlayer currentMediaPlayer; // Use 'transient' and make it private
+    private final transient ScheduledCommandTimer timer;
+    private transient volatile Consumer<String> videoSelector; // Switches the video shown by the host
+    private transient volatile MediaCatalog catalog; // Resolves video ids; optional
+    private transient volatile CommandJournal journal; // Records applied commands for recovery; optional
+    private final transient HostMetrics metrics = new HostMetrics();
+    private final transient HostCommandPipeline.Lane pipeline;
+    private final transient PlaybackEventPublisher events = new PlaybackEventPublisher();
+    private final transient TimelineEngine timeline;
+    private final transient DriftCorrector driftCorrector = new DriftCorrector();
+    private transient volatile String currentVideoId; // Sync group members only follow a leader on the same video
+
+    // Keyless commands are immutable, so the same instances are reused for every call
+    private static final Command PLAY = Command.play();
+    private static final Command PAUSE = Command.pause();
+    private static final Command RESTART = Command.restart();
+
+    // Feed MediaPlayer state into the publisher and metrics; moved along when the player changes
+    private final transient ChangeListener<MediaPlayer.Status> statusListener = (obs, oldStatus, newStatus) -> {
+        PlaybackStatus status = toPlaybackStatus(newStatus);
+        metrics.onStatus(status);
+        events.updateStatus(status);
+    };
+    private final transient ChangeListener<Duration> positionListener = (obs, oldTime, newTime) -> {
+        events.updatePosition((long) newTime.toMillis());
+        CommandJournal recorder = journal;
+        if (recorder != null) recorder.checkpoint((long) newTime.toMillis());
+    };
 
     public VideoRemoteHostService() throws RemoteException {
-        super(); // Call the constructor of the UnicastRemoteObject superclass
+        this(new HostCommandPipeline(), new ScheduledCommandTimer());
+    }
+
+    /**
+     * Service for one of several players in the same host process. They share the
+     * pipeline pulse and the timer thread; each keeps its own lane, metrics and timeline.
+     */
+    public VideoRemoteHostService(HostCommandPipeline sharedPipeline, ScheduledCommandTimer sharedTimer) throws RemoteException {
+        // Export with the tuned socket factories, on the fixed export port if one is configured.
+        // Services exported with the same factories and port share one listening socket.
+        super(RmiTuning.EXPORT_PORT, RmiTuning.clientSocketFactory(), RmiTuning.serverSocketFactory());
+        this.timer = sharedTimer;
+        this.pipeline = sharedPipeline.addLane(new MediaPlayerTarget(), metrics);
+        this.timeline = new TimelineEngine(timer, pipeline, this::applyScheduled);
     }
 
     // Method to set the MediaPlayer instance
     public void setMediaPlayer(MediaPlayer player) throws RemoteException {
-        // Ensure UI updates are on the JavaFX Application Thread
-        Platform.runLater(() -> {
-            this.currentMediaPlayer = player;
-            System.out.println("MediaPlayer instance set in VideoRemoteHostService.");
-        });
+        setMediaPlayer(player, player != null ? videoIdOf(player) : null);
+    }
+
+    // Same, reporting the catalog id of the video to playback listeners
+    public void setMediaPlayer(MediaPlayer player, String videoId) throws RemoteException {
+        MediaPlayer previous = this.currentMediaPlayer;
+        if (previous != null) {
+            previous.statusProperty().removeListener(statusListener);
+            previous.currentTimeProperty().removeListener(positionListener);
+        }
+        // Assigned directly so commands queued right after a video switch see the new player
+        this.currentMediaPlayer = player;
+        if (player != null) {
+            player.statusProperty().addListener(statusListener);
+            player.currentTimeProperty().addListener(positionListener);
+            CommandJournal recorder = journal;
+            if (recorder != null && videoId != null) recorder.videoSelected(videoId);
+            currentVideoId = videoId;
+            events.updateVideo(videoId);
+            events.updateStatus(toPlaybackStatus(player.getStatus()));
+        }
+        System.out.println("MediaPlayer instance set in VideoRemoteHostService.");
+    }
+
+    // Method to set the callback used by SELECT_VIDEO commands
+    public void setVideoSelector(Consumer<String> selector) {
+        this.videoSelector = selector;
+    }
+
+    // Lets selectVideo reject unknown videos up front instead of failing on the FX thread
+    public void setMediaCatalog(MediaCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    // Lets a restarted host come back to the video, position and play state it had
+    public void setJournal(CommandJournal journal) {
+        this.journal = journal;
+    }
+
+    public CommandJournal getJournal() {
+        return journal;
+    }
+
+    // Told about the next video a running timeline switches to, so it can be pre-rolled
+    public void setVideoPreloader(Consumer<String> preloader) {
+        timeline.setUpcomingVideoListener(preloader);
+    }
+
+    public HostCommandPipeline.Lane getPipeline() {
+        return pipeline;
+    }
+
+    public HostMetrics getMetricsRegistry() {
+        return metrics;
     }
 
+    // Transport commands go through the pipeline, which applies them on the
+    // JavaFX Application Thread at most once per pulse.
+
+    // Each remote method is timed inline: a lambda-based wrapper would allocate per call.
+
     @Override
     public void playVideo() throws RemoteException {
-        // Ensure UI updates are on the JavaFX Application Thread
-        Platform.runLater(() -> {
-            if (currentMediaPlayer != null) {
-                currentMediaPlayer.play();
-                System.out.println("Video playback initiated remotely.");
-            } else {
-                System.err.println("Cannot play video: MediaPlayer is not set.");
-            }
-        });
+        long received = System.nanoTime();
+        pipeline.submit(PLAY, received);
+        metrics.recordCall(RemoteMethod.PLAY_VIDEO, System.nanoTime() - received);
     }
 
     @Override
     public void pauseVideo() throws RemoteException {
-        // Ensure UI updates are on the JavaFX Application Thread
-        Platform.runLater(() -> {
-            if (currentMediaPlayer != null) {
-                currentMediaPlayer.pause();
-                System.out.println("Video playback paused remotely.");
+        long received = System.nanoTime();
+        pipeline.submit(PAUSE, received);
+        metrics.recordCall(RemoteMethod.PAUSE_VIDEO, System.nanoTime() - received);
+    }
+
+    @Override
+    public void restartVideo() throws RemoteException {
+        long received = System.nanoTime();
+        pipeline.submit(RESTART, received);
+        metrics.recordCall(RemoteMethod.RESTART_VIDEO, System.nanoTime() - received);
+    }
+
+    @Override
+    public void selectVideo(String videoId) throws RemoteException {
+        long received = System.nanoTime();
+        String error = checkVideo(videoId);
+        if (error != null) {
+            metrics.recordError(RemoteMethod.SELECT_VIDEO);
+            metrics.recordCall(RemoteMethod.SELECT_VIDEO, System.nanoTime() - received);
+            throw new IllegalArgumentException(error);
+        }
+        pipeline.submit(Command.selectVideo(resolveVideoId(videoId)), received);
+        metrics.recordCall(RemoteMethod.SELECT_VIDEO, System.nanoTime() - received);
+    }
+
+    @Override
+    public long currentTimeMillis() throws RemoteException {
+        long received = System.nanoTime();
+        long now = System.currentTimeMillis();
+        metrics.recordCall(RemoteMethod.CURRENT_TIME_MILLIS, System.nanoTime() - received);
+        return now;
+    }
+
+    // Scheduled commands call the MediaPlayer straight from the timer thread:
+    // going through Platform.runLater would add up to a full pulse of skew.
+
+    @Override
+    public void playAt(long epochMillis) throws RemoteException {
+        long received = System.nanoTime();
+        timer.schedule(epochMillis, () -> applyScheduled(PLAY));
+        metrics.recordCall(RemoteMethod.PLAY_AT, System.nanoTime() - received);
+    }
+
+    @Override
+    public void pauseAt(long epochMillis) throws RemoteException {
+        long received = System.nanoTime();
+        timer.schedule(epochMillis, () -> applyScheduled(PAUSE));
+        metrics.recordCall(RemoteMethod.PAUSE_AT, System.nanoTime() - received);
+    }
+
+    @Override
+    public void restartAt(long epochMillis) throws RemoteException {
+        long received = System.nanoTime();
+        timer.schedule(epochMillis, () -> applyScheduled(RESTART));
+        metrics.recordCall(RemoteMethod.RESTART_AT, System.nanoTime() - received);
+    }
+
+    /**
+     * Applies a command received on the datagram fast path (see {@link FastPathReceiver}),
+     * right away from the receiving thread or at {@code atEpochMillis} from the timer thread.
+     * @throws IllegalStateException If there is no player yet; the sender then falls back to RMI.
+     */
+    public void applyFastPath(Command.Type type, long positionMillis, long atEpochMillis) {
+        long received = System.nanoTime();
+        try {
+            if (currentMediaPlayer == null) throw new IllegalStateException("MediaPlayer is not set");
+            Command command = type == Command.Type.PLAY ? PLAY
+                    : type == Command.Type.PAUSE ? PAUSE
+                    : type == Command.Type.RESTART ? RESTART
+                    : Command.seek(positionMillis);
+            if (atEpochMillis > 0) {
+                timer.schedule(atEpochMillis, () -> applyScheduled(command));
             } else {
-                System.err.println("Cannot pause video: MediaPlayer is not set.");
+                applyScheduled(command);
             }
-        });
+        } catch (RuntimeException e) {
+            metrics.recordError(RemoteMethod.FAST_PATH);
+            throw e;
+        } finally {
+            metrics.recordCall(RemoteMethod.FAST_PATH, System.nanoTime() - received);
+        }
     }
 
     @Override
-    public void restartVideo() throws RemoteException {
-        // Ensure UI updates are on the JavaFX Application Thread
-        Platform.runLater(() -> {
-            if (currentMediaPlayer != null) {
-                currentMediaPlayer.seek(currentMediaPlayer.getStartTime());
-                currentMediaPlayer.play();
-                System.out.println("Video playback restarted remotely.");
+    public long uploadTimeline(long startEpochMillis, List<Cue> cues) throws RemoteException {
+        long received = System.nanoTime();
+        try {
+            return timeline.upload(startEpochMillis, resolveCues(cues));
+        } catch (RuntimeException e) {
+            metrics.recordError(RemoteMethod.UPLOAD_TIMELINE);
+            throw e;
+        } finally {
+            metrics.recordCall(RemoteMethod.UPLOAD_TIMELINE, System.nanoTime() - received);
+        }
+    }
+
+    @Override
+    public long amendTimeline(long revision, int fromIndex, List<Cue> cues) throws RemoteException {
+        long received = System.nanoTime();
+        try {
+            return timeline.amend(revision, fromIndex, resolveCues(cues));
+        } catch (RuntimeException e) {
+            metrics.recordError(RemoteMethod.AMEND_TIMELINE);
+            throw e;
+        } finally {
+            metrics.recordCall(RemoteMethod.AMEND_TIMELINE, System.nanoTime() - received);
+        }
+    }
+
+    @Override
+    public TimelineProgress getTimelineProgress() throws RemoteException {
+        long received = System.nanoTime();
+        TimelineProgress progress = timeline.progress();
+        metrics.recordCall(RemoteMethod.GET_TIMELINE_PROGRESS, System.nanoTime() - received);
+        return progress;
+    }
+
+    @Override
+    public void cancelTimeline() throws RemoteException {
+        long received = System.nanoTime();
+        timeline.cancel();
+        metrics.recordCall(RemoteMethod.CANCEL_TIMELINE, System.nanoTime() - received);
+    }
+
+    @Override
+    public BatchResult executeBatch(List<Command> commands) throws RemoteException {
+        long received = System.nanoTime();
+        BatchResult result = new BatchResult(commands.size());
+        for (int i = 0; i < commands.size(); i++) {
+            Command command = commands.get(i);
+            if (command == null) {
+                result.fail(i, "Null command");
+            } else if (command.getType() == Command.Type.SELECT_VIDEO) {
+                String error = checkVideo(command.getVideoId());
+                if (error != null) result.fail(i, error);
+            } else if (currentMediaPlayer == null) {
+                result.fail(i, "MediaPlayer is not set");
+            }
+        }
+
+        // Accepted commands are folded into the pipeline in order; retried duplicates are dropped there
+        for (int i = 0; i < commands.size(); i++) {
+            if (result.isSuccess(i)) {
+                pipeline.submit(commands.get(i), received);
+            }
+        }
+        if (result.getFailedCount() > 0) {
+            metrics.recordError(RemoteMethod.EXECUTE_BATCH);
+        }
+        metrics.recordCall(RemoteMethod.EXECUTE_BATCH, System.nanoTime() - received);
+        return result;
+    }
+
+    @Override
+    public void addPlaybackListener(PlaybackListenerRemote listener, String tag) throws RemoteException {
+        long received = System.nanoTime();
+        events.addListener(listener, tag);
+        System.out.println("Playback listener registered: " + tag);
+        metrics.recordCall(RemoteMethod.ADD_PLAYBACK_LISTENER, System.nanoTime() - received);
+    }
+
+    @Override
+    public void removePlaybackListener(PlaybackListenerRemote listener) throws RemoteException {
+        long received = System.nanoTime();
+        events.removeListener(listener);
+        metrics.recordCall(RemoteMethod.REMOVE_PLAYBACK_LISTENER, System.nanoTime() - received);
+    }
+
+    @Override
+    public MetricsSnapshot getMetrics() throws RemoteException {
+        long received = System.nanoTime();
+        MetricsSnapshot snapshot = metrics.snapshot();
+        metrics.recordCall(RemoteMethod.GET_METRICS, System.nanoTime() - received);
+        return snapshot;
+    }
+
+    @Override
+    public PositionSample samplePosition() throws RemoteException {
+        long received = System.nanoTime();
+        MediaPlayer player = currentMediaPlayer;
+        PositionSample sample;
+        if (player == null) {
+            sample = new PositionSample(null, PlaybackStatus.UNKNOWN, 0, System.currentTimeMillis(), -1, 1.0);
+        } else {
+            // Position and clock are read back to back; the call latency does not matter
+            long position = positionOf(player);
+            long now = System.currentTimeMillis();
+            sample = new PositionSample(currentVideoId, toPlaybackStatus(player.getStatus()), position, now,
+                    DriftCorrector.durationOf(player), player.getRate());
+        }
+        metrics.recordCall(RemoteMethod.SAMPLE_POSITION, System.nanoTime() - received);
+        return sample;
+    }
+
+    // Corrections call the MediaPlayer from the RMI thread, like scheduled commands, to act on fresh positions
+    @Override
+    public long syncTo(String videoId, long positionMillis, long atEpochMillis) throws RemoteException {
+        long received = System.nanoTime();
+        try {
+            MediaPlayer player = currentMediaPlayer;
+            if (player == null || player.getStatus() != MediaPlayer.Status.PLAYING) {
+                throw new IllegalStateException("Not playing");
+            }
+            if (videoId != null && !videoId.equals(currentVideoId)) {
+                throw new IllegalStateException("Playing " + currentVideoId + ", not " + videoId);
+            }
+            // The reference plays on at normal rate from where the leader was sampled
+            long expected = positionMillis + (System.currentTimeMillis() - atEpochMillis);
+            return driftCorrector.correct(player, expected);
+        } catch (RuntimeException e) {
+            metrics.recordError(RemoteMethod.SYNC_TO);
+            throw e;
+        } finally {
+            metrics.recordCall(RemoteMethod.SYNC_TO, System.nanoTime() - received);
+        }
+    }
+
+    @Override
+    public void resetRate() throws RemoteException {
+        long received = System.nanoTime();
+        MediaPlayer player = currentMediaPlayer;
+        if (player != null) driftCorrector.reset(player);
+        metrics.recordCall(RemoteMethod.RESET_RATE, System.nanoTime() - received);
+    }
+
+    // Transport commands are applied straight from the timer thread; anything else goes through the pipeline
+    private void applyScheduled(Command command) {
+        MediaPlayer player = currentMediaPlayer;
+        if (command.getType() == Command.Type.SELECT_VIDEO) {
+            pipeline.submit(command);
+            return;
+        }
+        if (player == null) {
+            metrics.recordCommandError(command.getType());
+            System.err.println("Cannot apply scheduled " + command + ": MediaPlayer is not set.");
+            return;
+        }
+        switch (command.getType()) {
+            case PLAY:
+                metrics.expectStatus(toPlaybackStatus(player.getStatus()), PlaybackStatus.PLAYING, Command.Type.PLAY);
+                player.play();
+                journal(Command.Type.PLAY, positionOf(player));
+                break;
+            case PAUSE:
+                metrics.expectStatus(toPlaybackStatus(player.getStatus()), PlaybackStatus.PAUSED, Command.Type.PAUSE);
+                driftCorrector.reset(player);
+                player.pause();
+                journal(Command.Type.PAUSE, positionOf(player));
+                break;
+            case RESTART:
+                metrics.expectStatus(toPlaybackStatus(player.getStatus()), PlaybackStatus.PLAYING, Command.Type.RESTART);
+                driftCorrector.reset(player);
+                player.seek(player.getStartTime());
+                player.play();
+                journal(Command.Type.RESTART, 0);
+                break;
+            case SEEK:
+                driftCorrector.reset(player);
+                player.seek(Duration.millis(command.getPositionMillis()));
+                journal(Command.Type.SEEK, command.getPositionMillis());
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void journal(Command.Type type, long positionMillis) {
+        CommandJournal recorder = journal;
+        if (recorder != null) recorder.commandApplied(type, positionMillis);
+    }
+
+    private static long positionOf(MediaPlayer player) {
+        Duration time = player.getCurrentTime();
+        return time == null || time.isUnknown() ? 0 : (long) time.toMillis();
+    }
+
+    // Checks the videos a timeline switches to and rewrites them as catalog ids
+    private List<Cue> resolveCues(List<Cue> cues) {
+        List<Cue> resolved = new ArrayList<>(cues.size());
+        for (Cue cue : cues) {
+            if (cue != null && cue.getCommand() != null && cue.getCommand().getType() == Command.Type.SELECT_VIDEO) {
+                String error = checkVideo(cue.getCommand().getVideoId());
+                if (error != null) throw new IllegalArgumentException(error);
+                cue = new Cue(cue.getOffsetMillis(), Command.selectVideo(resolveVideoId(cue.getCommand().getVideoId())));
+            }
+            resolved.add(cue);
+        }
+        return resolved;
+    }
+
+    // Returns why a video cannot be selected, or null if it can
+    private String checkVideo(String videoId) {
+        if (videoSelector == null) return "Video selection is not available on this host";
+        MediaCatalog known = catalog;
+        if (known != null && known.find(videoId) == null) return "Unknown video: " + videoId;
+        return null;
+    }
+
+    // File names are accepted too; the pipeline always sees the catalog id
+    private String resolveVideoId(String videoId) {
+        MediaCatalog known = catalog;
+        MediaEntry entry = known != null ? known.find(videoId) : null;
+        return entry != null ? entry.getId() : videoId;
+    }
+
+    private static PlaybackStatus toPlaybackStatus(MediaPlayer.Status status) {
+        if (status == null) return PlaybackStatus.UNKNOWN;
+        switch (status) {
+            case READY: return PlaybackStatus.READY;
+            case PLAYING: return PlaybackStatus.PLAYING;
+            case PAUSED: return PlaybackStatus.PAUSED;
+            case STOPPED: return PlaybackStatus.STOPPED;
+            case STALLED: return PlaybackStatus.STALLED;
+            case HALTED: return PlaybackStatus.HALTED;
+            default: return PlaybackStatus.UNKNOWN;
+        }
+    }
+
+    // The video id is the file name of the media source, as listed in the host's video folder
+    private static String videoIdOf(MediaPlayer player) {
+        String source = player.getMedia().getSource();
+        return URLDecoder.decode(source.substring(source.lastIndexOf('/') + 1), StandardCharsets.UTF_8);
+    }
+
+    // Applies pipeline state to whichever MediaPlayer is current
+    private class MediaPlayerTarget implements PlaybackTarget {
+
+        @Override
+        public void selectVideo(String videoId) {
+            Consumer<String> selector = videoSelector;
+            if (selector != null) {
+                selector.accept(videoId);
+                System.out.println("Video " + videoId + " selected remotely.");
             } else {
-                System.err.println("Cannot restart video: MediaPlayer is not set.");
+                metrics.recordCommandError(Command.Type.SELECT_VIDEO);
+                System.err.println("Cannot select video: no selector is set.");
+            }
+        }
+
+        @Override
+        public void seekToStart() {
+            MediaPlayer player = currentMediaPlayer;
+            if (player != null) {
+                driftCorrector.reset(player);
+                player.seek(player.getStartTime());
+                journal(Command.Type.SEEK, 0);
+            }
+        }
+
+        @Override
+        public void seek(long positionMillis) {
+            MediaPlayer player = currentMediaPlayer;
+            if (player != null) {
+                driftCorrector.reset(player);
+                player.seek(Duration.millis(positionMillis));
+                journal(Command.Type.SEEK, positionMillis);
+            }
+        }
+
+        @Override
+        public void play() {
+            MediaPlayer player = currentMediaPlayer;
+            if (player != null) {
+                metrics.expectStatus(toPlaybackStatus(player.getStatus()), PlaybackStatus.PLAYING, Command.Type.PLAY);
+                player.play();
+                journal(Command.Type.PLAY, positionOf(player));
+                System.out.println("Video playback initiated remotely.");
+            } else {
+                metrics.recordCommandError(Command.Type.PLAY);
+                System.err.println("Cannot play video: MediaPlayer is not set.");
+            }
+        }
+
+        @Override
+        public void pause() {
+            MediaPlayer player = currentMediaPlayer;
+            if (player != null) {
+                metrics.expectStatus(toPlaybackStatus(player.getStatus()), PlaybackStatus.PAUSED, Command.Type.PAUSE);
+                driftCorrector.reset(player);
+                player.pause();
+                journal(Command.Type.PAUSE, positionOf(player));
+                System.out.println("Video playback paused remotely.");
+            } else {
+                metrics.recordCommandError(Command.Type.PAUSE);
+                System.err.println("Cannot pause video: MediaPlayer is not set.");
             }
-        });
+        }
     }
 
 }
@@ -0,0 +1,384 @@
+package services.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import services.primitives.Command;
+
+/**
+ * Append-only binary journal of the commands a player applied and of periodic
+ * position checkpoints, so a restarted host comes back to the video, position
+ * and play state it had.
+ * <p>
+ * The file is memory-mapped. Callers only copy a small record into a staging
+ * buffer under a lock, which is cheap enough for the JavaFX Application Thread;
+ * a writer thread moves everything staged since its last pass into the mapping
+ * and forces it to disk once per pass (group commit), at most once every
+ * {@code journal.commitMillis}. Each record carries its length and a CRC32, so a
+ * record torn by a crash ends the replay instead of corrupting it. When the
+ * mapping is full the journal is compacted into a new file holding just the
+ * current state, which atomically replaces the old one. If the staging buffer
+ * ever overflows, the next pass writes the current state instead of the lost records.
+ * <p>
+ * A journal belongs to one process: it is opened under an exclusive lock on a
+ * {@code .lock} file next to it, which compaction leaves alone.
+ * <p>
+ * Layout: {@code "CJNL"}, version, then records of
+ * {@code [int length][int crc][byte type][long epochMillis][long positionMillis]},
+ * followed by {@code [short length][UTF-8 id]} for video records.
+ */
+public class CommandJournal implements AutoCloseable {
+
+    public static final String DEFAULT_FOLDER = System.getProperty("journal.dir",
+            Path.of(System.getProperty("user.home"), ".rmi_javafx", "journal").toString());
+    public static final long COMMIT_MILLIS = Long.getLong("journal.commitMillis", 50);
+    public static final long CHECKPOINT_MILLIS = Long.getLong("journal.checkpointMillis", 1000);
+    static final int CAPACITY = Integer.getInteger("journal.sizeKb", 1024) * 1024;
+
+    // Record types
+    static final byte VIDEO = 1;
+    static final byte PLAY = 2;
+    static final byte PAUSE = 3;
+    static final byte SEEK = 4;
+    static final byte CHECKPOINT = 5;
+
+    private static final int MAGIC = 0x434A4E4C; // "CJNL"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int FIXED_BODY_BYTES = 1 + 8 + 8;
+    private static final int MAX_VIDEO_BYTES = 1024;
+    private static final int STAGING_BYTES = 64 * 1024;
+
+    private final Path file;
+    private final FileChannel lockChannel; // Holds the lock until the writer thread ends
+    private FileChannel channel; // Writer thread only after open
+    private MappedByteBuffer mapped; // Writer thread only after open
+    private final JournalState recovered;
+    private final Thread writer;
+
+    // Guarded by lock
+    private final Object lock = new Object();
+    private final JournalState current;
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer staging = ByteBuffer.allocate(STAGING_BYTES);
+    private boolean lost;
+    private boolean closed;
+
+    private ByteBuffer spare = ByteBuffer.allocate(STAGING_BYTES); // Writer thread only
+    private volatile long lastCheckpointMillis;
+
+    private CommandJournal(Path file, FileChannel lockChannel, FileChannel channel, MappedByteBuffer mapped, JournalState recovered) {
+        this.file = file;
+        this.lockChannel = lockChannel;
+        this.channel = channel;
+        this.mapped = mapped;
+        this.recovered = recovered.copy();
+        this.current = recovered;
+        writer = new Thread(this::writeLoop, "journal-" + file.getFileName());
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * @return The journal file of a service in {@link #DEFAULT_FOLDER}. Host processes on one
+     *         machine may use the same service name on different registry ports, so the port is part of it.
+     */
+    public static Path fileFor(String serviceName, int port) {
+        return Path.of(DEFAULT_FOLDER).resolve(serviceName.replaceAll("[^A-Za-z0-9._-]", "_") + "-" + port + ".journal");
+    }
+
+    /**
+     * Opens or creates the journal and replays it.
+     * @throws IOException Also if another process, or another journal in this one, has the file open.
+     */
+    public static CommandJournal open(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        FileChannel lockChannel = lock(file);
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            lockChannel.close();
+            throw e;
+        }
+        try {
+            long size = channel.size();
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, CAPACITY));
+            JournalState state = new JournalState();
+            if (size >= HEADER_BYTES && mapped.getInt(0) == MAGIC && mapped.getInt(4) == VERSION) {
+                mapped.position(HEADER_BYTES);
+                replay(mapped, state);
+            } else {
+                if (size > 0) System.err.println("Journal " + file + " is not readable, starting a new one.");
+                writeHeader(mapped);
+                mapped.force();
+            }
+            return new CommandJournal(file, lockChannel, channel, mapped, state);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            lockChannel.close();
+            throw e;
+        }
+    }
+
+    // The open lock file, locked for as long as it stays open
+    private static FileChannel lock(Path file) throws IOException {
+        Path lockFile = file.resolveSibling(file.getFileName() + ".lock");
+        FileChannel lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            if (lockChannel.tryLock() != null) return lockChannel;
+        } catch (OverlappingFileLockException e) {
+            // Held by another journal of this process
+        } catch (IOException e) {
+            lockChannel.close();
+            throw e;
+        }
+        lockChannel.close();
+        throw new IOException("Journal " + file + " is in use by another host process");
+    }
+
+    /**
+     * @return The state the journal held when it was opened.
+     */
+    public JournalState getRecovered() {
+        return recovered.copy();
+    }
+
+    public void videoSelected(String videoId) {
+        byte[] video = videoId.getBytes(StandardCharsets.UTF_8);
+        if (video.length > MAX_VIDEO_BYTES) return;
+        append(VIDEO, 0, video);
+    }
+
+    /**
+     * Records an applied transport command.
+     * @param positionMillis Where the player was, or for seeks the target position.
+     */
+    public void commandApplied(Command.Type type, long positionMillis) {
+        switch (type) {
+            case PLAY:
+                append(PLAY, positionMillis, null);
+                break;
+            case PAUSE:
+                append(PAUSE, positionMillis, null);
+                break;
+            case RESTART:
+                append(PLAY, 0, null);
+                break;
+            case SEEK:
+                append(SEEK, positionMillis, null);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Records the playback position, at most once every {@code journal.checkpointMillis}.
+     */
+    public void checkpoint(long positionMillis) {
+        long now = System.currentTimeMillis();
+        if (now - lastCheckpointMillis < CHECKPOINT_MILLIS) return;
+        lastCheckpointMillis = now;
+        append(CHECKPOINT, positionMillis, null);
+    }
+
+    /**
+     * Writes what is staged, forces it to disk and closes the file.
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            writer.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Copies the record into the staging buffer; never blocks on I/O
+    private void append(byte type, long positionMillis, byte[] video) {
+        long now = System.currentTimeMillis();
+        int bodyLength = FIXED_BODY_BYTES + (video != null ? 2 + video.length : 0);
+        synchronized (lock) {
+            if (closed) return;
+            current.apply(type, now, positionMillis, video != null ? new String(video, StandardCharsets.UTF_8) : null);
+            if (staging.remaining() < 8 + bodyLength) {
+                lost = true;
+            } else {
+                encode(staging, crc, type, now, positionMillis, video);
+            }
+            lock.notifyAll();
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            ByteBuffer batch;
+            JournalState snapshot = null;
+            boolean last;
+            synchronized (lock) {
+                while (staging.position() == 0 && !lost && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        closed = true;
+                    }
+                }
+                last = closed;
+                batch = staging;
+                staging = spare;
+                if (lost) {
+                    // The state covers every record, including the lost ones
+                    snapshot = current.copy();
+                    lost = false;
+                }
+            }
+            long began = System.nanoTime();
+            batch.flip();
+            try {
+                if (snapshot != null) {
+                    writeState(snapshot);
+                } else if (batch.hasRemaining()) {
+                    write(batch);
+                }
+                mapped.force();
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Error writing journal " + file + ": " + e.getMessage());
+            }
+            batch.clear();
+            spare = batch;
+
+            if (last) break;
+            // Whatever arrives meanwhile goes out with the next force
+            long waitMillis = COMMIT_MILLIS - (System.nanoTime() - began) / 1_000_000;
+            if (waitMillis > 0) {
+                try {
+                    Thread.sleep(waitMillis);
+                } catch (InterruptedException e) {
+                    synchronized (lock) {
+                        closed = true;
+                    }
+                }
+            }
+        }
+        try {
+            channel.close();
+            lockChannel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing journal " + file + ": " + e.getMessage());
+        }
+    }
+
+    private void write(ByteBuffer batch) throws IOException {
+        if (mapped.remaining() < batch.remaining()) {
+            JournalState state;
+            synchronized (lock) {
+                state = current.copy();
+            }
+            compact(state);
+            return;
+        }
+        mapped.put(batch);
+    }
+
+    private void writeState(JournalState state) throws IOException {
+        ByteBuffer records = stateRecords(state);
+        if (mapped.remaining() < records.remaining()) {
+            compact(state);
+        } else {
+            mapped.put(records);
+        }
+    }
+
+    // Writes the state to a new file and moves it over the journal, so a crash leaves one or the other
+    private void compact(JournalState state) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer fresh = out.map(FileChannel.MapMode.READ_WRITE, 0, CAPACITY);
+            writeHeader(fresh);
+            fresh.put(stateRecords(state));
+            fresh.force();
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel.close();
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        int end = HEADER_BYTES + stateRecords(state).remaining();
+        mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, CAPACITY);
+        mapped.position(end);
+    }
+
+    // A video record followed by the position and play state
+    private static ByteBuffer stateRecords(JournalState state) {
+        ByteBuffer records = ByteBuffer.allocate(2 * (8 + FIXED_BODY_BYTES) + 2 + MAX_VIDEO_BYTES);
+        CRC32 checksum = new CRC32();
+        if (!state.isEmpty()) {
+            encode(records, checksum, VIDEO, state.getEpochMillis(), 0, state.getVideoId().getBytes(StandardCharsets.UTF_8));
+            encode(records, checksum, state.isPlaying() ? PLAY : PAUSE, state.getEpochMillis(), state.getPositionMillis(), null);
+        }
+        return records.flip();
+    }
+
+    private static void encode(ByteBuffer buffer, CRC32 checksum, byte type, long epochMillis, long positionMillis, byte[] video) {
+        int bodyLength = FIXED_BODY_BYTES + (video != null ? 2 + video.length : 0);
+        int start = buffer.position();
+        buffer.putInt(bodyLength).putInt(0);
+        buffer.put(type).putLong(epochMillis).putLong(positionMillis);
+        if (video != null) {
+            buffer.putShort((short) video.length).put(video);
+        }
+        checksum.reset();
+        checksum.update(buffer.array(), buffer.arrayOffset() + start + 8, bodyLength);
+        buffer.putInt(start + 4, (int) checksum.getValue());
+    }
+
+    // Folds every intact record into the state and leaves the buffer positioned after the last one
+    private static void replay(ByteBuffer buffer, JournalState state) {
+        CRC32 checksum = new CRC32();
+        byte[] body = new byte[FIXED_BODY_BYTES + 2 + MAX_VIDEO_BYTES];
+        while (buffer.remaining() >= 8) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int expected = buffer.getInt();
+            if (length < FIXED_BODY_BYTES || length > body.length || length > buffer.remaining()) {
+                buffer.position(start);
+                return;
+            }
+            buffer.get(body, 0, length);
+            checksum.reset();
+            checksum.update(body, 0, length);
+            if ((int) checksum.getValue() != expected) {
+                buffer.position(start);
+                return;
+            }
+            ByteBuffer record = ByteBuffer.wrap(body, 0, length);
+            byte type = record.get();
+            long epochMillis = record.getLong();
+            long positionMillis = record.getLong();
+            String video = null;
+            if (type == VIDEO) {
+                int videoLength = record.getShort();
+                video = new String(body, record.position(), videoLength, StandardCharsets.UTF_8);
+            }
+            state.apply(type, epochMillis, positionMillis, video);
+        }
+    }
+
+    private static void writeHeader(ByteBuffer buffer) {
+        buffer.position(0);
+        buffer.putInt(MAGIC).putInt(VERSION);
+    }
+}
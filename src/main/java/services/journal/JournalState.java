@@ -0,0 +1,88 @@
+package services.journal;
+
+/**
+ * Playback state of a player as folded from its journal: the video it showed,
+ * the last known position and whether it was playing. Every record sets
+ * absolute values, so folding a record twice changes nothing.
+ */
+public final class JournalState {
+
+    private String videoId;
+    private long positionMillis;
+    private boolean playing;
+    private long epochMillis;
+
+    JournalState() {
+    }
+
+    private JournalState(JournalState other) {
+        this.videoId = other.videoId;
+        this.positionMillis = other.positionMillis;
+        this.playing = other.playing;
+        this.epochMillis = other.epochMillis;
+    }
+
+    JournalState copy() {
+        return new JournalState(this);
+    }
+
+    void apply(byte type, long recordedAt, long position, String video) {
+        switch (type) {
+            case CommandJournal.VIDEO:
+                videoId = video;
+                positionMillis = 0;
+                playing = false;
+                break;
+            case CommandJournal.PLAY:
+                positionMillis = position;
+                playing = true;
+                break;
+            case CommandJournal.PAUSE:
+                positionMillis = position;
+                playing = false;
+                break;
+            case CommandJournal.SEEK:
+            case CommandJournal.CHECKPOINT:
+                positionMillis = position;
+                break;
+            default:
+                return;
+        }
+        epochMillis = recordedAt;
+    }
+
+    // True if no video was ever recorded
+    public boolean isEmpty() {
+        return videoId == null;
+    }
+
+    public String getVideoId() {
+        return videoId;
+    }
+
+    public long getPositionMillis() {
+        return positionMillis;
+    }
+
+    public boolean isPlaying() {
+        return playing;
+    }
+
+    // When the last record was written, host clock
+    public long getEpochMillis() {
+        return epochMillis;
+    }
+
+    /**
+     * @return The position at {@code nowMillis}, assuming a playing video went on
+     *         while the host was down, as the rest of the wall did.
+     */
+    public long positionAt(long nowMillis) {
+        return playing ? positionMillis + Math.max(0, nowMillis - epochMillis) : positionMillis;
+    }
+
+    @Override
+    public String toString() {
+        return isEmpty() ? "empty" : String.format("%s at %d ms, %s", videoId, positionMillis, playing ? "playing" : "paused");
+    }
+}
@@ -0,0 +1,234 @@
+package services.media;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import services.net.RmiTuning;
+import services.primitives.ContentDistributionRemote;
+import services.primitives.MediaEntry;
+
+/**
+ * Host side of media distribution: writes pushed chunks into a hidden
+ * {@code .<hash>.part} file in the video folder and moves it into place once
+ * the hash checks out. Part files survive restarts, which is what lets a
+ * transfer resume. Chunks arrive on RMI threads, never on the JavaFX thread,
+ * so receiving does not disturb playback.
+ * <p>
+ * Chunks are hashed as they are written, so completing a transfer only compares
+ * digests and returns well within the controller's response timeout, whatever
+ * the file size. The bytes of a part file being resumed are hashed in the
+ * background while the rest arrives.
+ */
+public class ContentReceiver extends UnicastRemoteObject implements ContentDistributionRemote {
+
+    private final transient MediaCatalog catalog;
+
+    // Open transfers by content hash
+    private final transient Map<String, Transfer> transfers = new ConcurrentHashMap<>();
+
+    // Hashes resumed part files, a window at a time so chunks keep being written meanwhile
+    private static final long CATCH_UP_WINDOW_BYTES = 8L << 20;
+    private final transient ExecutorService catchUps;
+
+    public ContentReceiver(MediaCatalog catalog) throws RemoteException {
+        super(RmiTuning.EXPORT_PORT, RmiTuning.clientSocketFactory(), RmiTuning.serverSocketFactory());
+        this.catalog = catalog;
+        this.catchUps = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "content-digest");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public boolean hasContent(String contentHash) throws RemoteException {
+        return catalog.findByHash(contentHash) != null;
+    }
+
+    @Override
+    public long beginTransfer(String fileName, String contentHash, long sizeBytes) throws RemoteException {
+        if (!isPlainFileName(fileName)) {
+            throw new IllegalArgumentException("Invalid file name: " + fileName);
+        }
+        if (!contentHash.matches("[0-9a-f]{64}")) {
+            throw new IllegalArgumentException("Invalid content hash: " + contentHash);
+        }
+        if (hasContent(contentHash)) return sizeBytes;
+
+        Transfer transfer = transfers.computeIfAbsent(contentHash,
+                hash -> new Transfer(fileName, catalog.getFolder().resolve("." + hash + ".part"), sizeBytes));
+        synchronized (transfer) {
+            try {
+                if (transfer.channel == null) {
+                    transfer.channel = FileChannel.open(transfer.part,
+                            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                }
+                long received = transfer.channel.size();
+                if (received > sizeBytes) {
+                    // Stale part file of a different size: start over
+                    transfer.channel.truncate(0);
+                    transfer.digest.reset();
+                    transfer.digested = 0;
+                    received = 0;
+                }
+                if (received > transfer.digested && !transfer.catchingUp) {
+                    transfer.catchingUp = true;
+                    catchUps.execute(() -> catchUpInBackground(transfer));
+                }
+                System.out.println("Receiving " + fileName + " from offset " + received + " of " + sizeBytes + ".");
+                return received;
+            } catch (IOException e) {
+                abort(contentHash, transfer);
+                throw new UncheckedIOException("Could not open " + transfer.part, e);
+            }
+        }
+    }
+
+    @Override
+    public void writeChunk(String contentHash, long offset, byte[] data) throws RemoteException {
+        Transfer transfer = requireTransfer(contentHash);
+        synchronized (transfer) {
+            try {
+                long received = transfer.channel.size();
+                if (offset > received) {
+                    throw new IllegalStateException("Chunk at " + offset + " skips past received offset " + received);
+                }
+                if (offset + data.length > transfer.sizeBytes) {
+                    throw new IllegalArgumentException("Chunk at " + offset + " runs past the announced size");
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(data);
+                long position = offset;
+                while (buffer.hasRemaining()) {
+                    position += transfer.channel.write(buffer, position);
+                }
+                // Only the part past what is hashed already; a resent chunk overlaps it
+                if (offset <= transfer.digested && position > transfer.digested) {
+                    int from = (int) (transfer.digested - offset);
+                    transfer.digest.update(data, from, data.length - from);
+                    transfer.digested = position;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write " + transfer.part, e);
+            }
+        }
+    }
+
+    @Override
+    public MediaEntry completeTransfer(String contentHash) throws RemoteException {
+        Transfer transfer = requireTransfer(contentHash);
+        synchronized (transfer) {
+            try {
+                if (transfer.channel.size() != transfer.sizeBytes) {
+                    throw new IllegalStateException("Transfer incomplete: " + transfer.channel.size() + " of " + transfer.sizeBytes + " bytes");
+                }
+                // Normally nothing is left: only a resumed part file still being hashed in the background
+                catchUp(transfer, Long.MAX_VALUE);
+                String hash = MediaCatalog.hex(transfer.digest.digest());
+                transfer.channel.force(true);
+                transfer.channel.close();
+                transfer.channel = null;
+                if (!hash.equals(contentHash)) {
+                    abort(contentHash, transfer);
+                    Files.deleteIfExists(transfer.part);
+                    throw new IllegalStateException("Content hash mismatch for " + transfer.fileName);
+                }
+                Path target = catalog.getFolder().resolve(transfer.fileName);
+                Files.move(transfer.part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                transfers.remove(contentHash, transfer);
+                System.out.println("Received " + transfer.fileName + " (" + transfer.sizeBytes + " bytes).");
+                return catalog.adopt(target, hash);
+            } catch (IOException e) {
+                abort(contentHash, transfer);
+                throw new UncheckedIOException("Could not complete " + transfer.fileName, e);
+            }
+        }
+    }
+
+    private void catchUpInBackground(Transfer transfer) {
+        while (true) {
+            synchronized (transfer) {
+                try {
+                    if (transfer.channel == null || catchUp(transfer, CATCH_UP_WINDOW_BYTES)) {
+                        transfer.catchingUp = false;
+                        return;
+                    }
+                } catch (IOException e) {
+                    // Left to completeTransfer, which reports it
+                    System.err.println("Could not hash " + transfer.part + ": " + e.getMessage());
+                    transfer.catchingUp = false;
+                    return;
+                }
+            }
+        }
+    }
+
+    // Hashes up to maxBytes of the part file past what is hashed already; true once all of it is. Called with the lock held
+    private static boolean catchUp(Transfer transfer, long maxBytes) throws IOException {
+        long size = transfer.channel.size();
+        long end = Math.min(size, transfer.digested + maxBytes);
+        while (transfer.digested < end) {
+            long length = Math.min(CATCH_UP_WINDOW_BYTES, end - transfer.digested);
+            MappedByteBuffer window = transfer.channel.map(FileChannel.MapMode.READ_ONLY, transfer.digested, length);
+            transfer.digest.update(window);
+            transfer.digested += length;
+        }
+        return transfer.digested == size;
+    }
+
+    private Transfer requireTransfer(String contentHash) {
+        Transfer transfer = transfers.get(contentHash);
+        if (transfer == null || transfer.channel == null) {
+            throw new IllegalStateException("No transfer in progress for " + contentHash);
+        }
+        return transfer;
+    }
+
+    // The part file is kept unless it is known to be bad, so the next attempt can resume
+    private void abort(String contentHash, Transfer transfer) {
+        transfers.remove(contentHash, transfer);
+        if (transfer.channel != null) {
+            try {
+                transfer.channel.close();
+            } catch (IOException e) {
+                System.err.println("Error closing " + transfer.part + ": " + e.getMessage());
+            }
+            transfer.channel = null;
+        }
+    }
+
+    private static boolean isPlainFileName(String fileName) {
+        return fileName != null && !fileName.isEmpty() && !fileName.startsWith(".")
+                && !fileName.contains("/") && !fileName.contains("\\");
+    }
+
+    private static class Transfer {
+        final String fileName;
+        final Path part;
+        final long sizeBytes;
+        // Guarded by this
+        FileChannel channel;
+        final MessageDigest digest = MediaCatalog.newDigest();
+        long digested; // Leading bytes of the part file fed to the digest
+        boolean catchingUp;
+
+        Transfer(String fileName, Path part, long sizeBytes) {
+            this.fileName = fileName;
+            this.part = part;
+            this.sizeBytes = sizeBytes;
+        }
+    }
+}
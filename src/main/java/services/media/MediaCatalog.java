@@ -0,0 +1,415 @@
+package services.media;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import services.primitives.MediaEntry;
+
+/**
+ * Catalog of the videos in a host's video folder.
+ * <p>
+ * The first scan hashes every file in parallel across all cores and stores the
+ * result in a small index file inside the folder. Later startups reuse the index
+ * for files whose size and modification time are unchanged, so only new or edited
+ * files are hashed. Afterwards a {@link WatchService} keeps the catalog up to date,
+ * waiting for a file to stop changing before hashing it.
+ */
+public class MediaCatalog {
+
+    public static final String DEFAULT_FOLDER = System.getProperty("video.dir", "src/main/resources/video");
+    public static final String INDEX_FILE = ".catalog.idx";
+
+    private static final int INDEX_MAGIC = 0x4D434154; // "MCAT"
+    private static final int INDEX_VERSION = 1;
+
+    // Length of the content hash prefix used as the video id
+    private static final int ID_LENGTH = 12;
+
+    // Hashing reads files through memory-mapped windows of this size
+    private static final long HASH_WINDOW_BYTES = 64L << 20;
+
+    // A file must be quiet this long after a change before it is hashed
+    private static final long SETTLE_MILLIS = 1000;
+
+    private static final String[] VIDEO_EXTENSIONS = { ".mp4", ".m4v", ".mov", ".flv", ".fxm", ".m3u8", ".mp3", ".wav", ".aif", ".aiff" };
+
+    private final Path folder;
+    private final Map<String, MediaEntry> byFileName = new ConcurrentHashMap<>();
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private final Map<String, ScheduledFuture<?>> pendingRescans = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService rescans;
+    private WatchService watchService;
+
+    private MediaCatalog(Path folder) {
+        this.folder = folder;
+        this.rescans = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "media-catalog");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Scans the folder, using the stored index where possible, and starts watching it.
+     */
+    public static MediaCatalog open(Path folder) throws IOException {
+        MediaCatalog catalog = new MediaCatalog(folder);
+        if (!Files.isDirectory(folder)) {
+            throw new NoSuchFileException(folder.toAbsolutePath().toString(), null, "Video folder not found");
+        }
+        catalog.scan();
+        catalog.watch();
+        return catalog;
+    }
+
+    public Path getFolder() {
+        return folder;
+    }
+
+    /**
+     * @return All videos, ordered by file name.
+     */
+    public List<MediaEntry> entries() {
+        List<MediaEntry> entries = new ArrayList<>(byFileName.values());
+        entries.sort(Comparator.comparing(MediaEntry::getFileName));
+        return entries;
+    }
+
+    /**
+     * Finds a video by id, falling back to its file name.
+     * @return The entry, or {@code null} if no video matches.
+     */
+    public MediaEntry find(String idOrFileName) {
+        if (idOrFileName == null) return null;
+        for (MediaEntry entry : byFileName.values()) {
+            if (entry.getId().equals(idOrFileName)) return entry;
+        }
+        return byFileName.get(idOrFileName);
+    }
+
+    public MediaEntry findByHash(String contentHash) {
+        for (MediaEntry entry : byFileName.values()) {
+            if (entry.getContentHash().equals(contentHash)) return entry;
+        }
+        return null;
+    }
+
+    public Path resolve(MediaEntry entry) {
+        return folder.resolve(entry.getFileName());
+    }
+
+    /**
+     * Adds a file whose hash is already known, e.g. one just received and verified,
+     * without hashing it again.
+     */
+    public MediaEntry adopt(Path file, String contentHash) throws IOException {
+        String name = file.getFileName().toString();
+        MediaEntry entry = new MediaEntry(contentHash.substring(0, ID_LENGTH), name, Files.size(file),
+                Files.getLastModifiedTime(file).toMillis(), contentHash, MediaEntry.UNKNOWN_DURATION);
+        byFileName.put(name, entry);
+        saveIndex();
+        notifyListeners();
+        return entry;
+    }
+
+    /**
+     * Records the duration of a video once the player has loaded it; it is
+     * persisted with the index.
+     */
+    public void updateDuration(String id, long durationMillis) {
+        MediaEntry entry = find(id);
+        if (entry == null || entry.getDurationMillis() == durationMillis) return;
+        byFileName.put(entry.getFileName(), entry.withDuration(durationMillis));
+        rescans.execute(() -> {
+            saveIndexQuietly();
+            notifyListeners();
+        });
+    }
+
+    /**
+     * Registers a callback run on the catalog thread whenever videos are added, changed or removed.
+     */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public void close() {
+        rescans.shutdownNow();
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                System.err.println("Error closing media folder watcher: " + e.getMessage());
+            }
+        }
+    }
+
+    private void scan() throws IOException {
+        long begin = System.nanoTime();
+        Map<String, MediaEntry> indexed = loadIndex();
+        List<Path> files = listVideos();
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        ExecutorService hashers = Executors.newFixedThreadPool(cores, runnable -> {
+            Thread thread = new Thread(runnable, "media-hash");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Map<String, Future<MediaEntry>> hashing = new HashMap<>();
+        try {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                MediaEntry known = indexed.get(name);
+                if (known != null && known.getSizeBytes() == Files.size(file)
+                        && known.getLastModifiedMillis() == Files.getLastModifiedTime(file).toMillis()) {
+                    byFileName.put(name, known);
+                } else {
+                    hashing.put(name, hashers.submit(() -> describe(file, MediaEntry.UNKNOWN_DURATION)));
+                }
+            }
+            for (Map.Entry<String, Future<MediaEntry>> pending : hashing.entrySet()) {
+                try {
+                    byFileName.put(pending.getKey(), pending.getValue().get());
+                } catch (ExecutionException e) {
+                    System.err.println("Could not hash " + pending.getKey() + ": " + e.getCause().getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while scanning " + folder, e);
+        } finally {
+            hashers.shutdownNow();
+        }
+
+        if (!hashing.isEmpty() || indexed.size() != byFileName.size()) {
+            saveIndex();
+        }
+        System.out.printf("Media catalog: %d video(s), %d hashed, in %d ms%n",
+                byFileName.size(), hashing.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+    }
+
+    private List<Path> listVideos() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder)) {
+            for (Path file : stream) {
+                if (Files.isRegularFile(file) && isVideo(file.getFileName().toString())) {
+                    files.add(file);
+                }
+            }
+        }
+        return files;
+    }
+
+    private static boolean isVideo(String name) {
+        if (name.startsWith(".")) return false;
+        String lower = name.toLowerCase(Locale.ROOT);
+        for (String extension : VIDEO_EXTENSIONS) {
+            if (lower.endsWith(extension)) return true;
+        }
+        return false;
+    }
+
+    private static MediaEntry describe(Path file, long durationMillis) throws IOException {
+        long size = Files.size(file);
+        long modified = Files.getLastModifiedTime(file).toMillis();
+        String hash = hash(file);
+        return new MediaEntry(hash.substring(0, ID_LENGTH), file.getFileName().toString(), size, modified, hash, durationMillis);
+    }
+
+    /**
+     * @return The SHA-256 of the file contents, in lowercase hex.
+     */
+    public static String hash(Path file) throws IOException {
+        MessageDigest digest = newDigest();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += HASH_WINDOW_BYTES) {
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(HASH_WINDOW_BYTES, size - position));
+                digest.update(window);
+            }
+        }
+        return hex(digest.digest());
+    }
+
+    // The digest content hashes are taken with
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String hex(byte[] digest) {
+        StringBuilder hex = new StringBuilder(64);
+        for (byte b : digest) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private void watch() throws IOException {
+        watchService = folder.getFileSystem().newWatchService();
+        folder.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+
+        Thread watcher = new Thread(() -> {
+            try {
+                while (true) {
+                    WatchKey key = watchService.take();
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            rescans.execute(this::rescanAll);
+                        } else {
+                            String name = event.context().toString();
+                            if (isVideo(name)) scheduleRescan(name);
+                        }
+                    }
+                    if (!key.reset()) return;
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                // Catalog closed
+            }
+        }, "media-catalog-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    // Debounced: a file being copied fires many events, it is hashed once it settles
+    private void scheduleRescan(String name) {
+        pendingRescans.compute(name, (key, previous) -> {
+            if (previous != null) previous.cancel(false);
+            return rescans.schedule(() -> rescan(name), SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    private void rescan(String name) {
+        pendingRescans.remove(name);
+        Path file = folder.resolve(name);
+        try {
+            MediaEntry known = byFileName.get(name);
+            if (!Files.isRegularFile(file)) {
+                if (byFileName.remove(name) == null) return;
+            } else if (known != null && known.getSizeBytes() == Files.size(file)
+                    && known.getLastModifiedMillis() == Files.getLastModifiedTime(file).toMillis()) {
+                return;
+            } else {
+                byFileName.put(name, describe(file, MediaEntry.UNKNOWN_DURATION));
+            }
+            saveIndex();
+        } catch (IOException e) {
+            System.err.println("Could not update catalog entry " + name + ": " + e.getMessage());
+            return;
+        }
+        notifyListeners();
+    }
+
+    private void rescanAll() {
+        try {
+            List<String> present = new ArrayList<>();
+            for (Path file : listVideos()) present.add(file.getFileName().toString());
+            for (String name : new ArrayList<>(byFileName.keySet())) {
+                if (!present.contains(name)) present.add(name);
+            }
+            for (String name : present) rescan(name);
+        } catch (IOException e) {
+            System.err.println("Could not rescan video folder: " + e.getMessage());
+        }
+    }
+
+    private void notifyListeners() {
+        for (Runnable listener : listeners) {
+            try {
+                listener.run();
+            } catch (Exception e) {
+                System.err.println("Media catalog listener failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private Map<String, MediaEntry> loadIndex() {
+        Map<String, MediaEntry> entries = new HashMap<>();
+        Path index = folder.resolve(INDEX_FILE);
+        if (!Files.isRegularFile(index)) return entries;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(index)))) {
+            if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION) {
+                System.err.println("Ignoring media index with unknown format: " + index);
+                return entries;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                MediaEntry entry = new MediaEntry(in.readUTF(), in.readUTF(), in.readLong(), in.readLong(),
+                        in.readUTF(), in.readLong());
+                entries.put(entry.getFileName(), entry);
+            }
+        } catch (IOException e) {
+            System.err.println("Ignoring unreadable media index: " + e.getMessage());
+            entries.clear();
+        }
+        return entries;
+    }
+
+    // Written to a temporary file and moved into place, so a crash never leaves a torn index
+    private synchronized void saveIndex() throws IOException {
+        Path index = folder.resolve(INDEX_FILE);
+        Path temporary = folder.resolve(INDEX_FILE + ".tmp");
+        List<MediaEntry> entries = entries();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(INDEX_VERSION);
+            out.writeInt(entries.size());
+            for (MediaEntry entry : entries) {
+                out.writeUTF(entry.getId());
+                out.writeUTF(entry.getFileName());
+                out.writeLong(entry.getSizeBytes());
+                out.writeLong(entry.getLastModifiedMillis());
+                out.writeUTF(entry.getContentHash());
+                out.writeLong(entry.getDurationMillis());
+            }
+        }
+        Files.move(temporary, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void saveIndexQuietly() {
+        try {
+            saveIndex();
+        } catch (IOException e) {
+            System.err.println("Could not save media index: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package services.media;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javafx.scene.media.Media;
+import javafx.scene.media.MediaPlayer;
+import javafx.util.Duration;
+import services.primitives.MediaEntry;
+
+/**
+ * Keeps pre-rolled {@link MediaPlayer}s so that switching videos does not wait
+ * for the media to be opened and decoded up to its first frame.
+ * <p>
+ * Players are kept in least-recently-used order and disposed once the estimated
+ * memory of all cached players exceeds the budget. The active player is never
+ * evicted. All methods must be called on the JavaFX Application Thread.
+ */
+public class PlayerCache {
+
+    public static final long DEFAULT_BUDGET_BYTES = Long.getLong("player.cacheBudgetMb", 512) << 20;
+
+    // How many of the following catalog entries are pre-rolled after a switch
+    public static final int DEFAULT_PREROLL_AHEAD = Integer.getInteger("player.prerollAhead", 2);
+
+    // Decoded frames a player is assumed to hold, plus demuxer and pipeline overhead
+    private static final int BUFFERED_FRAMES = 6;
+    private static final long PLAYER_OVERHEAD_BYTES = 8L << 20;
+    private static final int ASSUMED_WIDTH = 1920;
+    private static final int ASSUMED_HEIGHT = 1080;
+
+    private final MediaCatalog catalog;
+    private final long budgetBytes;
+    private final int prerollAhead;
+
+    // Keyed by video id, in access order
+    private final LinkedHashMap<String, MediaPlayer> players = new LinkedHashMap<>(16, 0.75f, true);
+    private MediaPlayer active;
+
+    public PlayerCache(MediaCatalog catalog) {
+        this(catalog, DEFAULT_BUDGET_BYTES, DEFAULT_PREROLL_AHEAD);
+    }
+
+    public PlayerCache(MediaCatalog catalog, long budgetBytes, int prerollAhead) {
+        this.catalog = catalog;
+        this.budgetBytes = budgetBytes;
+        this.prerollAhead = prerollAhead;
+    }
+
+    /**
+     * Returns the player for {@code video}, creating it if needed, and makes it the
+     * active one. The previously active player is stopped and kept for later reuse.
+     */
+    public MediaPlayer acquire(MediaEntry video) {
+        MediaPlayer player = players.get(video.getId());
+        if (player == null) {
+            player = create(video);
+        }
+        if (active != null && active != player) {
+            // Stopping rewinds to the start, so a cached player is ready to play again
+            active.stop();
+        }
+        active = player;
+        evict();
+        return player;
+    }
+
+    /**
+     * Starts opening {@code video} in the background so a later {@link #acquire} is immediate.
+     */
+    public void preload(MediaEntry video) {
+        if (players.containsKey(video.getId())) return;
+        create(video);
+        evict();
+    }
+
+    /**
+     * Pre-rolls the videos that follow {@code video} in catalog order, the likely next cues.
+     */
+    public void preloadAfter(MediaEntry video) {
+        List<MediaEntry> entries = catalog.entries();
+        int index = entries.indexOf(video);
+        if (index < 0) return;
+        for (int i = 1; i <= prerollAhead && index + i < entries.size(); i++) {
+            preload(entries.get(index + i));
+        }
+    }
+
+    /**
+     * Disposes players whose video is no longer in the catalog.
+     */
+    public void retain(Collection<MediaEntry> videos) {
+        Set<String> ids = new HashSet<>();
+        for (MediaEntry video : videos) ids.add(video.getId());
+        Iterator<Map.Entry<String, MediaPlayer>> iterator = players.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, MediaPlayer> entry = iterator.next();
+            if (!ids.contains(entry.getKey()) && entry.getValue() != active) {
+                entry.getValue().dispose();
+                iterator.remove();
+            }
+        }
+    }
+
+    public MediaPlayer getActive() {
+        return active;
+    }
+
+    public long estimatedBytes() {
+        long total = 0;
+        for (MediaPlayer player : players.values()) total += estimate(player);
+        return total;
+    }
+
+    public void dispose() {
+        for (MediaPlayer player : players.values()) {
+            player.stop();
+            player.dispose();
+        }
+        players.clear();
+        active = null;
+    }
+
+    private MediaPlayer create(MediaEntry video) {
+        Media media = new Media(catalog.resolve(video).toUri().toString());
+        // The catalog stores the duration once the media has been probed
+        media.durationProperty().addListener((obs, oldDuration, newDuration) -> {
+            if (newDuration != null && !newDuration.isUnknown() && !newDuration.isIndefinite()) {
+                catalog.updateDuration(video.getId(), (long) newDuration.toMillis());
+            }
+        });
+
+        MediaPlayer player = new MediaPlayer(media);
+        player.setAutoPlay(false);
+        player.setOnError(() -> {
+            System.err.println("Error in player for " + video.getFileName() + ": " + player.getError().getMessage());
+            if (players.remove(video.getId(), player) && player != active) {
+                player.dispose();
+            }
+        });
+        // Once ready, rewinding makes the player decode its first frame
+        player.setOnReady(() -> {
+            if (player != active) player.seek(Duration.ZERO);
+            evict();
+        });
+        players.put(video.getId(), player);
+        return player;
+    }
+
+    // Drops least recently used players until the estimate fits the budget
+    private void evict() {
+        long total = estimatedBytes();
+        if (total <= budgetBytes) return;
+        List<String> evicted = new ArrayList<>();
+        for (Map.Entry<String, MediaPlayer> entry : players.entrySet()) {
+            if (total <= budgetBytes) break;
+            MediaPlayer player = entry.getValue();
+            if (player == active) continue;
+            total -= estimate(player);
+            player.dispose();
+            evicted.add(entry.getKey());
+        }
+        players.keySet().removeAll(evicted);
+    }
+
+    private static long estimate(MediaPlayer player) {
+        Media media = player.getMedia();
+        int width = media.getWidth() > 0 ? media.getWidth() : ASSUMED_WIDTH;
+        int height = media.getHeight() > 0 ? media.getHeight() : ASSUMED_HEIGHT;
+        return PLAYER_OVERHEAD_BYTES + (long) width * height * 4 * BUFFERED_FRAMES;
+    }
+}
@@ -0,0 +1,153 @@
+package services.media;
+
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import services.primitives.PreviewFrame;
+
+/**
+ * Compresses preview frames without leaving the JDK modules the app already uses.
+ * <p>
+ * Pixels are converted to YCbCr with chroma at quarter resolution (4:2:0), luma
+ * quantized to 6 bits and chroma to 5, each row stored as differences from the
+ * previous pixel and the result deflated. A 320 pixel wide video frame comes
+ * out at a few tens of kilobytes, plenty for a thumbnail.
+ * <p>
+ * Instances keep their planes and (de)compressor between frames and are not thread-safe.
+ */
+public class PreviewCodec {
+
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final Inflater inflater = new Inflater();
+    private byte[] planes = new byte[0];
+    private byte[] compressed = new byte[0];
+
+    /**
+     * @param argb Pixels in {@code IntArgb}, row by row.
+     * @return The compressed frame; the only allocation is the returned array.
+     */
+    public byte[] encode(int[] argb, int width, int height) {
+        int chromaWidth = (width + 1) / 2;
+        int chromaHeight = (height + 1) / 2;
+        int lumaSize = width * height;
+        int chromaSize = chromaWidth * chromaHeight;
+        int size = lumaSize + 2 * chromaSize;
+        if (planes.length < size) planes = new byte[size];
+
+        for (int y = 0; y < height; y++) {
+            int previous = 0;
+            for (int x = 0; x < width; x++) {
+                int pixel = argb[y * width + x];
+                int luma = (77 * ((pixel >> 16) & 0xFF) + 150 * ((pixel >> 8) & 0xFF) + 29 * (pixel & 0xFF)) >> 10;
+                planes[y * width + x] = (byte) (luma - previous);
+                previous = luma;
+            }
+        }
+        for (int cy = 0; cy < chromaHeight; cy++) {
+            int previousCb = 0;
+            int previousCr = 0;
+            for (int cx = 0; cx < chromaWidth; cx++) {
+                // Average of the 2x2 block, clamped at the right and bottom edges
+                int r = 0, g = 0, b = 0;
+                for (int dy = 0; dy < 2; dy++) {
+                    int row = Math.min(cy * 2 + dy, height - 1) * width;
+                    for (int dx = 0; dx < 2; dx++) {
+                        int pixel = argb[row + Math.min(cx * 2 + dx, width - 1)];
+                        r += (pixel >> 16) & 0xFF;
+                        g += (pixel >> 8) & 0xFF;
+                        b += pixel & 0xFF;
+                    }
+                }
+                int cb = ((-43 * r - 85 * g + 128 * b) >> 10) + 128 >> 3;
+                int cr = ((128 * r - 107 * g - 21 * b) >> 10) + 128 >> 3;
+                int index = cy * chromaWidth + cx;
+                planes[lumaSize + index] = (byte) (cb - previousCb);
+                planes[lumaSize + chromaSize + index] = (byte) (cr - previousCr);
+                previousCb = cb;
+                previousCr = cr;
+            }
+        }
+
+        deflater.reset();
+        deflater.setInput(planes, 0, size);
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == compressed.length) compressed = Arrays.copyOf(compressed, Math.max(4096, length * 2));
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+        return Arrays.copyOf(compressed, length);
+    }
+
+    /**
+     * Decodes a frame into {@code argb}, which must hold at least width × height pixels.
+     */
+    public void decode(PreviewFrame frame, int[] argb) {
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        int chromaWidth = (width + 1) / 2;
+        int chromaHeight = (height + 1) / 2;
+        int lumaSize = width * height;
+        int chromaSize = chromaWidth * chromaHeight;
+        int size = lumaSize + 2 * chromaSize;
+        if (planes.length < size) planes = new byte[size];
+
+        inflater.reset();
+        inflater.setInput(frame.getData());
+        try {
+            int length = 0;
+            while (length < size && !inflater.finished()) {
+                int read = inflater.inflate(planes, length, size - length);
+                if (read == 0 && inflater.needsInput()) break;
+                length += read;
+            }
+            if (length < size) throw new IllegalArgumentException("Truncated preview frame");
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt preview frame: " + e.getMessage());
+        }
+
+        // Undo the row differences in place
+        for (int y = 0; y < height; y++) {
+            int previous = 0;
+            for (int x = 0; x < width; x++) {
+                previous = (previous + planes[y * width + x]) & 0x3F;
+                planes[y * width + x] = (byte) previous;
+            }
+        }
+        for (int plane = lumaSize; plane < size; plane += chromaSize) {
+            for (int cy = 0; cy < chromaHeight; cy++) {
+                int previous = 0;
+                for (int cx = 0; cx < chromaWidth; cx++) {
+                    int index = plane + cy * chromaWidth + cx;
+                    previous = (previous + planes[index]) & 0x1F;
+                    planes[index] = (byte) previous;
+                }
+            }
+        }
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int q = planes[y * width + x];
+                int luma = q << 2 | q >> 4;
+                int chroma = (y / 2) * chromaWidth + x / 2;
+                int cb = (planes[lumaSize + chroma] << 3 | 4) - 128;
+                int cr = (planes[lumaSize + chromaSize + chroma] << 3 | 4) - 128;
+                int r = clamp(luma + ((359 * cr) >> 8));
+                int g = clamp(luma - ((88 * cb + 183 * cr) >> 8));
+                int b = clamp(luma + ((454 * cb) >> 8));
+                argb[y * width + x] = 0xFF000000 | r << 16 | g << 8 | b;
+            }
+        }
+    }
+
+    public void close() {
+        deflater.end();
+        inflater.end();
+    }
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : Math.min(255, value);
+    }
+}
@@ -0,0 +1,234 @@
+package services.media;
+
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.geometry.Bounds;
+import javafx.scene.Node;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.scene.transform.Scale;
+import services.PushSender;
+import services.net.RmiTuning;
+import services.primitives.PreviewFrame;
+import services.primitives.PreviewListenerRemote;
+import services.primitives.PreviewRemote;
+
+/**
+ * Streams thumbnails of a host's video view to subscribed controllers.
+ * <p>
+ * While anyone is subscribed, a pulse timer snapshots the view already scaled
+ * down, into the same {@link WritableImage} and pixel array every time, and hands
+ * the pixels to an encoder thread; a capture is skipped while the previous frame
+ * is still being encoded. Playback comes first: when pulses arrive late (the
+ * render thread dropped frames) or a snapshot takes longer than its budget, the
+ * capture interval doubles, and it only creeps back once rendering is smooth again.
+ * Each subscriber holds only its latest frame, so a slow controller just sees fewer.
+ * <p>
+ * Size and rate can be tuned with the {@code preview.width} and {@code preview.maxFps}
+ * system properties.
+ */
+public class PreviewService extends UnicastRemoteObject implements PreviewRemote {
+
+    public static final int WIDTH = Integer.getInteger("preview.width", 320);
+    public static final int MAX_FPS = Integer.getInteger("preview.maxFps", 5);
+
+    // Pulses further apart than this mean the render thread is missing frames (60 Hz is 16.7 ms)
+    private static final long LATE_PULSE_NANOS = 25_000_000L;
+    private static final long SNAPSHOT_BUDGET_NANOS = 4_000_000L;
+    private static final long SLOWEST_INTERVAL_NANOS = 5_000_000_000L;
+    // How long rendering must stay smooth before the rate goes up again
+    private static final long RECOVERY_NANOS = 2_000_000_000L;
+
+    private final transient List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final transient ExecutorService encoder;
+    private final transient ExecutorService senders;
+    private final transient PreviewCodec codec = new PreviewCodec(); // Encoder thread only
+    private final transient AtomicBoolean encoding = new AtomicBoolean();
+    private transient volatile Node source;
+
+    // Capture state, FX thread only
+    private final transient SnapshotParameters parameters = new SnapshotParameters();
+    private final transient Scale scale = new Scale();
+    private transient WritableImage image;
+    private transient int[] pixels = new int[0];
+    private transient long intervalNanos;
+    private transient long nextCapture;
+    private transient long lastPulse;
+    private transient long lastBusy;
+    private transient long sequence;
+    private transient AnimationTimer capture; // Created on first use, so binding needs no toolkit
+
+    public PreviewService() throws RemoteException {
+        // Exported like the player, so both share the listening socket
+        super(RmiTuning.EXPORT_PORT, RmiTuning.clientSocketFactory(), RmiTuning.serverSocketFactory());
+        parameters.setFill(Color.BLACK);
+        parameters.setTransform(scale);
+        AtomicInteger counter = new AtomicInteger();
+        encoder = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "preview-encoder");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY); // Never competes with decoding
+            return thread;
+        });
+        senders = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "preview-sender-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Sets the node previews are taken of, usually the {@code MediaView}. Called on the FX thread.
+     */
+    public void setSource(Node node) {
+        this.source = node;
+    }
+
+    public void shutdown() {
+        subscribers.clear(); // The capture timer stops itself on its next pulse
+        encoder.shutdownNow();
+        senders.shutdownNow();
+    }
+
+    @Override
+    public void subscribe(PreviewListenerRemote listener, String tag, int maxFps) throws RemoteException {
+        int fps = Math.max(1, Math.min(MAX_FPS, maxFps));
+        synchronized (subscribers) {
+            // Subscribing again, e.g. at a new rate, replaces the previous subscription
+            remove(listener);
+            subscribers.add(new Subscriber(listener, tag, 1_000_000_000L / fps));
+        }
+        Platform.runLater(this::updateCapture);
+        System.out.println("Preview subscriber registered: " + tag + " at " + fps + " fps.");
+    }
+
+    @Override
+    public void unsubscribe(PreviewListenerRemote listener) throws RemoteException {
+        remove(listener);
+        Platform.runLater(this::updateCapture);
+    }
+
+    // FX thread: captures at the rate of the most demanding subscriber, and not at all without any
+    private void updateCapture() {
+        long fastest = Long.MAX_VALUE;
+        for (Subscriber subscriber : subscribers) {
+            fastest = Math.min(fastest, subscriber.sender.getIntervalNanos());
+        }
+        if (fastest == Long.MAX_VALUE) {
+            if (capture != null) capture.stop();
+            capture = null;
+            image = null; // Released until the next subscriber
+            pixels = new int[0];
+            return;
+        }
+        intervalNanos = Math.max(intervalNanos, fastest);
+        if (capture == null) {
+            intervalNanos = fastest;
+            lastPulse = 0;
+            capture = new AnimationTimer() {
+                @Override
+                public void handle(long now) {
+                    pulse(now);
+                }
+            };
+            capture.start();
+        }
+    }
+
+    private void pulse(long now) {
+        if (subscribers.isEmpty()) {
+            updateCapture();
+            return;
+        }
+        long target = targetInterval();
+        if (lastPulse != 0 && now - lastPulse > LATE_PULSE_NANOS) backOff(now);
+        lastPulse = now;
+        if (now < nextCapture) return;
+
+        Node node = source;
+        // Skipped rather than queued: the next capture comes soon enough
+        if (node == null || node.getScene() == null || !encoding.compareAndSet(false, true)) return;
+
+        if (now - lastBusy > RECOVERY_NANOS && intervalNanos > target) {
+            intervalNanos = Math.max(target, intervalNanos * 3 / 4);
+        }
+        nextCapture = now + intervalNanos;
+
+        Bounds bounds = node.getLayoutBounds();
+        double factor = Math.min(1.0, WIDTH / Math.max(1.0, bounds.getWidth()));
+        int width = Math.max(1, (int) (bounds.getWidth() * factor));
+        int height = Math.max(1, (int) (bounds.getHeight() * factor));
+        if (image == null || (int) image.getWidth() != width || (int) image.getHeight() != height) {
+            // Only when the view is resized
+            image = new WritableImage(width, height);
+            pixels = new int[width * height];
+        }
+        scale.setX(factor);
+        scale.setY(factor);
+
+        long begin = System.nanoTime();
+        node.snapshot(parameters, image);
+        image.getPixelReader().getPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+        if (System.nanoTime() - begin > SNAPSHOT_BUDGET_NANOS) backOff(now);
+
+        long frameSequence = ++sequence;
+        long capturedAt = System.currentTimeMillis();
+        int[] frame = pixels;
+        encoder.execute(() -> {
+            try {
+                PreviewFrame encoded = new PreviewFrame(width, height, frameSequence, capturedAt,
+                        codec.encode(frame, width, height));
+                for (Subscriber subscriber : subscribers) {
+                    subscriber.sender.offer(encoded);
+                }
+            } finally {
+                encoding.set(false); // The pixel array is free for the next capture
+            }
+        });
+    }
+
+    private void backOff(long now) {
+        lastBusy = now;
+        intervalNanos = Math.min(SLOWEST_INTERVAL_NANOS, intervalNanos * 2);
+    }
+
+    private long targetInterval() {
+        long fastest = SLOWEST_INTERVAL_NANOS;
+        for (Subscriber subscriber : subscribers) {
+            fastest = Math.min(fastest, subscriber.sender.getIntervalNanos());
+        }
+        return fastest;
+    }
+
+    private void remove(PreviewListenerRemote listener) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.listener.equals(listener) && subscribers.remove(subscriber)) subscriber.sender.cancel();
+        }
+    }
+
+    // Each subscriber holds only its latest frame; a frame lost to a failed send is not sent again
+    private class Subscriber {
+        final PreviewListenerRemote listener;
+        final PushSender<PreviewFrame> sender;
+
+        Subscriber(PreviewListenerRemote listener, String tag, long intervalNanos) {
+            this.listener = listener;
+            this.sender = PushSender.latest("preview subscriber " + tag, senders,
+                    frame -> listener.onPreviewFrame(tag, frame), lost -> null, intervalNanos, () -> {
+                        subscribers.remove(this);
+                        Platform.runLater(PreviewService.this::updateCapture);
+                    });
+        }
+    }
+}
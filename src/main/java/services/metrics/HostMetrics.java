@@ -0,0 +1,157 @@
+package services.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import services.primitives.Command;
+import services.primitives.CommandStats;
+import services.primitives.MethodStats;
+import services.primitives.MetricsSnapshot;
+import services.primitives.PlaybackStatus;
+
+/**
+ * Counters and latency histograms of a host service.
+ * <p>
+ * Remote methods are counted with their service time. Playback commands are
+ * timed twice: from receipt until the pipeline dispatches them on the JavaFX
+ * Application Thread, and from dispatch until the MediaPlayer reports the
+ * resulting status. All recording paths are allocation-free; snapshots are
+ * only built when metrics are read, through JMX or {@code getMetrics()}.
+ */
+public class HostMetrics implements HostMetricsMXBean {
+
+    private static final RemoteMethod[] METHODS = RemoteMethod.values();
+    private static final Command.Type[] COMMANDS = Command.Type.values();
+
+    private final AtomicLongArray calls = new AtomicLongArray(METHODS.length);
+    private final AtomicLongArray errors = new AtomicLongArray(METHODS.length);
+    private final LatencyHistogram[] serviceTime = new LatencyHistogram[METHODS.length];
+
+    private final AtomicLongArray applied = new AtomicLongArray(COMMANDS.length);
+    private final AtomicLongArray commandErrors = new AtomicLongArray(COMMANDS.length);
+    private final LatencyHistogram[] dispatch = new LatencyHistogram[COMMANDS.length];
+    private final LatencyHistogram[] stateChange = new LatencyHistogram[COMMANDS.length];
+
+    // The status the player should reach after the last dispatched command, null once reached
+    private final AtomicReference<Expectation> expected = new AtomicReference<>();
+
+    private static final class Expectation {
+        final PlaybackStatus status;
+        final Command.Type command;
+        final long sinceNanos;
+
+        Expectation(PlaybackStatus status, Command.Type command, long sinceNanos) {
+            this.status = status;
+            this.command = command;
+            this.sinceNanos = sinceNanos;
+        }
+    }
+
+    public HostMetrics() {
+        for (int i = 0; i < METHODS.length; i++) serviceTime[i] = new LatencyHistogram();
+        for (int i = 0; i < COMMANDS.length; i++) {
+            dispatch[i] = new LatencyHistogram();
+            stateChange[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Registers this object with the platform MBean server under
+     * {@code rmi_javafx:type=HostMetrics,name=<name>}.
+     */
+    public void registerMBean(String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName("rmi_javafx:type=HostMetrics,name=" + ObjectName.quote(name));
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(this, objectName);
+        } catch (JMException e) {
+            System.err.println("Could not register metrics MBean: " + e.getMessage());
+        }
+    }
+
+    public void recordCall(RemoteMethod method, long nanos) {
+        calls.incrementAndGet(method.ordinal());
+        serviceTime[method.ordinal()].record(nanos);
+    }
+
+    public void recordError(RemoteMethod method) {
+        errors.incrementAndGet(method.ordinal());
+    }
+
+    public void recordDispatch(Command.Type command, long nanos) {
+        applied.incrementAndGet(command.ordinal());
+        dispatch[command.ordinal()].record(nanos);
+    }
+
+    public void recordCommandError(Command.Type command) {
+        commandErrors.incrementAndGet(command.ordinal());
+    }
+
+    /**
+     * Called when a command is handed to the MediaPlayer; the next matching status
+     * change closes the measurement. A command that leaves the status as it is, such
+     * as play or restart while playing, changes nothing to measure: it only drops
+     * the expectation of an earlier command, so a later recovery to that status is
+     * not taken for its effect.
+     * @param current The status of the player before the command.
+     */
+    public void expectStatus(PlaybackStatus current, PlaybackStatus status, Command.Type command) {
+        expected.set(current == status ? null : new Expectation(status, command, System.nanoTime()));
+    }
+
+    public void onStatus(PlaybackStatus status) {
+        Expectation pending = expected.get();
+        if (status != null && pending != null && status == pending.status && expected.compareAndSet(pending, null)) {
+            stateChange[pending.command.ordinal()].record(System.nanoTime() - pending.sinceNanos);
+        }
+    }
+
+    public MetricsSnapshot snapshot() {
+        return new MetricsSnapshot(System.currentTimeMillis(), getMethods(), getCommands());
+    }
+
+    @Override
+    public long getTotalCalls() {
+        long total = 0;
+        for (int i = 0; i < METHODS.length; i++) total += calls.get(i);
+        return total;
+    }
+
+    @Override
+    public long getTotalErrors() {
+        long total = 0;
+        for (int i = 0; i < METHODS.length; i++) total += errors.get(i);
+        return total;
+    }
+
+    @Override
+    public List<MethodStats> getMethods() {
+        List<MethodStats> methods = new ArrayList<>(METHODS.length);
+        for (RemoteMethod method : METHODS) {
+            int i = method.ordinal();
+            methods.add(new MethodStats(method.name(), calls.get(i), errors.get(i), serviceTime[i].snapshot()));
+        }
+        return methods;
+    }
+
+    @Override
+    public List<CommandStats> getCommands() {
+        List<CommandStats> commands = new ArrayList<>(COMMANDS.length);
+        for (Command.Type command : COMMANDS) {
+            int i = command.ordinal();
+            commands.add(new CommandStats(command.name(), applied.get(i), commandErrors.get(i),
+                    dispatch[i].snapshot(), stateChange[i].snapshot()));
+        }
+        return commands;
+    }
+}
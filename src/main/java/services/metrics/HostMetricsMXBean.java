@@ -0,0 +1,20 @@
+package services.metrics;
+
+import java.util.List;
+
+import services.primitives.CommandStats;
+import services.primitives.MethodStats;
+
+/**
+ * JMX view of {@link HostMetrics}.
+ */
+public interface HostMetricsMXBean {
+
+    long getTotalCalls();
+
+    long getTotalErrors();
+
+    List<MethodStats> getMethods();
+
+    List<CommandStats> getCommands();
+}
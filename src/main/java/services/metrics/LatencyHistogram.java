@@ -0,0 +1,26 @@
+package services.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import services.primitives.LatencySnapshot;
+
+/**
+ * Lock-free, allocation-free latency histogram.
+ * Recording is one bucket computation and one atomic increment.
+ */
+public final class LatencyHistogram {
+
+    private final AtomicLongArray counts = new AtomicLongArray(LatencySnapshot.BUCKETS);
+
+    public void record(long nanos) {
+        counts.incrementAndGet(LatencySnapshot.bucketOf(nanos / 1000));
+    }
+
+    public LatencySnapshot snapshot() {
+        long[] copy = new long[LatencySnapshot.BUCKETS];
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new LatencySnapshot(copy);
+    }
+}
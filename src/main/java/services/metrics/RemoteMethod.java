@@ -0,0 +1,13 @@
+package services.metrics;
+
+/**
+ * Remote methods of the host service that are counted and timed.
+ */
+public enum RemoteMethod {
+    PLAY_VIDEO, PAUSE_VIDEO, RESTART_VIDEO, CURRENT_TIME_MILLIS,
+    PLAY_AT, PAUSE_AT, RESTART_AT, EXECUTE_BATCH,
+    ADD_PLAYBACK_LISTENER, REMOVE_PLAYBACK_LISTENER, GET_METRICS, SELECT_VIDEO,
+    UPLOAD_TIMELINE, AMEND_TIMELINE, GET_TIMELINE_PROGRESS, CANCEL_TIMELINE,
+    FORWARD, FORWARD_AT, GET_CHILDREN, SAMPLE_POSITION, SYNC_TO,
+    FAST_PATH, RESET_RATE
+}
@@ -0,0 +1,151 @@
+package services.net;
+
+import java.nio.ByteBuffer;
+
+import services.primitives.Command;
+
+/**
+ * Fixed-size wire format of the datagram fast path, read and written in place
+ * so neither end allocates per message. Every datagram is {@link #SIZE} bytes,
+ * big-endian:
+ * <pre>
+ *  0  int   magic "RVFP"
+ *  4  byte  version
+ *  5  byte  kind: COMMAND or ACK
+ *  6  byte  opcode (COMMAND) or status (ACK)
+ *  7  byte  reserved
+ *  8  int   target: hash of the service name, ALL_PLAYERS for every player of the host
+ * 12  int   reserved
+ * 16  long  sender id, random per controller
+ * 24  long  sequence, increasing per sender
+ * 32  long  seek position in milliseconds
+ * 40  long  host epoch millis to apply at, 0 for right away
+ * </pre>
+ * An ack repeats the sender, sequence and target of the command it answers.
+ */
+public final class CommandDatagram {
+
+    public static final int SIZE = 48;
+    public static final int MAGIC = 0x52564650;
+    public static final byte VERSION = 1;
+
+    public static final byte COMMAND = 1;
+    public static final byte ACK = 2;
+
+    public static final byte OK = 0;
+    public static final byte REJECTED = 1;
+
+    public static final int ALL_PLAYERS = 0;
+
+    // Opcodes are fixed here rather than taken from the enum order, which may change
+    private static final byte PLAY = 1;
+    private static final byte PAUSE = 2;
+    private static final byte RESTART = 3;
+    private static final byte SEEK = 4;
+
+    private CommandDatagram() {
+    }
+
+    /**
+     * @return The target field for a service name, never {@link #ALL_PLAYERS}.
+     */
+    public static int targetOf(String serviceName) {
+        int hash = serviceName.hashCode();
+        return hash == ALL_PLAYERS ? 1 : hash;
+    }
+
+    /**
+     * @return The opcode of a transport command, or 0 for commands the fast path does not carry.
+     */
+    public static byte opcodeOf(Command.Type type) {
+        switch (type) {
+            case PLAY: return PLAY;
+            case PAUSE: return PAUSE;
+            case RESTART: return RESTART;
+            case SEEK: return SEEK;
+            default: return 0;
+        }
+    }
+
+    /**
+     * @return The command type of an opcode, or {@code null} if it is unknown.
+     */
+    public static Command.Type typeOf(byte opcode) {
+        switch (opcode) {
+            case PLAY: return Command.Type.PLAY;
+            case PAUSE: return Command.Type.PAUSE;
+            case RESTART: return Command.Type.RESTART;
+            case SEEK: return Command.Type.SEEK;
+            default: return null;
+        }
+    }
+
+    /**
+     * Writes a command into {@code buffer} and flips it for sending.
+     */
+    public static void writeCommand(ByteBuffer buffer, long sender, long sequence, int target,
+                                    byte opcode, long positionMillis, long atEpochMillis) {
+        write(buffer, COMMAND, opcode, sender, sequence, target, positionMillis, atEpochMillis);
+    }
+
+    /**
+     * Turns the command in {@code buffer} into its ack, in place, and flips it for sending.
+     */
+    public static void toAck(ByteBuffer buffer, byte status) {
+        write(buffer, ACK, status, sender(buffer), sequence(buffer), target(buffer), 0, 0);
+    }
+
+    /**
+     * @param length Bytes received into the buffer.
+     * @return True for a datagram of this format and version; anything else on the port is ignored.
+     */
+    public static boolean isValid(ByteBuffer buffer, int length) {
+        return length == SIZE && buffer.getInt(0) == MAGIC && buffer.get(4) == VERSION;
+    }
+
+    public static byte kind(ByteBuffer buffer) {
+        return buffer.get(5);
+    }
+
+    // The opcode of a command or the status of an ack
+    public static byte code(ByteBuffer buffer) {
+        return buffer.get(6);
+    }
+
+    public static int target(ByteBuffer buffer) {
+        return buffer.getInt(8);
+    }
+
+    public static long sender(ByteBuffer buffer) {
+        return buffer.getLong(16);
+    }
+
+    public static long sequence(ByteBuffer buffer) {
+        return buffer.getLong(24);
+    }
+
+    public static long positionMillis(ByteBuffer buffer) {
+        return buffer.getLong(32);
+    }
+
+    public static long atEpochMillis(ByteBuffer buffer) {
+        return buffer.getLong(40);
+    }
+
+    private static void write(ByteBuffer buffer, byte kind, byte code, long sender, long sequence,
+                              int target, long positionMillis, long atEpochMillis) {
+        buffer.clear();
+        buffer.putInt(0, MAGIC);
+        buffer.put(4, VERSION);
+        buffer.put(5, kind);
+        buffer.put(6, code);
+        buffer.put(7, (byte) 0);
+        buffer.putInt(8, target);
+        buffer.putInt(12, 0);
+        buffer.putLong(16, sender);
+        buffer.putLong(24, sequence);
+        buffer.putLong(32, positionMillis);
+        buffer.putLong(40, atEpochMillis);
+        buffer.limit(SIZE);
+    }
+}
@@ -0,0 +1,50 @@
+package services.net;
+
+/**
+ * Socket settings shared by hosts and controllers, read once from system properties:
+ * <ul>
+ *   <li>{@code rmi.exportPort} - fixed port for exported objects, 0 for an anonymous port (default 0).
+ *       Using the registry port puts the registry and every service behind a single firewall rule.</li>
+ *   <li>{@code rmi.tcpNoDelay} - disable Nagle's algorithm (default true).</li>
+ *   <li>{@code rmi.keepAlive} - TCP keep-alive (default true).</li>
+ *   <li>{@code rmi.connectTimeoutMillis} - connection setup limit (default 2000).</li>
+ *   <li>{@code rmi.readTimeoutMillis} - limit on waiting for a reply, 0 for none (default 10000).</li>
+ *   <li>{@code rmi.backlog} - pending connection queue of server sockets (default 128).</li>
+ *   <li>{@code rmi.idleConnectionMillis} - how long an idle connection is kept for reuse by the
+ *       RMI runtime; 0 disables pooling. Unset keeps the JDK default.</li>
+ * </ul>
+ */
+public final class RmiTuning {
+
+    public static final int EXPORT_PORT = Integer.getInteger("rmi.exportPort", 0);
+    public static final boolean TCP_NO_DELAY = Boolean.parseBoolean(System.getProperty("rmi.tcpNoDelay", "true"));
+    public static final boolean KEEP_ALIVE = Boolean.parseBoolean(System.getProperty("rmi.keepAlive", "true"));
+    public static final int CONNECT_TIMEOUT_MILLIS = Integer.getInteger("rmi.connectTimeoutMillis", 2000);
+    public static final int READ_TIMEOUT_MILLIS = Integer.getInteger("rmi.readTimeoutMillis", 10_000);
+    public static final int BACKLOG = Integer.getInteger("rmi.backlog", 128);
+
+    private static final TunedClientSocketFactory CLIENT_FACTORY =
+            new TunedClientSocketFactory(CONNECT_TIMEOUT_MILLIS, READ_TIMEOUT_MILLIS, TCP_NO_DELAY, KEEP_ALIVE);
+    private static final TunedServerSocketFactory SERVER_FACTORY =
+            new TunedServerSocketFactory(TCP_NO_DELAY, KEEP_ALIVE, BACKLOG);
+
+    static {
+        // The RMI runtime already pools idle connections per endpoint; this only sets how long
+        // they live. It must be set before the first remote call.
+        String idle = System.getProperty("rmi.idleConnectionMillis");
+        if (idle != null) {
+            System.setProperty("sun.rmi.transport.connectionTimeout", String.valueOf(Math.max(1, Long.parseLong(idle))));
+        }
+    }
+
+    private RmiTuning() {
+    }
+
+    public static TunedClientSocketFactory clientSocketFactory() {
+        return CLIENT_FACTORY;
+    }
+
+    public static TunedServerSocketFactory serverSocketFactory() {
+        return SERVER_FACTORY;
+    }
+}
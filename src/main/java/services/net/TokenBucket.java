@@ -0,0 +1,49 @@
+package services.net;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps the throughput shared by several threads.
+ * Tokens refill continuously at {@code ratePerSecond}, up to one second's worth.
+ */
+public class TokenBucket {
+
+    private final long ratePerSecond;
+    private final long capacity;
+
+    // Guarded by this
+    private double tokens;
+    private long lastRefillNanos;
+
+    /**
+     * @param ratePerSecond Tokens added per second; 0 or less disables the cap.
+     */
+    public TokenBucket(long ratePerSecond) {
+        this.ratePerSecond = ratePerSecond;
+        this.capacity = Math.max(ratePerSecond, 1);
+        this.tokens = capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Blocks until {@code amount} tokens are available and takes them.
+     * Requests larger than the capacity are allowed and leave the bucket in debt.
+     */
+    public void acquire(long amount) throws InterruptedException {
+        if (ratePerSecond <= 0) return;
+        long waitNanos;
+        synchronized (this) {
+            refill();
+            tokens -= amount;
+            if (tokens >= 0) return;
+            waitNanos = (long) (-tokens * TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        }
+        TimeUnit.NANOSECONDS.sleep(waitNanos);
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * ratePerSecond / (double) TimeUnit.SECONDS.toNanos(1));
+        lastRefillNanos = now;
+    }
+}
@@ -0,0 +1,58 @@
+package services.net;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.rmi.server.RMIClientSocketFactory;
+import java.util.Objects;
+
+/**
+ * Client sockets for RMI control traffic: Nagle disabled so small command
+ * messages leave immediately, keep-alive so dead peers are noticed, and
+ * bounded connect and read times.
+ * <p>
+ * Hosts export their services with this factory, so it travels inside the
+ * stubs and controllers use it without any configuration of their own.
+ */
+public final class TunedClientSocketFactory implements RMIClientSocketFactory, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    private final boolean tcpNoDelay;
+    private final boolean keepAlive;
+
+    public TunedClientSocketFactory(int connectTimeoutMillis, int readTimeoutMillis, boolean tcpNoDelay, boolean keepAlive) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+        this.tcpNoDelay = tcpNoDelay;
+        this.keepAlive = keepAlive;
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+        Socket socket = new Socket();
+        socket.setTcpNoDelay(tcpNoDelay);
+        socket.setKeepAlive(keepAlive);
+        socket.connect(new InetSocketAddress(host, port), connectTimeoutMillis);
+        socket.setSoTimeout(readTimeoutMillis);
+        return socket;
+    }
+
+    // RMI shares connections between stubs whose factories are equal
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) return true;
+        if (!(other instanceof TunedClientSocketFactory)) return false;
+        TunedClientSocketFactory that = (TunedClientSocketFactory) other;
+        return connectTimeoutMillis == that.connectTimeoutMillis && readTimeoutMillis == that.readTimeoutMillis
+                && tcpNoDelay == that.tcpNoDelay && keepAlive == that.keepAlive;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(connectTimeoutMillis, readTimeoutMillis, tcpNoDelay, keepAlive);
+    }
+}
@@ -0,0 +1,56 @@
+package services.net;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.rmi.server.RMIServerSocketFactory;
+import java.util.Objects;
+
+/**
+ * Server sockets for RMI control traffic. Accepted connections get the same
+ * TCP_NODELAY and keep-alive settings as {@link TunedClientSocketFactory}, so
+ * replies and callbacks are not held back by Nagle's algorithm either.
+ */
+public final class TunedServerSocketFactory implements RMIServerSocketFactory {
+
+    private final boolean tcpNoDelay;
+    private final boolean keepAlive;
+    private final int backlog;
+
+    public TunedServerSocketFactory(boolean tcpNoDelay, boolean keepAlive, int backlog) {
+        this.tcpNoDelay = tcpNoDelay;
+        this.keepAlive = keepAlive;
+        this.backlog = backlog;
+    }
+
+    @Override
+    public ServerSocket createServerSocket(int port) throws IOException {
+        ServerSocket serverSocket = new ServerSocket() {
+            @Override
+            public Socket accept() throws IOException {
+                Socket socket = super.accept();
+                socket.setTcpNoDelay(tcpNoDelay);
+                socket.setKeepAlive(keepAlive);
+                return socket;
+            }
+        };
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(port), backlog);
+        return serverSocket;
+    }
+
+    // Objects exported on the same port share one listening socket only if their factories are equal
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) return true;
+        if (!(other instanceof TunedServerSocketFactory)) return false;
+        TunedServerSocketFactory that = (TunedServerSocketFactory) other;
+        return tcpNoDelay == that.tcpNoDelay && keepAlive == that.keepAlive && backlog == that.backlog;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(tcpNoDelay, keepAlive, backlog);
+    }
+}
@@ -0,0 +1,77 @@
+package services.primitives;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * Aggregated outcome of a batch of commands.
+ * Keeps one error message slot per command; successful commands leave it {@code null}.
+ */
+public final class BatchResult implements Externalizable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String[] errors;
+
+    // Required by Externalizable
+    public BatchResult() {
+        this(0);
+    }
+
+    public BatchResult(int size) {
+        this.errors = new String[size];
+    }
+
+    public void fail(int index, String message) {
+        errors[index] = message;
+    }
+
+    public int size() {
+        return errors.length;
+    }
+
+    public boolean isSuccess(int index) {
+        return errors[index] == null;
+    }
+
+    public String getError(int index) {
+        return errors[index];
+    }
+
+    public int getFailedCount() {
+        int failed = 0;
+        for (String error : errors) {
+            if (error != null) failed++;
+        }
+        return failed;
+    }
+
+    public int getAppliedCount() {
+        return errors.length - getFailedCount();
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeInt(errors.length);
+        // Only failed entries are written, as (index, message) pairs
+        out.writeInt(getFailedCount());
+        for (int i = 0; i < errors.length; i++) {
+            if (errors[i] != null) {
+                out.writeInt(i);
+                out.writeUTF(errors[i]);
+            }
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        errors = new String[in.readInt()];
+        int failed = in.readInt();
+        for (int i = 0; i < failed; i++) {
+            int index = in.readInt();
+            errors[index] = in.readUTF();
+        }
+    }
+}
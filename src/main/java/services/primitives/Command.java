@@ -0,0 +1,148 @@
+package services.primitives;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A single playback command sent inside a batch.
+ * Serialized by hand as a one byte opcode followed only by the argument the
+ * opcode needs, so a batch of commands stays a few bytes per entry.
+ * A command may carry an idempotency key so that a retried send is applied only once.
+ */
+public final class Command implements Externalizable {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Type { PLAY, PAUSE, RESTART, SEEK, SELECT_VIDEO }
+
+    private static final Type[] TYPES = Type.values();
+
+    // Set on the opcode byte when an idempotency key follows it
+    private static final int KEY_FLAG = 0x80;
+
+    private Type type;
+    private long positionMillis;
+    private String videoId;
+    private long idempotencyKey; // 0 means the command is not deduplicated
+
+    // Required by Externalizable
+    public Command() {
+    }
+
+    private Command(Type type, long positionMillis, String videoId) {
+        this.type = type;
+        this.positionMillis = positionMillis;
+        this.videoId = videoId;
+    }
+
+    public static Command play() {
+        return new Command(Type.PLAY, 0, null);
+    }
+
+    public static Command pause() {
+        return new Command(Type.PAUSE, 0, null);
+    }
+
+    public static Command restart() {
+        return new Command(Type.RESTART, 0, null);
+    }
+
+    public static Command seek(long positionMillis) {
+        return new Command(Type.SEEK, positionMillis, null);
+    }
+
+    public static Command selectVideo(String videoId) {
+        return new Command(Type.SELECT_VIDEO, 0, videoId);
+    }
+
+    /**
+     * @return A random non-zero key suitable for {@link #withIdempotencyKey(long)}.
+     */
+    public static long newIdempotencyKey() {
+        long key;
+        do {
+            key = ThreadLocalRandom.current().nextLong();
+        } while (key == 0);
+        return key;
+    }
+
+    /**
+     * Returns a copy of this command tagged with the given key. Hosts drop
+     * commands whose key they have already seen, so a sender can safely retry.
+     */
+    public Command withIdempotencyKey(long key) {
+        Command copy = new Command(type, positionMillis, videoId);
+        copy.idempotencyKey = key;
+        return copy;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getPositionMillis() {
+        return positionMillis;
+    }
+
+    public String getVideoId() {
+        return videoId;
+    }
+
+    public long getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeByte(idempotencyKey != 0 ? type.ordinal() | KEY_FLAG : type.ordinal());
+        if (idempotencyKey != 0) {
+            out.writeLong(idempotencyKey);
+        }
+        switch (type) {
+            case SEEK:
+                out.writeLong(positionMillis);
+                break;
+            case SELECT_VIDEO:
+                out.writeUTF(videoId);
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        int opcode = in.readUnsignedByte();
+        int ordinal = opcode & ~KEY_FLAG;
+        // A peer built with more command types than this one
+        if (ordinal >= TYPES.length) throw new InvalidObjectException("Unknown command type " + ordinal);
+        type = TYPES[ordinal];
+        idempotencyKey = (opcode & KEY_FLAG) != 0 ? in.readLong() : 0;
+        switch (type) {
+            case SEEK:
+                positionMillis = in.readLong();
+                break;
+            case SELECT_VIDEO:
+                videoId = in.readUTF();
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public String toString() {
+        switch (type) {
+            case SEEK:
+                return "SEEK " + positionMillis;
+            case SELECT_VIDEO:
+                return "SELECT_VIDEO " + videoId;
+            default:
+                return type.name();
+        }
+    }
+}
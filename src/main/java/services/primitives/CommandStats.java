@@ -0,0 +1,47 @@
+package services.primitives;
+
+import java.io.Serializable;
+
+/**
+ * Latencies of one kind of playback command on its way to the player:
+ * from receipt to dispatch on the JavaFX Application Thread, and from
+ * dispatch to the MediaPlayer reporting the resulting state.
+ */
+public final class CommandStats implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String name;
+    private final long applied;
+    private final long errors;
+    private final LatencySnapshot dispatch;
+    private final LatencySnapshot stateChange;
+
+    public CommandStats(String name, long applied, long errors, LatencySnapshot dispatch, LatencySnapshot stateChange) {
+        this.name = name;
+        this.applied = applied;
+        this.errors = errors;
+        this.dispatch = dispatch;
+        this.stateChange = stateChange;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getApplied() {
+        return applied;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public LatencySnapshot getDispatch() {
+        return dispatch;
+    }
+
+    public LatencySnapshot getStateChange() {
+        return stateChange;
+    }
+}
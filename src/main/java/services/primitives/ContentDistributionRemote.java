@@ -0,0 +1,27 @@
+package services.primitives;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+
+/**
+ * Receives video files pushed by a controller into the host's media catalog.
+ * Bound next to the player as {@code <service>.content}. A transfer is identified
+ * by the SHA-256 of the file, so an interrupted transfer resumes where it stopped.
+ */
+public interface ContentDistributionRemote extends Remote {
+
+    String SERVICE_SUFFIX = ".content";
+
+    // True if the catalog already holds a file with this content
+    boolean hasContent(String contentHash) throws RemoteException;
+
+    // Starts or resumes a transfer; returns the offset of the first byte still needed
+    long beginTransfer(String fileName, String contentHash, long sizeBytes) throws RemoteException;
+
+    // Chunks are written in order, starting at the offset returned by beginTransfer
+    void writeChunk(String contentHash, long offset, byte[] data) throws RemoteException;
+
+    // Verifies the hash and adds the file to the catalog
+    MediaEntry completeTransfer(String contentHash) throws RemoteException;
+
+}
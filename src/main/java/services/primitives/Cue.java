@@ -0,0 +1,54 @@
+package services.primitives;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * One entry of a timeline: a command and when it fires, in milliseconds
+ * after the timeline start. Serialized as the offset followed by the command's
+ * own compact form.
+ */
+public final class Cue implements Externalizable {
+
+    private static final long serialVersionUID = 1L;
+
+    private long offsetMillis;
+    private Command command;
+
+    // Required by Externalizable
+    public Cue() {
+    }
+
+    public Cue(long offsetMillis, Command command) {
+        this.offsetMillis = offsetMillis;
+        this.command = command;
+    }
+
+    public long getOffsetMillis() {
+        return offsetMillis;
+    }
+
+    public Command getCommand() {
+        return command;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeLong(offsetMillis);
+        command.writeExternal(out);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        offsetMillis = in.readLong();
+        command = new Command();
+        command.readExternal(in);
+    }
+
+    @Override
+    public String toString() {
+        return "+" + offsetMillis + " ms " + command;
+    }
+}
@@ -0,0 +1,55 @@
+package services.primitives;
+
+import java.io.Serializable;
+
+/**
+ * A host as listed by the directory: where its player is bound and what it shows.
+ */
+public final class DirectoryEntry implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String name;
+    private final String hostname;
+    private final int port;
+    private final String serviceName;
+    private final int videoIndex;
+
+    public DirectoryEntry(String name, String hostname, int port, String serviceName, int videoIndex) {
+        this.name = name;
+        this.hostname = hostname;
+        this.port = port;
+        this.serviceName = serviceName;
+        this.videoIndex = videoIndex;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getHostname() {
+        return hostname;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    public int getVideoIndex() {
+        return videoIndex;
+    }
+
+    // "hostname:port/serviceName", as controllers identify hosts
+    public String getIdentifier() {
+        return hostname + ":" + port + "/" + serviceName;
+    }
+
+    @Override
+    public String toString() {
+        return getIdentifier() + " (" + name + ")";
+    }
+}
@@ -0,0 +1,14 @@
+package services.primitives;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+
+/**
+ * Callback exported by a controller to follow the directory.
+ */
+public interface DirectoryListenerRemote extends Remote {
+
+    // The whole listing every time, so a missed call is made up for by the next one
+    void onListing(DirectoryListing listing) throws RemoteException;
+
+}
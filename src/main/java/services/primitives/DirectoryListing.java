@@ -0,0 +1,41 @@
+package services.primitives;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Every host holding a live lease at one moment, ordered by identifier.
+ * The revision grows with every change; the incarnation changes when the
+ * directory restarts, which is when subscriptions have to be made again.
+ */
+public final class DirectoryListing implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long incarnation;
+    private final long revision;
+    private final List<DirectoryEntry> entries;
+
+    public DirectoryListing(long incarnation, long revision, List<DirectoryEntry> entries) {
+        this.incarnation = incarnation;
+        this.revision = revision;
+        this.entries = List.copyOf(entries);
+    }
+
+    public long getIncarnation() {
+        return incarnation;
+    }
+
+    public long getRevision() {
+        return revision;
+    }
+
+    public List<DirectoryEntry> getEntries() {
+        return entries;
+    }
+
+    @Override
+    public String toString() {
+        return entries.size() + " host(s), revision " + revision;
+    }
+}
@@ -0,0 +1,38 @@
+package services.primitives;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+
+/**
+ * Lists live hosts. Hosts register with a lease that they keep renewing; a host
+ * that stops renewing, because it crashed or lost the network, drops out when
+ * its lease expires, with nothing left to clean up. Controllers get every host
+ * in one call, or have each change pushed to them.
+ */
+public interface DirectoryRemote extends Remote {
+
+    String SERVICE_NAME = "directory";
+
+    /**
+     * Lists the entry until the lease runs out, replacing any entry with the same identifier,
+     * so a host restarting after a crash takes over its stale one.
+     * @param leaseMillis Asked duration, which the directory may shorten.
+     * @return The lease id to renew and cancel it with.
+     */
+    long register(DirectoryEntry entry, long leaseMillis) throws RemoteException;
+
+    /**
+     * Extends the lease by its duration from now.
+     * @return False if the lease has expired or is unknown; the entry must be registered again.
+     */
+    boolean renew(long leaseId) throws RemoteException;
+
+    void cancel(long leaseId) throws RemoteException;
+
+    DirectoryListing list() throws RemoteException;
+
+    // The listener gets the current listing right away, then the new one after every change
+    void subscribe(DirectoryListenerRemote listener) throws RemoteException;
+    void unsubscribe(DirectoryListenerRemote listener) throws RemoteException;
+
+}
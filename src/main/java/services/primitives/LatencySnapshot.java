@@ -0,0 +1,97 @@
+package services.primitives;
+
+import java.io.Serializable;
+
+/**
+ * Bucket counts of a latency histogram, as sent to controllers.
+ * Buckets are log-linear in microseconds: four sub-buckets per power of two,
+ * so any reported percentile is within about 20% of the true value.
+ */
+public final class LatencySnapshot implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int BUCKETS = 144;
+
+    private final long[] counts;
+
+    public LatencySnapshot(long[] counts) {
+        this.counts = counts;
+    }
+
+    public static LatencySnapshot empty() {
+        return new LatencySnapshot(new long[BUCKETS]);
+    }
+
+    /**
+     * @return The bucket a latency in microseconds falls into.
+     */
+    public static int bucketOf(long micros) {
+        if (micros < 4) return (int) Math.max(0, micros);
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int mantissa = (int) (micros >>> (exponent - 2)) & 3;
+        return Math.min(BUCKETS - 1, (exponent - 1) * 4 + mantissa);
+    }
+
+    /**
+     * @return The exclusive upper bound, in microseconds, of a bucket.
+     */
+    public static long upperBoundMicros(int bucket) {
+        if (bucket < 4) return bucket + 1;
+        int exponent = bucket / 4 + 1;
+        int mantissa = bucket % 4;
+        return (5L + mantissa) << (exponent - 2);
+    }
+
+    public long[] getCounts() {
+        return counts.clone();
+    }
+
+    public long getCount() {
+        long total = 0;
+        for (long count : counts) total += count;
+        return total;
+    }
+
+    /**
+     * @param quantile Between 0 and 1, e.g. 0.99.
+     * @return The upper bound of the bucket holding the quantile, or 0 if nothing was recorded.
+     */
+    public long percentileMicros(double quantile) {
+        long total = getCount();
+        if (total == 0) return 0;
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) return upperBoundMicros(i);
+        }
+        return upperBoundMicros(counts.length - 1);
+    }
+
+    public long getP50Micros() {
+        return percentileMicros(0.50);
+    }
+
+    public long getP99Micros() {
+        return percentileMicros(0.99);
+    }
+
+    public long getMaxMicros() {
+        for (int i = counts.length - 1; i >= 0; i--) {
+            if (counts[i] > 0) return upperBoundMicros(i);
+        }
+        return 0;
+    }
+
+    /**
+     * @return A new snapshot with the counts of both, e.g. to aggregate a fleet.
+     */
+    public LatencySnapshot merge(LatencySnapshot other) {
+        long[] merged = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            merged[i] = counts[i] + other.counts[i];
+        }
+        return new LatencySnapshot(merged);
+    }
+}
@@ -0,0 +1,79 @@
+package services.primitives;
+
+import java.io.Serializable;
+
+/**
+ * A video known to a host's media catalog.
+ * The id is derived from the content hash, so it survives renames and does not
+ * shift when files are added or removed, unlike a position in the folder listing.
+ */
+public final class MediaEntry implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final long UNKNOWN_DURATION = -1;
+
+    private final String id;
+    private final String fileName;
+    private final long sizeBytes;
+    private final long lastModifiedMillis;
+    private final String contentHash;
+    private final long durationMillis;
+
+    public MediaEntry(String id, String fileName, long sizeBytes, long lastModifiedMillis,
+                      String contentHash, long durationMillis) {
+        this.id = id;
+        this.fileName = fileName;
+        this.sizeBytes = sizeBytes;
+        this.lastModifiedMillis = lastModifiedMillis;
+        this.contentHash = contentHash;
+        this.durationMillis = durationMillis;
+    }
+
+    public MediaEntry withDuration(long durationMillis) {
+        return new MediaEntry(id, fileName, sizeBytes, lastModifiedMillis, contentHash, durationMillis);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public long getLastModifiedMillis() {
+        return lastModifiedMillis;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    // The same video whatever else changed, e.g. once its duration is known
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) return true;
+        if (!(other instanceof MediaEntry)) return false;
+        return id.equals(((MediaEntry) other).id);
+    }
+
+    @Override
+    public int hashCode() {
+        return id.hashCode();
+    }
+
+    // Shown as-is in the host's video combo box
+    @Override
+    public String toString() {
+        return fileName;
+    }
+}
@@ -0,0 +1,40 @@
+package services.primitives;
+
+import java.io.Serializable;
+
+/**
+ * Call and error counts of one remote method, with the time spent serving it
+ * (from receipt of the call until it returns).
+ */
+public final class MethodStats implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String name;
+    private final long calls;
+    private final long errors;
+    private final LatencySnapshot serviceTime;
+
+    public MethodStats(String name, long calls, long errors, LatencySnapshot serviceTime) {
+        this.name = name;
+        this.calls = calls;
+        this.errors = errors;
+        this.serviceTime = serviceTime;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCalls() {
+        return calls;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public LatencySnapshot getServiceTime() {
+        return serviceTime;
+    }
+}
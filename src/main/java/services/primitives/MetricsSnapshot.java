@@ -0,0 +1,34 @@
+package services.primitives;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Point-in-time copy of a host's metrics, returned by {@link VideoPlayerRemote#getMetrics()}.
+ */
+public final class MetricsSnapshot implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long timestampMillis;
+    private final List<MethodStats> methods;
+    private final List<CommandStats> commands;
+
+    public MetricsSnapshot(long timestampMillis, List<MethodStats> methods, List<CommandStats> commands) {
+        this.timestampMillis = timestampMillis;
+        this.methods = methods;
+        this.commands = commands;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public List<MethodStats> getMethods() {
+        return methods;
+    }
+
+    public List<CommandStats> getCommands() {
+        return commands;
+    }
+}
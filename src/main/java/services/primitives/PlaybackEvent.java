@@ -0,0 +1,91 @@
+package services.primitives;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * A change in a host's playback state.
+ * Only the fields flagged in the change mask are meaningful and serialized,
+ * so a position tick costs a handful of bytes on the wire.
+ */
+public final class PlaybackEvent implements Externalizable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int STATUS = 1;
+    public static final int VIDEO = 1 << 1;
+    public static final int POSITION = 1 << 2;
+    public static final int ALL = STATUS | VIDEO | POSITION;
+
+    private static final PlaybackStatus[] STATUSES = PlaybackStatus.values();
+
+    private int changes;
+    private long timestampMillis;
+    private PlaybackStatus status;
+    private String videoId;
+    private long positionMillis;
+
+    // Required by Externalizable
+    public PlaybackEvent() {
+    }
+
+    public PlaybackEvent(int changes, long timestampMillis, PlaybackStatus status, String videoId, long positionMillis) {
+        this.changes = changes;
+        this.timestampMillis = timestampMillis;
+        this.status = status;
+        this.videoId = videoId;
+        this.positionMillis = positionMillis;
+    }
+
+    public boolean has(int field) {
+        return (changes & field) != 0;
+    }
+
+    public int getChanges() {
+        return changes;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public PlaybackStatus getStatus() {
+        return status;
+    }
+
+    public String getVideoId() {
+        return videoId;
+    }
+
+    public long getPositionMillis() {
+        return positionMillis;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeByte(changes);
+        out.writeLong(timestampMillis);
+        if (has(STATUS)) out.writeByte(status.ordinal());
+        if (has(VIDEO)) out.writeUTF(videoId == null ? "" : videoId);
+        if (has(POSITION)) out.writeLong(positionMillis);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        changes = in.readUnsignedByte();
+        timestampMillis = in.readLong();
+        if (has(STATUS)) {
+            int ordinal = in.readUnsignedByte();
+            if (ordinal >= STATUSES.length) throw new InvalidObjectException("Unknown playback status " + ordinal);
+            status = STATUSES[ordinal];
+        }
+        if (has(VIDEO)) {
+            videoId = in.readUTF();
+            if (videoId.isEmpty()) videoId = null;
+        }
+        if (has(POSITION)) positionMillis = in.readLong();
+    }
+}
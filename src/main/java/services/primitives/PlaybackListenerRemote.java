@@ -0,0 +1,15 @@
+package services.primitives;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.util.List;
+
+/**
+ * Callback exported by a controller to receive playback state from hosts.
+ */
+public interface PlaybackListenerRemote extends Remote {
+
+    // The tag is the one given when the listener was registered, so one listener can serve many hosts
+    void onPlaybackEvents(String tag, List<PlaybackEvent> events) throws RemoteException;
+
+}
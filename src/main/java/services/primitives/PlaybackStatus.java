@@ -0,0 +1,8 @@
+package services.primitives;
+
+/**
+ * Playback state reported by a host to its listeners.
+ */
+public enum PlaybackStatus {
+    UNKNOWN, READY, PLAYING, PAUSED, STOPPED, STALLED, HALTED
+}
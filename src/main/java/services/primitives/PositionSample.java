@@ -0,0 +1,61 @@
+package services.primitives;
+
+import java.io.Serializable;
+
+/**
+ * Playback position of a host together with the host clock reading taken at
+ * the same moment, so it can be compared across hosts whatever the call latency.
+ */
+public final class PositionSample implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String videoId;
+    private final PlaybackStatus status;
+    private final long positionMillis;
+    private final long sampledAtEpochMillis;
+    private final long durationMillis;
+    private final double rate;
+
+    public PositionSample(String videoId, PlaybackStatus status, long positionMillis, long sampledAtEpochMillis,
+                          long durationMillis, double rate) {
+        this.videoId = videoId;
+        this.status = status;
+        this.positionMillis = positionMillis;
+        this.sampledAtEpochMillis = sampledAtEpochMillis;
+        this.durationMillis = durationMillis;
+        this.rate = rate;
+    }
+
+    public String getVideoId() {
+        return videoId;
+    }
+
+    public PlaybackStatus getStatus() {
+        return status;
+    }
+
+    public long getPositionMillis() {
+        return positionMillis;
+    }
+
+    // Host clock
+    public long getSampledAtEpochMillis() {
+        return sampledAtEpochMillis;
+    }
+
+    // -1 while the media duration is unknown
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    // Current playback rate, 1.0 unless a drift correction is in progress
+    public double getRate() {
+        return rate;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s at %d ms (rate %.3f)", status, videoId, positionMillis, rate);
+    }
+}
@@ -0,0 +1,75 @@
+package services.primitives;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * A downscaled, compressed snapshot of what a host shows; decoded with
+ * {@code services.media.PreviewCodec}.
+ */
+public final class PreviewFrame implements Externalizable {
+
+    private static final long serialVersionUID = 1L;
+
+    private int width;
+    private int height;
+    private long sequence;
+    private long capturedAtEpochMillis;
+    private byte[] data;
+
+    // Required by Externalizable
+    public PreviewFrame() {
+    }
+
+    public PreviewFrame(int width, int height, long sequence, long capturedAtEpochMillis, byte[] data) {
+        this.width = width;
+        this.height = height;
+        this.sequence = sequence;
+        this.capturedAtEpochMillis = capturedAtEpochMillis;
+        this.data = data;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    // Increases with every frame captured on the host; gaps are frames a slow listener skipped
+    public long getSequence() {
+        return sequence;
+    }
+
+    // Host clock
+    public long getCapturedAtEpochMillis() {
+        return capturedAtEpochMillis;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeShort(width);
+        out.writeShort(height);
+        out.writeLong(sequence);
+        out.writeLong(capturedAtEpochMillis);
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        width = in.readUnsignedShort();
+        height = in.readUnsignedShort();
+        sequence = in.readLong();
+        capturedAtEpochMillis = in.readLong();
+        data = new byte[in.readInt()];
+        in.readFully(data);
+    }
+}
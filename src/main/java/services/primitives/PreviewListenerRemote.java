@@ -0,0 +1,14 @@
+package services.primitives;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+
+/**
+ * Callback exported by a controller to receive preview frames from hosts.
+ */
+public interface PreviewListenerRemote extends Remote {
+
+    // The tag is the one given when subscribing, so one listener can serve many hosts
+    void onPreviewFrame(String tag, PreviewFrame frame) throws RemoteException;
+
+}
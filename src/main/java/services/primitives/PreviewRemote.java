@@ -0,0 +1,19 @@
+package services.primitives;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+
+/**
+ * Live thumbnails of what a host shows, bound next to the player as
+ * {@code <service>.preview}. Frames are only captured while someone is subscribed,
+ * at the highest rate asked for, lowered by the host whenever rendering is busy.
+ */
+public interface PreviewRemote extends Remote {
+
+    String SERVICE_SUFFIX = ".preview";
+
+    // Frames go to the listener at most maxFps times a second; a slow listener only gets the latest frame
+    void subscribe(PreviewListenerRemote listener, String tag, int maxFps) throws RemoteException;
+    void unsubscribe(PreviewListenerRemote listener) throws RemoteException;
+
+}
@@ -0,0 +1,25 @@
+package services.primitives;
+
+import java.rmi.RemoteException;
+import java.util.List;
+
+/**
+ * A relay forwards every {@link VideoPlayerRemote} call to its children, hosts
+ * or further relays, in parallel, so one call commands a whole floor and the
+ * fan-out cost is spread across a tree. Plain calls fail with
+ * {@link IllegalStateException} unless every host below the relay took the
+ * command; the methods here return the aggregated acknowledgement instead.
+ * Instants are in the relay's clock, which each relay translates to its children's.
+ */
+public interface RelayRemote extends VideoPlayerRemote {
+
+    // Runs the commands in order on every host below this relay
+    RelayReport forward(List<Command> commands) throws RemoteException;
+
+    // Scheduled PLAY, PAUSE or RESTART on every host below this relay
+    RelayReport forwardAt(Command.Type type, long epochMillis) throws RemoteException;
+
+    // Identifiers of the direct children, "hostname:port/serviceName"
+    List<String> getChildren() throws RemoteException;
+
+}
@@ -0,0 +1,91 @@
+package services.primitives;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Aggregated acknowledgement of a command relayed to every host below a relay.
+ * Failed hosts are listed by their path through the relay tree
+ * ({@code "relay > host:port/service"}), up to {@link #MAX_LISTED_FAILURES};
+ * the counts always cover the whole subtree.
+ */
+public final class RelayReport implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    // Keeps reports from a large floor with a dead switch small
+    public static final int MAX_LISTED_FAILURES = 64;
+
+    private int hosts;
+    private int succeeded;
+    private long maxLatencyMicros;
+    private final LinkedHashMap<String, String> failures = new LinkedHashMap<>();
+
+    public static RelayReport success(String host, long latencyMicros) {
+        RelayReport report = new RelayReport();
+        report.hosts = 1;
+        report.succeeded = 1;
+        report.maxLatencyMicros = latencyMicros;
+        return report;
+    }
+
+    // An unreachable relay counts as a single failed host, since its subtree is unknown
+    public static RelayReport failure(String host, String message) {
+        RelayReport report = new RelayReport();
+        report.hosts = 1;
+        report.failures.put(host, message);
+        return report;
+    }
+
+    /**
+     * Adds the report of a child.
+     * @param via Identifier of the child relay the report came through, prefixed to its failures;
+     *            {@code null} for a report about a single host.
+     */
+    public void add(RelayReport child, String via) {
+        hosts += child.hosts;
+        succeeded += child.succeeded;
+        maxLatencyMicros = Math.max(maxLatencyMicros, child.maxLatencyMicros);
+        for (Map.Entry<String, String> failure : child.failures.entrySet()) {
+            if (failures.size() >= MAX_LISTED_FAILURES) break;
+            failures.put(via == null ? failure.getKey() : via + " > " + failure.getKey(), failure.getValue());
+        }
+    }
+
+    public int getHosts() {
+        return hosts;
+    }
+
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    public int getFailed() {
+        return hosts - succeeded;
+    }
+
+    public boolean isComplete() {
+        return succeeded == hosts;
+    }
+
+    // Slowest acknowledgement of a single host, measured by the relay closest to it
+    public long getMaxLatencyMicros() {
+        return maxLatencyMicros;
+    }
+
+    // Host path to error message, at most MAX_LISTED_FAILURES entries
+    public Map<String, String> getFailures() {
+        return Collections.unmodifiableMap(failures);
+    }
+
+    @Override
+    public String toString() {
+        String summary = String.format("%d/%d hosts acknowledged, slowest %d us", succeeded, hosts, maxLatencyMicros);
+        if (failures.isEmpty()) return summary;
+        Map.Entry<String, String> first = failures.entrySet().iterator().next();
+        return summary + "; " + first.getKey() + ": " + first.getValue()
+                + (getFailed() > 1 ? " (and " + (getFailed() - 1) + " more)" : "");
+    }
+}
@@ -0,0 +1,70 @@
+package services.primitives;
+
+import java.io.Serializable;
+
+/**
+ * Where a host is in its timeline. The revision changes with every upload or
+ * amendment and must be passed back when amending.
+ */
+public final class TimelineProgress implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum State { IDLE, RUNNING, FINISHED, CANCELLED }
+
+    private final State state;
+    private final long revision;
+    private final long startEpochMillis;
+    private final int totalCues;
+    private final int firedCues;
+    private final long nextCueEpochMillis;
+    private final long maxLatenessMicros;
+
+    public TimelineProgress(State state, long revision, long startEpochMillis, int totalCues, int firedCues,
+                            long nextCueEpochMillis, long maxLatenessMicros) {
+        this.state = state;
+        this.revision = revision;
+        this.startEpochMillis = startEpochMillis;
+        this.totalCues = totalCues;
+        this.firedCues = firedCues;
+        this.nextCueEpochMillis = nextCueEpochMillis;
+        this.maxLatenessMicros = maxLatenessMicros;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public long getRevision() {
+        return revision;
+    }
+
+    public long getStartEpochMillis() {
+        return startEpochMillis;
+    }
+
+    public int getTotalCues() {
+        return totalCues;
+    }
+
+    // Also the index of the next cue to fire
+    public int getFiredCues() {
+        return firedCues;
+    }
+
+    // Host clock, -1 when no cue is left
+    public long getNextCueEpochMillis() {
+        return nextCueEpochMillis;
+    }
+
+    // Worst delay between a cue's due time and when it fired
+    public long getMaxLatenessMicros() {
+        return maxLatenessMicros;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s rev %d: %d/%d cues fired, max lateness %d us", state, revision, firedCues,
+                totalCues, maxLatenessMicros);
+    }
+}
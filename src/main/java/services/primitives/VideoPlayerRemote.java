@@ -2,6 +2,7 @@ package services.primitives;
 
 import java.rmi.Remote;
 import java.rmi.RemoteException;
+import java.util.List;
 
 public interface VideoPlayerRemote extends Remote {
 
@@ -9,4 +10,41 @@ public interface VideoPlayerRemote extends Remote {
     void pauseVideo() throws RemoteException;
     void restartVideo() throws RemoteException;
 
+    // Switches to a video of the host's catalog, by id or file name; unknown videos are rejected
+    void selectVideo(String videoId) throws RemoteException;
+
+    // Wall-clock time of the host, used by controllers to estimate the clock offset
+    long currentTimeMillis() throws RemoteException;
+
+    // Scheduled variants: the command fires when the host clock reaches epochMillis
+    void playAt(long epochMillis) throws RemoteException;
+    void pauseAt(long epochMillis) throws RemoteException;
+    void restartAt(long epochMillis) throws RemoteException;
+
+    // Host-run timeline: cues fire from the host clock, offsets relative to startEpochMillis.
+    // Upload and amend return the new revision; amend replaces the cues from fromIndex on
+    // and fails if the revision is stale or those cues already fired.
+    long uploadTimeline(long startEpochMillis, List<Cue> cues) throws RemoteException;
+    long amendTimeline(long revision, int fromIndex, List<Cue> cues) throws RemoteException;
+    TimelineProgress getTimelineProgress() throws RemoteException;
+    void cancelTimeline() throws RemoteException;
+
+    // Runs the commands in order with a single round trip
+    BatchResult executeBatch(List<Command> commands) throws RemoteException;
+
+    // Push-based state: the listener first receives a full snapshot, then only changes
+    void addPlaybackListener(PlaybackListenerRemote listener, String tag) throws RemoteException;
+    void removePlaybackListener(PlaybackListenerRemote listener) throws RemoteException;
+
+    // Counters and latency histograms of this host, cheap enough to scrape across the fleet
+    MetricsSnapshot getMetrics() throws RemoteException;
+
+    // Sync groups: the position is read together with the host clock. syncTo tells a member that
+    // the leader was at positionMillis of videoId when this host's clock read atEpochMillis; the
+    // member nudges its rate or seeks to follow and returns how far ahead it was, in milliseconds.
+    // resetRate puts a member back to normal rate once its group stops correcting it.
+    PositionSample samplePosition() throws RemoteException;
+    long syncTo(String videoId, long positionMillis, long atEpochMillis) throws RemoteException;
+    void resetRate() throws RemoteException;
+
 }